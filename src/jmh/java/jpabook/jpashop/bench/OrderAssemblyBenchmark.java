@@ -0,0 +1,125 @@
+package jpabook.jpashop.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.order.query.OrderFlatAssembler;
+import jpabook.jpashop.repository.order.query.OrderFlatDto;
+import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.service.query.OrderNdjsonWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 주문 읽기 모델 조립 비용 (DB 없이, 이미 읽은 플랫 row 기준)
+ * - 1회 실행 = 주문 ORDERS 건 처리, 결과는 주문 1건당 값 (gc.alloc.rate.norm = 주문 1건당 할당 바이트)
+ *
+ * export (NDJSON):
+ *  - export_dtoThenBytes : 주문마다 OrderQueryDto 로 묶고 writeValueAsBytes (이전 방식)
+ *  - export_streaming    : OrderNdjsonWriter 로 row 를 하나의 generator 에 필드 단위로 바로 (현재 방식, 주문/라인 DTO 없음)
+ * 목록 묶기 (V5/V6.1):
+ *  - group_groupingBy    : Collectors.groupingBy(Long 박싱 + 주문별 ArrayList)
+ *  - group_lineStore     : OrderFlatAssembler.group (LongIndexMap + OrderLineStore)
+ *
+ * 실행: ./gradlew jmh -PjmhIncludes=OrderAssemblyBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OrderAssemblyBenchmark {
+    private static final int ORDERS = 10_000;
+
+    @Param({"2", "10"})
+    public int itemsPerOrder;
+
+    private ObjectMapper objectMapper;
+    private ObjectWriter orderWriter;
+    private List<OrderFlatDto> rows;
+    private final OutputStream nullOut = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        orderWriter = objectMapper.writerFor(OrderQueryDto.class);
+
+        rows = new ArrayList<>(ORDERS * itemsPerOrder);
+        LocalDateTime now = LocalDateTime.now();
+        for (long orderId = 1; orderId <= ORDERS; orderId++) {
+            Address address = new Address("city" + orderId % 100, "street" + orderId % 1000, "zip" + orderId % 10);
+            for (int j = 0; j < itemsPerOrder; j++) {
+                rows.add(new OrderFlatDto(orderId, "member" + orderId % 500, now, OrderStatus.ORDER, address,
+                        "book-" + j, 1000 * (j + 1), j + 1));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS)
+    public void export_dtoThenBytes() {
+        OrderFlatAssembler.forEachOrder(rows.iterator(), order -> {
+            try {
+                nullOut.write(orderWriter.writeValueAsBytes(order));
+                nullOut.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS)
+    public long export_streaming() throws IOException {
+        OrderNdjsonWriter writer = new OrderNdjsonWriter(objectMapper, nullOut);
+        for (OrderFlatDto row : rows) {
+            writer.write(row);
+        }
+        writer.finish();
+        return writer.getCount();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS)
+    public Map<Object, List<OrderItemQueryDto>> group_groupingBy() {
+        return rows.stream()
+                .map(r -> new OrderItemQueryDto(r.getOrderId(), r.getItemName(), r.getOrderPrice(), r.getCount()))
+                .collect(Collectors.groupingBy(OrderItemQueryDto::getOrderId));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS)
+    public List<OrderQueryDto> group_lineStore() {
+        return OrderFlatAssembler.group(rows);
+    }
+}
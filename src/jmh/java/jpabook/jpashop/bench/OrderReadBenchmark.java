@@ -0,0 +1,177 @@
+package jpabook.jpashop.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.JpashopApplication;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.service.query.OrderQueryService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 주문 조회 전략별 벤치마크 (조회 + DTO 변환 + JSON 직렬화까지)
+ * - V3   : OrderQueryService.ordersV3 (컬렉션 fetch join)
+ * - V3.1 : OrderQueryService.ordersV3_page (ToOne fetch join + batch fetch)
+ * - V4   : OrderQueryRepository.findOrderQueryDtos (DTO 직접 조회, 1+N)
+ * - V5   : OrderQueryRepository.findAllByDto_optimization (DTO 직접 조회, 1+1)
+ * - V6   : OrderQueryRepository.findAllByDto_flat (플랫 조인, 1)
+ *
+ * 실행: ./gradlew jmh (특정 벤치마크만: -PjmhIncludes=OrderReadBenchmark.v5)
+ * - 처리량: ops/s
+ * - 할당량: gc.alloc.rate.norm (B/op)
+ * - SQL 실행 수: sqlStatements (ops/s 로 나오므로 벤치마크 ops/s 로 나누면 1회당 SQL 수)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class OrderReadBenchmark {
+
+    @Param({"100", "1000"})
+    public int orders;
+
+    @Param({"2", "10"})
+    public int itemsPerOrder;
+
+    private ConfigurableApplicationContext context;
+    private OrderQueryService orderQueryService;
+    private OrderQueryRepository orderQueryRepository;
+    private TransactionTemplate readOnlyTx;
+    private ObjectMapper objectMapper;
+    private Statistics statistics;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(JpashopApplication.class)
+                .profiles("bench")
+                .run();
+        orderQueryService = context.getBean(OrderQueryService.class);
+        orderQueryRepository = context.getBean(OrderQueryRepository.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        readOnlyTx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTx.setReadOnly(true);
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+
+        seed();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * 회원 100명, 상품 200개, 주문 orders 건 (주문마다 상품 itemsPerOrder 개)
+     * - InitDb 가 넣는 주문 2건이 더 있다.
+     */
+    private void seed() {
+        TransactionTemplate tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        EntityManager em = context.getBean(EntityManager.class);
+        tx.executeWithoutResult(status -> {
+            List<Member> members = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                Member member = new Member();
+                member.setName("bench-member-" + i);
+                member.setAddress(new Address("city" + i, "street" + i, "zip" + i));
+                em.persist(member);
+                members.add(member);
+            }
+            List<Book> books = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                Book book = new Book();
+                book.setName("bench-book-" + i);
+                book.setPrice(1000 + i);
+                book.setStockQuantity(Integer.MAX_VALUE);
+                em.persist(book);
+                books.add(book);
+            }
+            em.flush();
+
+            for (int i = 0; i < orders; i++) {
+                Member member = members.get(i % members.size());
+                Delivery delivery = new Delivery();
+                delivery.setAddress(member.getAddress());
+                OrderItem[] orderItems = new OrderItem[itemsPerOrder];
+                for (int j = 0; j < itemsPerOrder; j++) {
+                    Book book = books.get((i * itemsPerOrder + j) % books.size());
+                    orderItems[j] = OrderItem.createReservedOrderItem(book, book.getPrice(), 1 + j % 3);
+                }
+                em.persist(Order.createOrder(member, delivery, orderItems));
+            }
+        });
+    }
+
+    @Benchmark
+    public byte[] v3_fetchJoin(SqlCounters counters) throws Exception {
+        return measure(counters, () -> orderQueryService.ordersV3());
+    }
+
+    @Benchmark
+    public byte[] v3_1_batchFetch(SqlCounters counters) throws Exception {
+        // 페이징 API 이지만 비교를 위해 전체를 한 페이지로 조회
+        return measure(counters, () -> orderQueryService.ordersV3_page(0, orders + 2));
+    }
+
+    @Benchmark
+    public byte[] v4_dto_1PlusN(SqlCounters counters) throws Exception {
+        return measure(counters, () -> readOnlyTx.execute(status -> orderQueryRepository.findOrderQueryDtos()));
+    }
+
+    @Benchmark
+    public byte[] v5_dto_1Plus1(SqlCounters counters) throws Exception {
+        return measure(counters, () -> readOnlyTx.execute(status -> orderQueryRepository.findAllByDto_optimization()));
+    }
+
+    @Benchmark
+    public byte[] v6_flat(SqlCounters counters) throws Exception {
+        return measure(counters, () -> readOnlyTx.execute(status -> orderQueryRepository.findAllByDto_flat()));
+    }
+
+    private byte[] measure(SqlCounters counters, Supplier<Object> query) throws Exception {
+        long before = statistics.getPrepareStatementCount();
+        byte[] json = objectMapper.writeValueAsBytes(query.get());
+        counters.sqlStatements += statistics.getPrepareStatementCount() - before;
+        return json;
+    }
+
+    /**
+     * 반복(iteration)마다 실행된 SQL 수
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class SqlCounters {
+        public long sqlStatements;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            sqlStatements = 0;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package jpabook.jpashop.bench;
+
+import jpabook.jpashop.JpashopApplication;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.DeliveryStatus;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.OrderSort;
+import jpabook.jpashop.repository.OrderSummaryRepository;
+import jpabook.jpashop.service.OrderService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 주문 검색 (OrderRepository.findAll, OrderSummaryRepository.findAll) 쿼리 플랜 캐시 재사용
+ * - 조건 값은 매번 다르지만 조합/정렬은 한정된 검색 요청을 돌려가며 실행한다. (1회 = 주문 검색 + 주문 요약 검색)
+ * - 검색 JPQL 은 조건 조합/정렬별로 미리 정해진 모양이므로(OrderSearchQuery), 플랜 캐시 미스는 모양 수에서 멈춘다.
+ *
+ * 실행: ./gradlew jmh -PjmhIncludes=OrderSearchBenchmark
+ * - 처리량: ops/s
+ * - planCacheHits / planCacheMisses: 반복(iteration)마다의 Hibernate 쿼리 플랜 캐시 히트/미스 수
+ *   (워밍업 뒤에는 미스가 0 이어야 한다. 히트율 = hits / (hits + misses))
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class OrderSearchBenchmark {
+    private static final int SEARCHES = 2000;
+
+    private ConfigurableApplicationContext context;
+    private OrderRepository orderRepository;
+    private OrderSummaryRepository orderSummaryRepository;
+    private TransactionTemplate readOnlyTx;
+    private Statistics statistics;
+    private final List<OrderSearch> searches = new ArrayList<>();
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(JpashopApplication.class)
+                .profiles("bench")
+                .run();
+        orderRepository = context.getBean(OrderRepository.class);
+        orderSummaryRepository = context.getBean(OrderSummaryRepository.class);
+        readOnlyTx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTx.setReadOnly(true);
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+
+        seed();
+        Random random = new Random(7);
+        for (int i = 0; i < SEARCHES; i++) {
+            searches.add(randomSearch(random, i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * 회원 100명, 상품 20개, 주문 1000건 (목록 조회 테이블까지 채우도록 OrderService 로 주문)
+     */
+    private void seed() {
+        TransactionTemplate tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        EntityManager em = context.getBean(EntityManager.class);
+        List<Long> memberIds = new ArrayList<>();
+        List<Long> itemIds = new ArrayList<>();
+        tx.executeWithoutResult(status -> {
+            for (int i = 0; i < 100; i++) {
+                Member member = new Member();
+                member.setName("user" + i);
+                member.setAddress(new Address("city" + i, "street" + i, "zip" + i));
+                em.persist(member);
+                memberIds.add(member.getId());
+            }
+            for (int i = 0; i < 20; i++) {
+                Book book = new Book();
+                book.setName("bench-book-" + i);
+                book.setPrice(1000 + i);
+                book.setStockQuantity(Integer.MAX_VALUE);
+                em.persist(book);
+                itemIds.add(book.getId());
+            }
+        });
+
+        OrderService orderService = context.getBean(OrderService.class);
+        for (int i = 0; i < 1000; i++) {
+            orderService.order(memberIds.get(i % memberIds.size()), itemIds.get(i % itemIds.size()), 1);
+        }
+    }
+
+    @Benchmark
+    public int search(PlanCacheCounters counters) {
+        OrderSearch search = searches.get(next);
+        next = (next + 1) % searches.size();
+
+        long hits = statistics.getQueryPlanCacheHitCount();
+        long misses = statistics.getQueryPlanCacheMissCount();
+        int found = readOnlyTx.execute(status ->
+                orderRepository.findAll(search).size() + orderSummaryRepository.findAll(search).size());
+        counters.planCacheHits += statistics.getQueryPlanCacheHitCount() - hits;
+        counters.planCacheMisses += statistics.getQueryPlanCacheMissCount() - misses;
+        return found;
+    }
+
+    private static OrderSearch randomSearch(Random random, int i) {
+        OrderSearch search = new OrderSearch();
+        if (random.nextBoolean()) search.setOrderStatus(random.nextBoolean() ? OrderStatus.ORDER : OrderStatus.CANCEL);
+        if (random.nextBoolean()) search.setMemberName("user" + i % 100);
+        if (random.nextBoolean()) search.setOrderDateFrom(LocalDateTime.now().minusDays(random.nextInt(30)));
+        if (random.nextBoolean()) search.setOrderDateTo(LocalDateTime.now().plusDays(random.nextInt(30)));
+        if (random.nextBoolean()) search.setItemId((long) random.nextInt(1000));
+        if (random.nextBoolean()) search.setDeliveryStatus(DeliveryStatus.READY);
+        if (random.nextBoolean()) search.setAfterId((long) random.nextInt(1000) + 1); // 목록 화면 키셋 페이징
+        search.setSort(OrderSort.values()[random.nextInt(OrderSort.values().length)]);
+        search.setPage(random.nextInt(3));
+        search.setSize(1 + random.nextInt(50));
+        return search;
+    }
+
+    /**
+     * 반복(iteration)마다의 쿼리 플랜 캐시 히트/미스 수
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PlanCacheCounters {
+        public long planCacheHits;
+        public long planCacheMisses;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            planCacheHits = 0;
+            planCacheMisses = 0;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package jpabook.jpashop;
 
 import jpabook.jpashop.domain.*;
 import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.StockService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
@@ -36,6 +37,7 @@ public class InitDb {
     @RequiredArgsConstructor
     static class InitService {
         private final EntityManager em;
+        private final StockService stockService;
 
         public void dbInit1() {
             Member member = createMember("userA", "서울", "1", "1111");
@@ -47,11 +49,12 @@ public class InitDb {
             Book book2 = createBook("JPA2 BOOK", 20000, 100);
             em.persist(book2);
 
-            OrderItem orderItem1 = OrderItem.createOrderItem(book1, 10000, 1);
-            OrderItem orderItem2 = OrderItem.createOrderItem(book2, 20000, 2);
+            OrderItem orderItem1 = createOrderItem(book1, 10000, 1);
+            OrderItem orderItem2 = createOrderItem(book2, 20000, 2);
 
             Order order = Order.createOrder(member, createDelivery(member), orderItem1, orderItem2);
             em.persist(order);
+            em.persist(OrderSummary.from(order));
         }
 
         public void dbInit2() {
@@ -64,11 +67,12 @@ public class InitDb {
             Book book2 = createBook("SPRING2 BOOK", 40000, 300);
             em.persist(book2);
 
-            OrderItem orderItem1 = OrderItem.createOrderItem(book1, 20000, 3);
-            OrderItem orderItem2 = OrderItem.createOrderItem(book2, 40000, 4);
+            OrderItem orderItem1 = createOrderItem(book1, 20000, 3);
+            OrderItem orderItem2 = createOrderItem(book2, 40000, 4);
 
             Order order = Order.createOrder(member, createDelivery(member), orderItem1, orderItem2);
             em.persist(order);
+            em.persist(OrderSummary.from(order));
         }
 
         private Member createMember(String name, String city, String street, String zipcode) {
@@ -86,6 +90,12 @@ public class InitDb {
             return book;
         }
 
+        // 주문과 같은 경로로 재고를 차감한다. (원자적 UPDATE)
+        private OrderItem createOrderItem(Book book, int orderPrice, int count) {
+            stockService.reserve(book, count);
+            return OrderItem.createReservedOrderItem(book, orderPrice, count);
+        }
+
         private Delivery createDelivery(Member member) {
             Delivery delivery = new Delivery();
             delivery.setAddress(member.getAddress());
@@ -0,0 +1,19 @@
+package jpabook.jpashop.aop;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 낙관적 락 충돌(OptimisticLockException) 시 메서드를 새 트랜잭션으로 다시 실행한다.
+ * - @Transactional 메서드에 함께 붙인다. 재시도는 트랜잭션 바깥에서 일어난다.
+ * - 재시도 간격은 backoffMillis * 2^(시도-1) 에 지터(0.5 ~ 1배)를 섞는다.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface OptimisticLockRetry {
+    int maxAttempts() default 3;
+
+    long backoffMillis() default 20;
+}
@@ -0,0 +1,72 @@
+package jpabook.jpashop.aop;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.OptimisticLockException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * {@link OptimisticLockRetry} 처리
+ * - 트랜잭션 AOP 보다 바깥에서 실행되어야(HIGHEST_PRECEDENCE) 시도마다 새 트랜잭션, 새로 조회한 엔티티로 실행된다.
+ * - 메트릭 (method 태그)
+ *      jpashop.optimistic.calls     : 호출 수
+ *      jpashop.optimistic.conflicts : 충돌 수 (conflicts / calls = 충돌률)
+ *      jpashop.optimistic.retries   : 재시도 수
+ *      jpashop.optimistic.exhausted : 재시도를 모두 소진하고 실패한 수
+ */
+@Slf4j
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class OptimisticLockRetryAspect {
+    private final MeterRegistry meterRegistry;
+
+    @Around("@annotation(retry)")
+    public Object retry(ProceedingJoinPoint joinPoint, OptimisticLockRetry retry) throws Throwable {
+        // 이미 바깥 트랜잭션 안이라면 다시 실행해도 같은 영속성 컨텍스트를 쓰므로 의미가 없다. -> 바깥에 맡긴다.
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+
+        String method = joinPoint.getSignature().toShortString();
+        int maxAttempts = Math.max(1, retry.maxAttempts());
+        meterRegistry.counter("jpashop.optimistic.calls", "method", method).increment();
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return joinPoint.proceed();
+            } catch (OptimisticLockingFailureException | OptimisticLockException e) {
+                meterRegistry.counter("jpashop.optimistic.conflicts", "method", method).increment();
+                if (attempt >= maxAttempts) {
+                    meterRegistry.counter("jpashop.optimistic.exhausted", "method", method).increment();
+                    throw e;
+                }
+                meterRegistry.counter("jpashop.optimistic.retries", "method", method).increment();
+                log.debug("optimistic lock conflict. method={}, attempt={}", method, attempt);
+
+                try {
+                    Thread.sleep(backoff(retry.backoffMillis(), attempt));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private long backoff(long backoffMillis, int attempt) {
+        long base = backoffMillis << Math.min(attempt - 1, 10);
+        return ThreadLocalRandom.current().nextLong(base / 2, base + 1);
+    }
+}
@@ -0,0 +1,128 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.CategoryTree;
+import jpabook.jpashop.service.CategoryService;
+import jpabook.jpashop.web.ApiExecutor;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+@RestController
+@RequiredArgsConstructor
+public class CategoryApiController {
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final CategoryService categoryService;
+    private final ApiExecutor apiExecutor; // 비동기 실행 + DB 동시 사용 제한
+
+    /**
+     * 카테고리 트리 (전위 순회 순서, 메모리 스냅샷이라 DB 조회 없음)
+     */
+    @GetMapping("/api/categories")
+    public Result<List<CategoryDto>> categories() {
+        List<CategoryDto> collect = categoryService.getTree().getNodes().stream()
+                .map(CategoryDto::new)
+                .collect(Collectors.toList());
+        return new Result<>(collect);
+    }
+
+    @PostMapping("/api/categories")
+    public CompletableFuture<CreateCategoryResponse> createCategory(@RequestBody @Valid CreateCategoryRequest request) {
+        return apiExecutor.supply(() ->
+                new CreateCategoryResponse(categoryService.create(request.getName(), request.getParentId())));
+    }
+
+    @PostMapping("/api/categories/{id}/items/{itemId}")
+    public CompletableFuture<Void> addItem(@PathVariable("id") Long id, @PathVariable("itemId") Long itemId) {
+        return apiExecutor.supply(() -> {
+            categoryService.addItem(id, itemId);
+            return null;
+        });
+    }
+
+    /**
+     * 카테고리와 모든 하위 카테고리의 상품 (상품 id 순 페이징)
+     * - 한 건 더 읽어서 다음 페이지가 있는지 알려준다. (count 쿼리 없음)
+     */
+    @GetMapping("/api/categories/{id}/items")
+    public CompletableFuture<ItemPage> itemsInSubtree(@PathVariable("id") Long id,
+                                                      @RequestParam(value = "page", defaultValue = "0") int page,
+                                                      @RequestParam(value = "size", defaultValue = "20") int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        int offset = Math.max(0, page) * pageSize;
+        return apiExecutor.supply(() -> {
+            List<Item> items = categoryService.findItemsInSubtree(id, offset, pageSize + 1);
+            boolean hasNext = items.size() > pageSize;
+            List<CategoryItemDto> collect = items.stream()
+                    .limit(pageSize)
+                    .map(CategoryItemDto::new)
+                    .collect(Collectors.toList());
+            return new ItemPage(id, Math.max(0, page), pageSize, hasNext, collect);
+        });
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class Result<T> {
+        private T data;
+    }
+
+    @Data
+    static class CategoryDto {
+        private Long id;
+        private String name;
+        private Long parentId;
+        private int depth;
+
+        public CategoryDto(CategoryTree.Node node) {
+            id = node.getId();
+            name = node.getName();
+            parentId = node.getParentId();
+            depth = node.getDepth();
+        }
+    }
+
+    @Data
+    static class CreateCategoryRequest {
+        @NotEmpty
+        private String name;
+        private Long parentId;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CreateCategoryResponse {
+        private Long id;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class ItemPage {
+        private Long categoryId;
+        private int page;
+        private int size;
+        private boolean hasNext;
+        private List<CategoryItemDto> data;
+    }
+
+    @Data
+    static class CategoryItemDto {
+        private Long itemId;
+        private String name;
+        private int price;
+
+        public CategoryItemDto(Item item) {
+            itemId = item.getId();
+            name = item.getName();
+            price = item.getPrice();
+        }
+    }
+}
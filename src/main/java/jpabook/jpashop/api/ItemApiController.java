@@ -0,0 +1,82 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.exception.ServerBusyException;
+import jpabook.jpashop.search.ItemSearchIndex;
+import jpabook.jpashop.web.ConditionalGet;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static jpabook.jpashop.change.ChangeTable.ITEMS;
+
+@RestController
+@RequiredArgsConstructor
+public class ItemApiController {
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final ItemSearchIndex itemSearchIndex;
+    private final ConditionalGet conditionalGet; // 조건부 GET (ETag)
+
+    /**
+     * 상품 검색 (이름, 저자, isbn, 아티스트, 감독, 배우)
+     * - 메모리 색인만 읽으므로 DB 조회가 없다. (비동기 실행/DB 동시 사용 제한도 필요 없음)
+     * - 검색어 토큰을 모두 포함하는 상품을 점수 순으로 페이징
+     * - 검색어가 너무 짧아 일부만 찾았으면 truncated=true (total 도 찾은 것까지의 수)
+     */
+    @GetMapping("/api/items/search")
+    public SearchResult search(@RequestParam("q") String query,
+                               @RequestParam(value = "page", defaultValue = "0") int page,
+                               @RequestParam(value = "size", defaultValue = "20") int size,
+                               WebRequest request) {
+        if (!itemSearchIndex.isReady()) {
+            throw new ServerBusyException("상품 검색 색인을 만드는 중입니다.");
+        }
+        if (conditionalGet.notModified(request, ITEMS)) {
+            return null; // 304
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        int pageNumber = Math.max(0, page);
+        ItemSearchIndex.ItemSearchResult result = itemSearchIndex.search(query, pageNumber * pageSize, pageSize);
+        List<ItemSearchDto> collect = result.getHits().stream()
+                .map(ItemSearchDto::new)
+                .collect(Collectors.toList());
+        boolean hasNext = (long) (pageNumber + 1) * pageSize < result.getTotal();
+        return new SearchResult(query, result.getTotal(), result.isTruncated(), pageNumber, pageSize, hasNext, collect);
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class SearchResult {
+        private String query;
+        private int total;
+        private boolean truncated; // true 면 일부 결과 (검색어를 더 길게)
+        private int page;
+        private int size;
+        private boolean hasNext;
+        private List<ItemSearchDto> data;
+    }
+
+    @Data
+    static class ItemSearchDto {
+        private Long itemId;
+        private String type;
+        private String name;
+        private int price;
+        private int score;
+
+        public ItemSearchDto(ItemSearchIndex.Hit hit) {
+            itemId = hit.getDocument().getItemId();
+            type = hit.getDocument().getType();
+            name = hit.getDocument().getName();
+            price = hit.getDocument().getPrice();
+            score = hit.getScore();
+        }
+    }
+}
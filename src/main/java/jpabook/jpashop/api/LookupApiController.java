@@ -0,0 +1,85 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.exception.ServerBusyException;
+import jpabook.jpashop.repository.KeysetPage;
+import jpabook.jpashop.repository.MemberListDto;
+import jpabook.jpashop.search.ItemSearchIndex;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.web.ApiExecutor;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * 주문 화면의 회원/상품 선택 (입력한 글자로 찾기)
+ * - 전체 목록을 화면에 내려보내지 않고 검색어로 한 페이지씩 조회한다.
+ */
+@RestController
+@RequiredArgsConstructor
+public class LookupApiController {
+    private static final int MAX_SIZE = 50;
+
+    private final MemberService memberService;
+    private final ItemSearchIndex itemSearchIndex;
+    private final ApiExecutor apiExecutor; // 비동기 실행 + DB 동시 사용 제한
+
+    /**
+     * 이름 앞부분으로 회원 찾기 (id 순 키셋 페이징)
+     */
+    @GetMapping("/api/lookup/members")
+    public CompletableFuture<LookupPage> members(@RequestParam(value = "q", defaultValue = "") String query,
+                                                 @RequestParam(value = "after", required = false) Long after,
+                                                 @RequestParam(value = "size", defaultValue = "10") int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_SIZE));
+        return apiExecutor.supply(() -> {
+            KeysetPage<MemberListDto> page = memberService.findMemberPageByNamePrefix(query, after, pageSize);
+            List<LookupDto> collect = page.getContent().stream()
+                    .map(m -> new LookupDto(m.getId(), m.getName()))
+                    .collect(Collectors.toList());
+            return new LookupPage(collect, page.getNextAfterId(), null, null);
+        });
+    }
+
+    /**
+     * 상품 찾기 (상품 검색 색인, DB 조회 없음)
+     */
+    @GetMapping("/api/lookup/items")
+    public LookupPage items(@RequestParam(value = "q", defaultValue = "") String query,
+                            @RequestParam(value = "page", defaultValue = "0") int page,
+                            @RequestParam(value = "size", defaultValue = "10") int size) {
+        if (!itemSearchIndex.isReady()) {
+            throw new ServerBusyException("상품 검색 색인을 만드는 중입니다.");
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_SIZE));
+        int pageNumber = Math.max(0, page);
+        ItemSearchIndex.ItemSearchResult result = itemSearchIndex.search(query, pageNumber * pageSize, pageSize);
+        List<LookupDto> collect = result.getHits().stream()
+                .map(h -> new LookupDto(h.getDocument().getItemId(), h.getDocument().getName()))
+                .collect(Collectors.toList());
+        boolean hasNext = (long) (pageNumber + 1) * pageSize < result.getTotal();
+        return new LookupPage(collect, null, hasNext ? pageNumber + 1 : null, result.isTruncated());
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class LookupPage {
+        private List<LookupDto> data;
+        private Long nextAfter; // 회원: 다음 페이지 커서
+        private Integer nextPage; // 상품: 다음 페이지 번호
+        private Boolean truncated; // 상품: 검색어가 너무 짧아 일부만 찾았으면 true
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class LookupDto {
+        private Long id;
+        private String name;
+    }
+}
@@ -2,21 +2,29 @@ package jpabook.jpashop.api;
 
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.web.ApiExecutor;
+import jpabook.jpashop.web.ConditionalGet;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotEmpty;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
+import static jpabook.jpashop.change.ChangeTable.*;
+
 @RestController // @Controller + @ResponseBody
 @RequiredArgsConstructor
 public class MemberApiController {
     private final MemberService memberService;
+    private final ApiExecutor apiExecutor; // 비동기 실행 + DB 동시 사용 제한
+    private final ConditionalGet conditionalGet; // 조건부 GET (ETag)
 
     /**
      * 조회 V1: 응답 값으로 엔티티를 직접 외부에 노출한다.
@@ -32,20 +40,25 @@ public class MemberApiController {
      */
     // 조회 V1: 안 좋은 버전, 모든 엔티티가 노출, @JsonIgnore -> 이건 정말 최악, api가 이거 하나인가! 화면에 종속적이지 마라!
     @GetMapping("/api/v1/members")
-    public List<Member> membersV1() {
-        return memberService.findMembers();
+    public CompletableFuture<List<Member>> membersV1() {
+        return apiExecutor.supply(memberService::findMembers);
     }
 
     /**
      * 조회 V2: 응답 값으로 엔티티가 아닌 별도의 DTO를 반환한다.
      */
     @GetMapping("/api/v2/members")
-    public Result memberV2() {
-        List<Member> findMembers = memberService.findMembers();
-        List<MemberDto> collect = findMembers.stream()
-                .map(m -> new MemberDto(m.getName()))
-                .collect(Collectors.toList());
-        return new Result(collect);
+    public CompletableFuture<Result> memberV2(WebRequest request) {
+        if (conditionalGet.notModified(request, MEMBERS)) {
+            return null; // 304
+        }
+        return apiExecutor.supply(() -> {
+            List<Member> findMembers = memberService.findMembers();
+            List<MemberDto> collect = findMembers.stream()
+                    .map(m -> new MemberDto(m.getName()))
+                    .collect(Collectors.toList());
+            return new Result(collect);
+        });
     }
 
     @Data
@@ -72,9 +85,8 @@ public class MemberApiController {
      */
     // 비추천
     @PostMapping("/api/v1/members")
-    public CreateMemberResponse saveMemberV1(@RequestBody @Valid Member member) {
-        Long id = memberService.join(member);
-        return new CreateMemberResponse(id);
+    public CompletableFuture<CreateMemberResponse> saveMemberV1(@RequestBody @Valid Member member) {
+        return apiExecutor.supply(() -> new CreateMemberResponse(memberService.join(member)));
     }
 
     /**
@@ -82,21 +94,22 @@ public class MemberApiController {
      */
     // API 정석, 리스폰스와 리퀘스트를 분리하라. 무조건
     @PostMapping("/api/v2/members")
-    public CreateMemberResponse saveMemberV2(@RequestBody @Valid CreateMemberRequest request) {
+    public CompletableFuture<CreateMemberResponse> saveMemberV2(@RequestBody @Valid CreateMemberRequest request) {
         Member member = new Member();
         member.setName(request.getName());
-        Long id = memberService.join(member);
-        return new CreateMemberResponse(id);
+        return apiExecutor.supply(() -> new CreateMemberResponse(memberService.join(member)));
     }
 
     /**
      * 수정 API
      */
     @PutMapping("/api/v2/members/{id}")
-    public UpdateMemberResponse updateMemberV2(@PathVariable("id") Long id, @RequestBody @Valid UpdateMemberRequest request) {
-        memberService.update(id, request.getName());
-        Member findMember = memberService.findOne(id); // 이렇게 분리하는것이 좋다. 한번더 select sql문이 나가더라도.
-        return new UpdateMemberResponse(findMember.getId(), findMember.getName());
+    public CompletableFuture<UpdateMemberResponse> updateMemberV2(@PathVariable("id") Long id, @RequestBody @Valid UpdateMemberRequest request) {
+        return apiExecutor.supply(() -> {
+            memberService.update(id, request.getName());
+            Member findMember = memberService.findOne(id); // 이렇게 분리하는것이 좋다. 한번더 select sql문이 나가더라도.
+            return new UpdateMemberResponse(findMember.getId(), findMember.getName());
+        });
     }
 
 
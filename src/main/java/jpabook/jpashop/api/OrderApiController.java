@@ -2,27 +2,51 @@ package jpabook.jpashop.api;
 
 import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Order;
-import jpabook.jpashop.domain.OrderItem;
 import jpabook.jpashop.domain.OrderStatus;
-import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.exception.OrderBatchException;
 import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.order.query.OrderFlatAssembler;
 import jpabook.jpashop.repository.order.query.OrderFlatDto;
 import jpabook.jpashop.repository.order.query.OrderQueryDto;
 import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.service.OrderCommand;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.query.OrderCursor;
+import jpabook.jpashop.service.query.OrderCursorPage;
 import jpabook.jpashop.service.query.OrderDto;
+import jpabook.jpashop.service.query.OrderExportService;
 import jpabook.jpashop.service.query.OrderQueryService;
+import jpabook.jpashop.web.ApiExecutor;
+import jpabook.jpashop.web.ConditionalGet;
+import jpabook.jpashop.web.JsonArray;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
+import static jpabook.jpashop.change.ChangeTable.*;
+
 /**
  * V1. 엔티티 직접 노출
  * - 엔티티가 변하면 API 스펙이 변한다.
@@ -53,24 +77,21 @@ import java.util.stream.Collectors;
 @RestController
 @RequiredArgsConstructor
 public class OrderApiController {
-    private final OrderRepository orderRepository;
     private final OrderQueryRepository orderQueryRepository;
+    private final OrderExportService orderExportService;
+    private final OrderService orderService;
+    private final ApiExecutor apiExecutor; // 비동기 실행 + DB 동시 사용 제한
+    private final ConditionalGet conditionalGet; // 조건부 GET (ETag)
 
     /**
      * V1. 엔티티 직접 노출 (비추)
      * - Hibernate5Module 모듈 등록, LAZY=null 처리
      * - 양방향 관계 문제 발생 -> @JsonIgnore
+     * - 검색 조건과 페이징은 쿼리 파라미터로 (OrderSearch: page, size 기본 20 최대 1000, afterId 키셋)
      */
     @GetMapping("/api/v1/orders")
-    public List<Order> ordersV1() {
-        List<Order> all = orderRepository.findAllByString(new OrderSearch());
-        for (Order order : all) {
-            order.getMember().getName(); //Lazy 강제 초기화
-            order.getDelivery().getAddress(); //Lazy 강제 초기화
-            List<OrderItem> orderItems = order.getOrderItems();
-            orderItems.stream().forEach(o -> o.getItem().getName()); //Lazy 강제 초기화
-        }
-        return all;
+    public CompletableFuture<List<Order>> ordersV1(@ModelAttribute OrderSearch orderSearch) {
+        return apiExecutor.supply(() -> orderQueryService.ordersV1(orderSearch)); // Lazy 강제 초기화는 트랜잭션 안에서
     }
 
     /**
@@ -80,14 +101,14 @@ public class OrderApiController {
      *      member, address N번 (order 조회 수 만큼)
      *      orderItem N번 (order 조회 수 만큼)
      *      item N번 (orderItem 조회 수 만큼)
+     * - 검색 조건과 페이징은 V1 과 같다. (OrderSearch)
      */
     @GetMapping("/api/v2/orders")
-    public OrderResponse ordersV2() {
-        List<Order> orders = orderRepository.findAllByString(new OrderSearch());
-        List<OrderDto> collect = orders.stream()
-                .map(o -> new OrderDto(o))
-                .collect(Collectors.toList());
-        return new OrderResponse("testkey321", collect);
+    public CompletableFuture<OrderResponse> ordersV2(@ModelAttribute OrderSearch orderSearch, WebRequest request) {
+        if (conditionalGet.notModified(request, ORDERS, MEMBERS, ITEMS)) {
+            return null; // 304
+        }
+        return apiExecutor.supply(() -> new OrderResponse("testkey321", orderQueryService.ordersV2(orderSearch)));
     }
 
     @Data
@@ -120,12 +141,20 @@ public class OrderApiController {
 
     /**
      * 주문 조회 V3: 엔티티를 DTO로 변환 - 페치 조인 최적화
-     * - N대일 관계만 조회할 때 사용 (중복데이터가 발생하지않고, 페이징이 필요하지 않을때)
-     * - 쿼리가 딱 1번 나감. (모두 fetch join 으로 불러옴)
+     * - /api/v3/orders: 전체, /api/v3/orders?page=0&size=100: 페이징
+     * - 컬렉션 페치 조인은 그대로 페이징하면 메모리 페이징이 되므로, 주문 (id, version) 페이지를 먼저 조회하고 (조인 없음)
+     *   캐시에 없거나 바뀐 주문만 컬렉션까지 페치 조인한다. 주문 상품이 없는 주문도 left join 으로 함께 나온다.
+     * - 응답은 주문별로 캐시해 둔 JSON 바이트를 이어 붙여서 쓴다. 모두 캐시에 있으면 쿼리 1번, 아니면 2번
+     *   (OrderQueryService.ordersV3Json, OrderJsonCache)
      */
     @GetMapping("/api/v3/orders")
-    public List<OrderDto> ordersV3() {
-        return orderQueryService.ordersV3();
+    public CompletableFuture<JsonArray> ordersV3(@RequestParam(value = "page", required = false) Integer page,
+                                                      @RequestParam(value = "size", defaultValue = "100") int size,
+                                                      WebRequest request) {
+        if (conditionalGet.notModified(request, ORDERS, MEMBERS, ITEMS)) {
+            return null; // 304
+        }
+        return apiExecutor.supply(() -> orderQueryService.ordersV3Json(page, size));
     }
 
     /**
@@ -148,9 +177,31 @@ public class OrderApiController {
      * - IN(?, ? ..) 안에는 최대 1000개 hibernate.default_batch_fetch_size 로 조정.
      */
     @GetMapping("/api/v3.1/orders")
-    public List<OrderDto> ordersV3_page(@RequestParam(value = "offset",defaultValue = "0") int offset,
-                                        @RequestParam(value = "limit", defaultValue= "100") int limit) {
-        return orderQueryService.ordersV3_page(offset, limit);
+    public CompletableFuture<List<OrderDto>> ordersV3_page(@RequestParam(value = "offset",defaultValue = "0") int offset,
+                                                           @RequestParam(value = "limit", defaultValue= "100") int limit,
+                                                           WebRequest request) {
+        if (conditionalGet.notModified(request, ORDERS, MEMBERS, ITEMS)) {
+            return null; // 304
+        }
+        return apiExecutor.supply(() -> orderQueryService.ordersV3_page(offset, limit));
+    }
+
+    /**
+     * V3.1 키셋(커서) 페이징 모드: /api/v3.1/orders?after=&limit=100
+     * - offset 방식은 깊은 페이지일수록 DB가 offset 만큼 읽고 버리기 때문에 느려진다.
+     * - order_id 인덱스로 바로 탐색하므로 페이지 깊이와 상관없이 응답 시간이 일정하다.
+     * - 첫 페이지는 after 를 빈 값으로 요청하고, 이후에는 응답의 next 커서를 그대로 넘긴다.
+     * - 잘못된 커서는 DB 를 쓰기 전에 400 으로 돌려준다. (InvalidCursorException)
+     */
+    @GetMapping(value = "/api/v3.1/orders", params = "after")
+    public CompletableFuture<OrderCursorPage> ordersV3_cursor(@RequestParam(value = "after") String after,
+                                                              @RequestParam(value = "limit", defaultValue = "100") int limit,
+                                                              WebRequest request) {
+        Long afterId = OrderCursor.decode(after);
+        if (conditionalGet.notModified(request, ORDERS, MEMBERS, ITEMS)) {
+            return null; // 304
+        }
+        return apiExecutor.supply(() -> orderQueryService.ordersV3_cursor(afterId, limit));
     }
 
     /**
@@ -160,9 +211,11 @@ public class OrderApiController {
      * - row 수가 증가하지 않는 ToOne 관계는 조인으로 최적화 하기 쉬우므로 한번에 조회하고, ToMany 관계는 최적화 하기 어려우므로 findOrderItems() 같은 별도의 메서드로 조회한다.
      */
     @GetMapping("/api/v4/orders")
-    public List<OrderQueryDto> ordersV4() {
-        List<OrderQueryDto> orders = orderQueryRepository.findOrderQueryDtos();
-        return orders;
+    public CompletableFuture<List<OrderQueryDto>> ordersV4(WebRequest request) {
+        if (conditionalGet.notModified(request, ORDERS, MEMBERS, ITEMS)) {
+            return null; // 304
+        }
+        return apiExecutor.supply(orderQueryRepository::findOrderQueryDtos);
     }
 
     /**
@@ -174,9 +227,11 @@ public class OrderApiController {
      * - MAP을 사용해서 매칭 성능 향상 (O(1))
      */
     @GetMapping("/api/v5/orders")
-    public List<OrderQueryDto> ordersV5() {
-        List<OrderQueryDto> orders = orderQueryRepository.findAllByDto_optimization();
-        return orders;
+    public CompletableFuture<List<OrderQueryDto>> ordersV5(WebRequest request) {
+        if (conditionalGet.notModified(request, ORDERS, MEMBERS, ITEMS)) {
+            return null; // 304
+        }
+        return apiExecutor.supply(orderQueryRepository::findAllByDto_optimization);
     }
 
     /**
@@ -191,8 +246,100 @@ public class OrderApiController {
      *      - 페이징 불가능
      */
     @GetMapping("/api/v6/orders")
-    public List<OrderFlatDto> ordersV6() {
-        List<OrderFlatDto> orders = orderQueryRepository.findAllByDto_flat();
-        return orders;
+    public CompletableFuture<List<OrderFlatDto>> ordersV6(WebRequest request) {
+        if (conditionalGet.notModified(request, ORDERS, MEMBERS, ITEMS)) {
+            return null; // 304
+        }
+        return apiExecutor.supply(orderQueryRepository::findAllByDto_flat);
+    }
+
+    /**
+     * V6.1: 플랫 조회 결과를 주문 단위(OrderQueryDto)로 묶어서 반환 (V4, V5 와 같은 응답 모양)
+     * - Query: 1번
+     * - 묶는 작업은 OrderFlatAssembler (주문 id 를 박싱하지 않는 맵 + 배열 라인 저장소)
+     */
+    @GetMapping("/api/v6.1/orders")
+    public CompletableFuture<List<OrderQueryDto>> ordersV6_grouped(WebRequest request) {
+        if (conditionalGet.notModified(request, ORDERS, MEMBERS, ITEMS)) {
+            return null; // 304
+        }
+        return apiExecutor.supply(() -> OrderFlatAssembler.group(orderQueryRepository.findAllByDto_flat()));
+    }
+
+    /**
+     * 대량 주문 등록 (B2B 일괄 주문 등)
+     * - 주문 500건 단위(청크)로 트랜잭션을 나눠 커밋한다. 실패한 청크만 롤백되고 거기서 멈춘다.
+     * - 앞 청크가 이미 커밋된 상태에서 실패하면 409 와 함께 커밋된 주문 id 를 돌려준다. (나머지만 다시 보내면 된다)
+     * - 재고 차감은 청크 안에서 상품별로 묶어서 1번, INSERT 는 JDBC 배치로 처리 (OrderService.orderBatch 참고)
+     */
+    @PostMapping("/api/orders/batch")
+    public CompletableFuture<CreateOrdersResponse> saveOrdersBatch(@RequestBody @Valid CreateOrdersRequest request) {
+        List<OrderCommand> commands = request.getOrders().stream()
+                .map(o -> new OrderCommand(o.getMemberId(), o.getLines().stream()
+                        .map(l -> new OrderCommand.Line(l.getItemId(), l.getCount()))
+                        .collect(Collectors.toList())))
+                .collect(Collectors.toList());
+
+        return apiExecutor.supply(() -> {
+            List<Long> orderIds = orderService.orderBatch(commands);
+            return new CreateOrdersResponse(orderIds.size(), orderIds);
+        });
+    }
+
+    @ExceptionHandler(OrderBatchException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public BatchFailedResponse batchFailed(OrderBatchException e) {
+        return new BatchFailedResponse(e.getMessage(), e.getCommittedOrderIds().size(), e.getCommittedOrderIds());
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class BatchFailedResponse {
+        private String message;
+        private int committedCount;
+        private List<Long> committedOrderIds;
+    }
+
+    @Data
+    static class CreateOrdersRequest {
+        @NotEmpty
+        @Valid
+        private List<CreateOrderRequest> orders;
+    }
+
+    @Data
+    static class CreateOrderRequest {
+        @NotNull
+        private Long memberId;
+        @NotEmpty
+        @Valid
+        private List<CreateOrderLineRequest> lines;
+    }
+
+    @Data
+    static class CreateOrderLineRequest {
+        @NotNull
+        private Long itemId;
+        @Positive
+        private int count;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CreateOrdersResponse {
+        private int count;
+        private List<Long> orderIds;
+    }
+
+    /**
+     * 전체 주문 export (NDJSON)
+     * - V2~V6 는 모두 결과 List 를 힙에 만든 뒤 직렬화하기 때문에, 전체 export 에 쓰면 데이터가 많을수록 OOM 위험이 있다.
+     * - forward-only 커서로 읽으면서 주문 하나씩 바로 응답 스트림에 쓴다. (메모리 사용량 일정)
+     */
+    @GetMapping("/api/orders/export.ndjson")
+    public void exportOrders(HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        orderExportService.exportNdjson(response.getOutputStream());
     }
 }
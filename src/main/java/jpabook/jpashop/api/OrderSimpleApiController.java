@@ -5,13 +5,21 @@ import jpabook.jpashop.repository.OrderRepository;
 import jpabook.jpashop.repository.OrderSearch;
 import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
 import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryRepository;
+import jpabook.jpashop.service.query.OrderSimpleQueryService;
+import jpabook.jpashop.web.ApiExecutor;
+import jpabook.jpashop.web.ConditionalGet;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
+import static jpabook.jpashop.change.ChangeTable.*;
+
 /** *
  * xToOne(ManyToOne, OneToOne) 관계 최적화 * Order
  * Order -> Member
@@ -23,20 +31,20 @@ import java.util.stream.Collectors;
 public class OrderSimpleApiController {
     private final OrderRepository orderRepository;
     private final OrderSimpleQueryRepository orderSimpleQueryRepository;
+    private final OrderSimpleQueryService orderSimpleQueryService;
+    private final ApiExecutor apiExecutor; // 비동기 실행 + DB 동시 사용 제한
+    private final ConditionalGet conditionalGet; // 조건부 GET (ETag)
 
     /**
      * V1. 엔티티 직접 노출 => 안좋다.
      * - Hibernate5Module 모듈 등록, LAZY=null 처리
      * - 양방향 관계 문제 발생 -> @JsonIgnore
+     * - API 경로는 OSIV 가 꺼져 있으므로 Lazy 강제 초기화는 OrderSimpleQueryService 에서 (트랜잭션 안)
+     * - 검색 조건과 페이징은 쿼리 파라미터로 (OrderSearch: page, size 기본 20 최대 1000, afterId 키셋)
      */
     @GetMapping("/api/v1/simple-orders")
-    public List<Order> ordersV1() {
-        List<Order> all = orderRepository.findAllByString(new OrderSearch());
-        for (Order order : all) {
-            order.getMember().getName(); //Lazy 강제 초기화
-            order.getDelivery().getAddress(); //Lazy 강제 초기환
-        }
-        return all;
+    public CompletableFuture<List<Order>> ordersV1(@ModelAttribute OrderSearch orderSearch) {
+        return apiExecutor.supply(() -> orderSimpleQueryService.ordersV1(orderSearch));
     }
 
     /**
@@ -46,14 +54,14 @@ public class OrderSimpleApiController {
      *      order 조회 1번 (order 조회 결과 수가 N이 된다.)
      *      order -> member 지연 로딩 조회 N 번
      *      order -> delivery 지연 로딩 조회 N 번
+     * - 검색 조건과 페이징은 V1 과 같다. (OrderSearch)
      */
     @GetMapping("/api/v2/simple-orders")
-    public List<OrderSimpleQueryDto> ordersV2() {
-        List<Order> orders = orderRepository.findAllByString(new OrderSearch());
-        List<OrderSimpleQueryDto> result = orders.stream()
-                .map(o -> new OrderSimpleQueryDto(o))
-                .collect(Collectors.toList());
-        return result;
+    public CompletableFuture<List<OrderSimpleQueryDto>> ordersV2(@ModelAttribute OrderSearch orderSearch, WebRequest request) {
+        if (conditionalGet.notModified(request, ORDERS, MEMBERS)) {
+            return null; // 304
+        }
+        return apiExecutor.supply(() -> orderSimpleQueryService.ordersV2(orderSearch));
     }
 
     /**
@@ -64,12 +72,16 @@ public class OrderSimpleApiController {
     // 추천: 항상 지연 로딩을 기본으로 하고, 성능 최적화가 필요한 경우에는 페치 조인(fetch join)을 사용해라!
     // 페치 조인으로 order -> member , order -> delivery 는 이미 조회 된 상태 이므로 지연로딩X
     @GetMapping("/api/v3/simple-orders")
-    public List<OrderSimpleQueryDto> ordersV3() {
-        List<Order> orders = orderRepository.findAllWithMemberRepository();
-        List<OrderSimpleQueryDto> result = orders.stream()
-                .map(o -> new OrderSimpleQueryDto(o))
-                .collect(Collectors.toList());
-        return result;
+    public CompletableFuture<List<OrderSimpleQueryDto>> ordersV3(WebRequest request) {
+        if (conditionalGet.notModified(request, ORDERS, MEMBERS)) {
+            return null; // 304
+        }
+        return apiExecutor.supply(() -> {
+            List<Order> orders = orderRepository.findAllWithMemberRepository();
+            return orders.stream()
+                    .map(o -> new OrderSimpleQueryDto(o))
+                    .collect(Collectors.toList());
+        });
     }
 
 
@@ -80,8 +92,11 @@ public class OrderSimpleApiController {
      */
     // 비추 (성능은 좋음)
     @GetMapping("/api/v4/simple-orders")
-    public List<OrderSimpleQueryDto> ordersV4() {
-        return orderSimpleQueryRepository.findOrderDtos();
+    public CompletableFuture<List<OrderSimpleQueryDto>> ordersV4(WebRequest request) {
+        if (conditionalGet.notModified(request, ORDERS, MEMBERS)) {
+            return null; // 304
+        }
+        return apiExecutor.supply(orderSimpleQueryRepository::findOrderDtos);
     }
 
     /**
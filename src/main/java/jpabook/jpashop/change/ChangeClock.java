@@ -0,0 +1,19 @@
+package jpabook.jpashop.change;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 변경 시각 (epoch millis) - 이 서버 안에서는 부를 때마다 커진다. (같은 밀리초면 1 씩 더한다)
+ * - 엔티티의 modified_at 과 ChangeTracker 의 로컬 커밋 표시에 쓴다.
+ * - 서버끼리는 시계가 맞다고(NTP) 가정한다. 시계가 늦은 서버의 변경은 max(modified_at) 을 올리지 못할 수 있다.
+ */
+public final class ChangeClock {
+    private static final AtomicLong last = new AtomicLong();
+
+    private ChangeClock() {
+    }
+
+    public static long next() {
+        return last.updateAndGet(prev -> Math.max(prev + 1, System.currentTimeMillis()));
+    }
+}
@@ -0,0 +1,22 @@
+package jpabook.jpashop.change;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+
+@Repository
+@RequiredArgsConstructor
+public class ChangeStampRepository {
+    private final EntityManager em;
+
+    /**
+     * 묶음의 마지막 변경 시각 = max(modified_at), 없으면 0
+     * - modified_at 인덱스의 끝 값만 읽으므로 테이블 크기와 상관없다. (추가/수정이 있으면 커진다)
+     */
+    public long findLastModified(ChangeTable table) {
+        Long lastModified = em.createQuery("select max(e.modifiedAt) from " + table.getEntity() + " e", Long.class)
+                .getSingleResult();
+        return lastModified == null ? 0 : lastModified;
+    }
+}
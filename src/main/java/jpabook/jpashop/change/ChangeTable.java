@@ -0,0 +1,26 @@
+package jpabook.jpashop.change;
+
+/**
+ * 변경 버전을 따로 두는 데이터 묶음 (ETag 의 한 부분)
+ */
+public enum ChangeTable {
+    ITEMS("i", "Item"),
+    MEMBERS("m", "Member"),
+    ORDERS("o", "Order");
+
+    private final String tag; // ETag 에 쓰는 짧은 이름
+    private final String entity; // 버전을 계산하는 엔티티 (ChangeStampRepository)
+
+    ChangeTable(String tag, String entity) {
+        this.tag = tag;
+        this.entity = entity;
+    }
+
+    String getTag() {
+        return tag;
+    }
+
+    String getEntity() {
+        return entity;
+    }
+}
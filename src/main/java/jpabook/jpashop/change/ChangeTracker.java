@@ -0,0 +1,139 @@
+package jpabook.jpashop.change;
+
+import jpabook.jpashop.datasource.DbConcurrencyLimiter;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 데이터 변경 버전 (HTTP 조건부 GET 용)
+ * - 묶음별 버전은 마지막 변경 시각이다. 엔티티가 저장/수정될 때 modified_at 을 채우고(ChangeClock),
+ *   max(modified_at) 을 인덱스로 읽는다. (ChangeStampRepository) 쓰기 트랜잭션이 같은 행을 UPDATE 하며 줄 서는 일이 없다.
+ * - DB 값은 refresh-millis 동안 메모리에 두고 읽는다. 읽을 때는 요청 스레드에서도 DbConcurrencyLimiter 를 거친다.
+ * - 이 서버에서 커밋한 변경은(markChanged) DB 를 다시 읽지 않고, 커밋 후의 ChangeClock 값을 메모리에 올려둔다.
+ *   버전은 max(DB 값, 메모리 값)이므로 바로 바뀌고, 나중에 DB 값을 다시 읽어도 되돌아가지 않는다.
+ *   다른 서버의 변경은 최대 refresh-millis 늦게 보인다.
+ * - 행 삭제는 max(modified_at) 을 바꾸지 않는다. (지금은 회원/상품/주문을 지우는 기능이 없다)
+ */
+@Component
+public class ChangeTracker {
+    private final ChangeStampRepository changeStampRepository;
+    private final DbConcurrencyLimiter dbConcurrencyLimiter;
+    private final TransactionTemplate readTemplate;
+    private final long refreshNanos;
+
+    private final Map<ChangeTable, Loaded> loaded = new ConcurrentHashMap<>();
+    private final Map<ChangeTable, AtomicLong> localChanges = new EnumMap<>(ChangeTable.class);
+
+    public ChangeTracker(ChangeStampRepository changeStampRepository,
+                         DbConcurrencyLimiter dbConcurrencyLimiter,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${jpashop.http.etag.refresh-millis:1000}") long refreshMillis) {
+        this.changeStampRepository = changeStampRepository;
+        this.dbConcurrencyLimiter = dbConcurrencyLimiter;
+        this.readTemplate = new TransactionTemplate(transactionManager);
+        this.readTemplate.setReadOnly(true);
+        this.refreshNanos = refreshMillis * 1_000_000L;
+        for (ChangeTable table : ChangeTable.values()) {
+            localChanges.put(table, new AtomicLong());
+        }
+    }
+
+    /**
+     * 현재 트랜잭션에서 tables 가 바뀌었음을 기록 -> 커밋 후 이 서버의 버전을 올린다. (트랜잭션 밖이면 바로)
+     */
+    public void markChanged(ChangeTable... tables) {
+        if (tables.length == 0) {
+            throw new IllegalArgumentException("바뀐 묶음(ChangeTable)을 하나 이상 지정해야 합니다.");
+        }
+        Set<ChangeTable> changed = EnumSet.copyOf(Arrays.asList(tables));
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            advance(changed);
+            return;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof AdvanceAfterCommit) {
+                ((AdvanceAfterCommit) synchronization).tables.addAll(changed);
+                return;
+            }
+        }
+        TransactionSynchronizationManager.registerSynchronization(new AdvanceAfterCommit(changed));
+    }
+
+    /**
+     * tables 의 현재 버전 (ETag, Last-Modified)
+     */
+    public Snapshot snapshot(ChangeTable... tables) {
+        StringBuilder etag = new StringBuilder("\"");
+        long lastModified = -1;
+        for (ChangeTable table : tables) {
+            long version = Math.max(lastModifiedInDb(table), localChanges.get(table).get());
+            if (etag.length() > 1) {
+                etag.append('.');
+            }
+            etag.append(table.getTag()).append(Long.toString(version, 36));
+            if (version > 0) {
+                lastModified = Math.max(lastModified, version);
+            }
+        }
+        return new Snapshot(etag.append('"').toString(), lastModified);
+    }
+
+    private long lastModifiedInDb(ChangeTable table) {
+        Loaded cached = loaded.get(table);
+        long now = System.nanoTime();
+        if (cached != null && now - cached.loadedAt < refreshNanos) {
+            return cached.lastModified;
+        }
+        long lastModified = dbConcurrencyLimiter.call(() ->
+                readTemplate.execute(status -> changeStampRepository.findLastModified(table)));
+        loaded.put(table, new Loaded(lastModified, now));
+        return lastModified;
+    }
+
+    // 커밋 후의 ChangeClock 값은 이 트랜잭션이 쓴 modified_at 보다 크다.
+    private void advance(Set<ChangeTable> tables) {
+        for (ChangeTable table : tables) {
+            localChanges.get(table).accumulateAndGet(ChangeClock.next(), Math::max);
+        }
+    }
+
+    private class AdvanceAfterCommit implements TransactionSynchronization {
+        private final Set<ChangeTable> tables;
+
+        AdvanceAfterCommit(Set<ChangeTable> tables) {
+            this.tables = tables;
+        }
+
+        @Override
+        public void afterCommit() {
+            advance(tables);
+        }
+    }
+
+    @AllArgsConstructor
+    private static class Loaded {
+        private final long lastModified; // epoch millis
+        private final long loadedAt; // nanoTime
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Snapshot {
+        private final String etag;
+        private final long lastModified; // epoch millis, -1 이면 모름
+    }
+}
@@ -0,0 +1,31 @@
+package jpabook.jpashop.config;
+
+import jpabook.jpashop.web.ApiTaskDecorator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * 비동기 API 작업 스레드 풀 (ApiExecutor)
+ * - 작업은 대부분 DB 를 기다리므로 스레드는 DB 동시 사용 한도(커넥션 풀)보다 조금 많으면 충분하다.
+ *   나머지 요청은 스레드 없이 대기열에서 기다린다. (요청 하나당 스레드 스택을 잡지 않음)
+ * - 대기열까지 가득 차면 거절 -> 503 (ServerBusyException)
+ */
+@Configuration
+public class ApiExecutorConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolTaskExecutor apiTaskExecutor(
+            @Value("${jpashop.api.async.threads:16}") int threads,
+            @Value("${jpashop.api.async.queue-capacity:2000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("api-");
+        executor.setTaskDecorator(new ApiTaskDecorator());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+}
@@ -0,0 +1,26 @@
+package jpabook.jpashop.config;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.jcache.JCacheCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 2차 캐시 설정
+ * - Hibernate 2차 캐시가 스프링과 같은 JCache CacheManager(ehcache.xml)를 사용하게 한다.
+ * - 그래서 스프링 부트 캐시 메트릭이 region 별로 노출된다.
+ *      cache.gets (result=hit/miss), cache.puts, cache.evictions, cache.removals (cache=item, member ...)
+ * - 엔티티 변경(ItemService.saveItem/updateItem, MemberService.update)은 Hibernate 가 커밋 시점에 캐시에 반영하고,
+ *   쿼리 캐시는 테이블 변경 시각(default-update-timestamps-region)으로 자동 무효화된다.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateSecondLevelCacheCustomizer(JCacheCacheManager cacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, cacheManager.getCacheManager());
+    }
+}
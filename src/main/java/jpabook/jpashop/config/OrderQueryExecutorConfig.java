@@ -0,0 +1,45 @@
+package jpabook.jpashop.config;
+
+import jpabook.jpashop.web.ApiTaskDecorator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * 대량 주문 조회시 orderItems 를 나눠서 동시에 조회하는 전용 스레드 풀 (OrderQueryRepository)
+ * - 스레드마다 커넥션을 하나씩 쓰므로, 이 풀 전체가 동시에 쓰는 커넥션은 스레드 수만큼이다. (요청 수와 상관없음)
+ * - 스레드 수는 커넥션 풀에서 API 몫과 백그라운드 몫(1)을 빼고 남는 만큼이다. 어느 경우든 커넥션 풀의 절반까지.
+ *   API 몫(jpashop.api.db-permits)을 정했으면 풀 크기 - API 몫 - 1, 0(자동)이면 남는 풀을 API 와 반씩 나눈다.
+ *   (API 몫이 자동이면 DbConcurrencyLimiter 가 풀 크기에서 이 스레드 수를 뺀 만큼으로 잡는다)
+ * - 작업 스레드에도 요청의 ThreadLocal 상태(SQL 통계, read-your-writes 고정)를 넘긴다. (ApiTaskDecorator)
+ * - 대기열이 없다. 남는 스레드가 없으면 작업을 받지 않고(RejectedExecutionException),
+ *   호출한 쪽이 자기 트랜잭션의 커넥션으로 직접 조회한다. (호출한 스레드가 커넥션을 하나 더 잡지 않도록)
+ */
+@Configuration
+public class OrderQueryExecutorConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolTaskExecutor orderQueryExecutor(
+            @Value("${jpashop.order-query.parallelism:0}") int parallelism,
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+            @Value("${jpashop.api.db-permits:0}") int dbPermits) {
+        int threads = parallelism > 0 ? parallelism : defaultThreads(poolSize, dbPermits);
+        threads = Math.max(1, Math.min(threads, poolSize / 2));
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(0); // 대기열 없음 -> 바로 실행하거나 거절
+        executor.setThreadNamePrefix("order-query-");
+        executor.setTaskDecorator(new ApiTaskDecorator());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+
+    // 커넥션 풀에서 API 몫과 백그라운드 몫(1)을 빼고 남는 커넥션 수
+    private static int defaultThreads(int poolSize, int dbPermits) {
+        int headroom = poolSize - 1;
+        return dbPermits > 0 ? headroom - dbPermits : headroom / 2;
+    }
+}
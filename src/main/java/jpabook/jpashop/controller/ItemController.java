@@ -1,7 +1,8 @@
 package jpabook.jpashop.controller;
 
 import jpabook.jpashop.domain.item.Book;
-import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.ItemListDto;
+import jpabook.jpashop.repository.KeysetPage;
 import jpabook.jpashop.service.ItemService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
@@ -10,12 +11,13 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
-
-import java.util.List;
+import org.springframework.web.bind.annotation.RequestParam;
 
 @Controller
 @RequiredArgsConstructor
 public class ItemController {
+    private static final int PAGE_SIZE = 20;
+
     private final ItemService itemService;
 
     @GetMapping("/items/new")
@@ -37,10 +39,14 @@ public class ItemController {
         return "redirect:/items";
     }
 
+    /**
+     * 상품 목록: 한 페이지씩 DTO 로 조회 (after = 이전 페이지의 마지막 상품 id)
+     */
     @GetMapping("/items")
-    public String list(Model model) {
-        List<Item> items = itemService.findItems();
-        model.addAttribute("items", items);
+    public String list(@RequestParam(value = "after", required = false) Long after, Model model) {
+        KeysetPage<ItemListDto> page = itemService.findItemPage(after, PAGE_SIZE);
+        model.addAttribute("items", page.getContent());
+        model.addAttribute("page", page);
         return "items/itemList";
     }
 
@@ -2,6 +2,8 @@ package jpabook.jpashop.controller;
 
 import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.KeysetPage;
+import jpabook.jpashop.repository.MemberListDto;
 import jpabook.jpashop.service.MemberService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
@@ -9,13 +11,15 @@ import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import javax.validation.Valid;
-import java.util.List;
 
 @Controller
 @RequiredArgsConstructor
 public class MemberController {
+    private static final int PAGE_SIZE = 20;
+
     private final MemberService memberService;
 
     @GetMapping("/members/new")
@@ -40,10 +44,14 @@ public class MemberController {
         return "redirect:/";
     }
 
+    /**
+     * 회원 목록: 한 페이지씩 DTO 로 조회 (after = 이전 페이지의 마지막 회원 id)
+     */
     @GetMapping("/members")
-    public String list(Model model) {
-        List<Member> members = memberService.findMembers();
-        model.addAttribute("members", members);
+    public String list(@RequestParam(value = "after", required = false) Long after, Model model) {
+        KeysetPage<MemberListDto> page = memberService.findMemberPage(after, PAGE_SIZE);
+        model.addAttribute("members", page.getContent());
+        model.addAttribute("page", page);
         return "members/memberList";
     }
 }
@@ -1,34 +1,26 @@
 package jpabook.jpashop.controller;
 
-import jpabook.jpashop.domain.Member;
-import jpabook.jpashop.domain.Order;
-import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.OrderSummary;
+import jpabook.jpashop.repository.KeysetPage;
 import jpabook.jpashop.repository.OrderSearch;
-import jpabook.jpashop.service.ItemService;
-import jpabook.jpashop.service.MemberService;
 import jpabook.jpashop.service.OrderService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @Controller
 @RequiredArgsConstructor
 public class OrderController {
+    private static final int PAGE_SIZE = 20;
+
     private final OrderService orderService;
-    private final MemberService memberService;
-    private final ItemService itemService;
 
+    /**
+     * 회원/상품 선택은 화면에서 검색어로 조회한다. (/api/lookup/members, /api/lookup/items)
+     */
     @GetMapping("/order")
-    public String createForm(Model model) {
-        List<Member> members = memberService.findMembers();
-        List<Item> items = itemService.findItems();
-
-        model.addAttribute("members", members);
-        model.addAttribute("items", items);
-
+    public String createForm() {
         return "order/orderForm";
     }
 
@@ -40,8 +32,9 @@ public class OrderController {
 
     @GetMapping("/orders")
     public String orderList(@ModelAttribute("orderSearch") OrderSearch orderSearch, Model model) {
-        List<Order> orders = orderService.findOrders(orderSearch);
-        model.addAttribute("orders", orders);
+        KeysetPage<OrderSummary> page = orderService.findOrderSummaryPage(orderSearch, PAGE_SIZE);
+        model.addAttribute("orders", page.getContent());
+        model.addAttribute("page", page);
 
         return "order/orderList";
     }
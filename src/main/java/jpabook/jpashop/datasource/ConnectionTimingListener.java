@@ -0,0 +1,114 @@
+package jpabook.jpashop.datasource;
+
+import com.p6spy.engine.common.ConnectionInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jpabook.jpashop.sql.SqlStats;
+import jpabook.jpashop.sql.SqlStatsHolder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 커넥션 획득/점유 시간을 엔드포인트, 서비스 메서드별로 기록 (p6spy 이벤트)
+ *      jpashop.db.connection.acquire : getConnection() 대기 시간 (풀이 모자라면 길어진다)
+ *      jpashop.db.connection.hold    : 커넥션을 받은 뒤 close (풀 반환) 까지 (OSIV 면 요청 끝까지)
+ *      tag endpoint = /api/v2/orders 같은 URI 패턴 (요청 밖이면 none)
+ *      tag service  = 커넥션을 처음 받은 서비스 메서드 (없으면 none)
+ * - 풀 전체 값(active, idle, pending, 획득 시간)은 hikaricp.connections.* 메트릭 (스프링 부트 자동 등록)
+ */
+@Component
+public class ConnectionTimingListener extends SimpleJdbcEventListener {
+    private static final String NONE = "none";
+
+    private final MeterRegistry meterRegistry;
+    private final boolean histogram;
+    private final ThreadLocal<Long> acquireStartedAt = new ThreadLocal<>();
+    private final Map<ConnectionInformation, Holding> holdings = new ConcurrentHashMap<>();
+
+    public ConnectionTimingListener(MeterRegistry meterRegistry,
+                                    @Value("${jpashop.datasource.metrics.histogram:true}") boolean histogram) {
+        this.meterRegistry = meterRegistry;
+        this.histogram = histogram;
+    }
+
+    @Override
+    public void onBeforeGetConnection(ConnectionInformation connectionInformation) {
+        acquireStartedAt.set(System.nanoTime());
+    }
+
+    @Override
+    public void onAfterGetConnection(ConnectionInformation connectionInformation, SQLException e) {
+        Long startedAt = acquireStartedAt.get();
+        acquireStartedAt.remove();
+        long now = System.nanoTime();
+
+        String endpoint = currentEndpoint();
+        String service = currentService();
+        if (startedAt != null) {
+            timer("jpashop.db.connection.acquire", endpoint, service, e == null)
+                    .record(now - startedAt, TimeUnit.NANOSECONDS);
+        }
+        if (e == null) {
+            holdings.put(connectionInformation, new Holding(now, endpoint, service));
+        }
+    }
+
+    @Override
+    public void onAfterConnectionClose(ConnectionInformation connectionInformation, SQLException e) {
+        Holding holding = holdings.remove(connectionInformation);
+        if (holding != null) {
+            timer("jpashop.db.connection.hold", holding.endpoint, holding.service, true)
+                    .record(System.nanoTime() - holding.startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(String name, String endpoint, String service, boolean success) {
+        return Timer.builder(name)
+                .tags("endpoint", endpoint, "service", service, "outcome", success ? "success" : "error")
+                .publishPercentileHistogram(histogram)
+                .register(meterRegistry);
+    }
+
+    // 비동기 API 작업 스레드도 RequestContextHolder 를 넘겨받는다. (ApiTaskDecorator)
+    private static String currentEndpoint() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes) {
+            Object pattern = ((ServletRequestAttributes) attributes).getRequest()
+                    .getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            if (pattern != null) {
+                return pattern.toString();
+            }
+        }
+        return NONE;
+    }
+
+    private static String currentService() {
+        SqlStats innermost = SqlStatsHolder.innermost();
+        if (innermost == null || "request".equals(innermost.getName())) { // 요청 구간만 있음 (SqlStatsFilter)
+            return NONE;
+        }
+        return innermost.getName();
+    }
+
+    private static class Holding {
+        private final long startedAt;
+        private final String endpoint;
+        private final String service;
+
+        private Holding(long startedAt, String endpoint, String service) {
+            this.startedAt = startedAt;
+            this.endpoint = endpoint;
+            this.service = service;
+        }
+    }
+}
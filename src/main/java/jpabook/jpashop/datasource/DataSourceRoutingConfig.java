@@ -0,0 +1,85 @@
+package jpabook.jpashop.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * primary/replica 라우팅 (jpashop.datasource.routing.enabled=true 일때만)
+ * - primary 는 spring.datasource.*, 커넥션 풀 설정은 primary/replica 모두 spring.datasource.hikari.* 를 따른다.
+ * - DataSource 빈 = LazyConnectionDataSourceProxy(ReplicaRoutingDataSource)
+ *   (p6spy 가 두 번 감싸지 않도록 replicaRoutingDataSource 는 decorator.datasource.exclude-beans 에 넣어야 한다)
+ * - Hibernate 가 트랜잭션이 끝날 때마다 커넥션을 반납해야, 다음 트랜잭션이 다시 라우팅된다. (OSIV 사용시에도)
+ */
+@Configuration
+@ConditionalOnProperty(name = "jpashop.datasource.routing.enabled", havingValue = "true")
+@EnableConfigurationProperties(DataSourceRoutingProperties.class)
+public class DataSourceRoutingConfig {
+
+    @Bean(destroyMethod = "close")
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties dataSourceProperties,
+                                                             DataSourceRoutingProperties routing,
+                                                             Environment environment,
+                                                             ObjectProvider<MeterRegistry> meterRegistry) {
+        HikariDataSource primary = createPool("primary", dataSourceProperties, environment, meterRegistry);
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        int index = 1;
+        for (DataSourceRoutingProperties.Replica replica : routing.getReplicas()) {
+            String name = StringUtils.hasText(replica.getName()) ? replica.getName() : "replica-" + index;
+            HikariDataSource pool = createPool(name, dataSourceProperties, environment, meterRegistry);
+            pool.setJdbcUrl(replica.getUrl());
+            if (replica.getUsername() != null) {
+                pool.setUsername(replica.getUsername());
+                pool.setPassword(replica.getPassword());
+            }
+            replicas.put(name, pool);
+            index++;
+        }
+
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, replicas, routing.getStrategy(),
+                routing.getMaxLagMillis(), routing.getLagQuery());
+        dataSource.startLagProbe(routing.getLagProbeIntervalMillis());
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer connectionHandlingCustomizer() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    private HikariDataSource createPool(String poolName, DataSourceProperties dataSourceProperties,
+                                        Environment environment, ObjectProvider<MeterRegistry> meterRegistry) {
+        HikariDataSource pool = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(poolName);
+        meterRegistry.ifAvailable(registry -> pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+        return pool;
+    }
+}
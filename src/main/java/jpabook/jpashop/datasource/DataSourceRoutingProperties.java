@@ -0,0 +1,36 @@
+package jpabook.jpashop.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * jpashop.datasource.routing.* (application.yml 참고)
+ */
+@Getter @Setter
+@ConfigurationProperties("jpashop.datasource.routing")
+public class DataSourceRoutingProperties {
+    private boolean enabled;
+    private ReplicaRoutingDataSource.Strategy strategy = ReplicaRoutingDataSource.Strategy.ROUND_ROBIN;
+    private List<Replica> replicas = new ArrayList<>();
+
+    // 복제 지연이 이보다 크면 그 replica 는 쓰지 않는다.
+    private long maxLagMillis = 1000;
+    private long lagProbeIntervalMillis = 1000;
+    // replica 에서 복제 지연(ms)을 숫자 하나로 돌려주는 SQL (DB 마다 다름, H2 로 흉내낼 때는 select 0)
+    private String lagQuery = "select 0";
+
+    // 쓰기 후 이 시간 동안은 같은 클라이언트의 읽기를 primary 로
+    private long readYourWritesMillis = 2000;
+
+    @Getter @Setter
+    public static class Replica {
+        private String name;
+        private String url;
+        private String username;
+        private String password;
+    }
+}
@@ -0,0 +1,83 @@
+package jpabook.jpashop.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jpabook.jpashop.exception.ServerBusyException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * API 요청이 DB 를 동시에 쓰는 수를 커넥션 풀 크기보다 작게 제한
+ * - 제한이 없으면 풀보다 많은 요청이 Hikari 의 connectionTimeout(기본 30초) 동안 커넥션을 기다리며 스레드를 붙잡는다.
+ * - 여기서 짧게(acquire-timeout) 기다리고 안 되면 바로 503 으로 돌려보내서, 밀려도 응답 시간이 무한정 늘어나지 않게 한다.
+ * - 요청 수를 세는 것이므로, 요청 밖에서 커넥션을 쓰는 몫은 풀에서 미리 뺀다. (jpashop.api.db-permits 가 0 이면 자동)
+ *   = 풀 크기 - 주문 조회 스레드 수(orderQueryExecutor, V5 나눠서 조회) - 1 (아웃박스 relay 등 백그라운드 작업)
+ */
+@Component
+public class DbConcurrencyLimiter {
+    private final Semaphore permits;
+    private final int maxPermits;
+    private final int reservedConnections;
+    private final long acquireTimeoutMillis;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Counter rejected;
+
+    public DbConcurrencyLimiter(MeterRegistry meterRegistry,
+                                @Qualifier("orderQueryExecutor") ThreadPoolTaskExecutor orderQueryExecutor,
+                                @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+                                @Value("${jpashop.api.db-permits:0}") int configuredPermits,
+                                @Value("${jpashop.api.db-acquire-timeout-millis:1000}") long acquireTimeoutMillis) {
+        this.reservedConnections = orderQueryExecutor.getMaxPoolSize() + 1;
+        int maxPermits = configuredPermits > 0 ? configuredPermits : Math.max(1, poolSize - reservedConnections);
+        this.permits = new Semaphore(maxPermits, true);
+        this.maxPermits = maxPermits;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+
+        Gauge.builder("jpashop.api.db.in_use", permits, p -> maxPermits - p.availablePermits()).register(meterRegistry);
+        Gauge.builder("jpashop.api.db.waiting", waiting, AtomicInteger::get).register(meterRegistry);
+        this.rejected = meterRegistry.counter("jpashop.api.db.rejected");
+    }
+
+    public <T> T call(Supplier<T> work) {
+        acquire();
+        try {
+            return work.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public int getMaxPermits() {
+        return maxPermits;
+    }
+
+    /**
+     * API 요청 몫에서 빼두는 커넥션 수 (주문 조회 스레드 + 백그라운드 작업)
+     */
+    public int getReservedConnections() {
+        return reservedConnections;
+    }
+
+    private void acquire() {
+        waiting.incrementAndGet();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                throw new ServerBusyException("DB 사용 요청이 많습니다. 잠시 후 다시 시도해주세요.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServerBusyException("DB 사용 대기 중 중단되었습니다.", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+}
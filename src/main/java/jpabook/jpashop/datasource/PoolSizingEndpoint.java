@@ -0,0 +1,201 @@
+package jpabook.jpashop.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 커넥션 풀 크기 추천 리포트 (GET /actuator/poolsizing)
+ * - 측정 구간: 애플리케이션 시작 또는 마지막 reset(POST /actuator/poolsizing) 이후. 부하를 주기 전에 reset 하고 부하 후에 조회한다.
+ * - 평균 동시 사용 커넥션 수 = 커넥션 점유 시간 합 / 구간 길이 (리틀의 법칙 L = λW)
+ * - 상한은 HikariCP 권장 공식 (코어 수 * 2 + 1). 이 서버의 코어 수로 계산하므로 DB 가 다른 서버면 DB 코어 수로 다시 본다.
+ *   동시 사용이 상한보다 많으면 풀을 늘려도 DB 가 더 빨라지지 않는다. -> 점유 시간(쿼리, OSIV)을 줄인다.
+ * - 점유 시간 중 SQL 실행 비율이 낮으면 커넥션을 잡은 채 다른 일(지연 로딩 사이 로직, 뷰 렌더링 등)을 하고 있다는 뜻
+ */
+@Component
+@Endpoint(id = "poolsizing")
+public class PoolSizingEndpoint {
+    private static final double HEADROOM = 2.0; // 순간 몰림 대비 평균의 2배
+    private static final int TOP_ENDPOINTS = 10;
+
+    private final MeterRegistry meterRegistry;
+    private final DbConcurrencyLimiter dbConcurrencyLimiter;
+    private volatile Baseline baseline;
+
+    public PoolSizingEndpoint(MeterRegistry meterRegistry, DbConcurrencyLimiter dbConcurrencyLimiter) {
+        this.meterRegistry = meterRegistry;
+        this.dbConcurrencyLimiter = dbConcurrencyLimiter;
+        this.baseline = capture();
+    }
+
+    @WriteOperation
+    public Map<String, Object> reset() {
+        baseline = capture();
+        return report();
+    }
+
+    @ReadOperation
+    public Map<String, Object> report() {
+        Baseline from = baseline;
+        Baseline now = capture();
+        double windowSeconds = Math.max((now.wallNanos - from.wallNanos) / 1e9, 0.001);
+        double holdSeconds = (now.totalHoldNanos() - from.totalHoldNanos()) / 1e9;
+        double sqlSeconds = (now.sqlNanos - from.sqlNanos) / 1e9;
+        long acquireCount = now.acquireCount - from.acquireCount;
+        double acquireMeanMillis = acquireCount == 0 ? 0 : (now.acquireNanos - from.acquireNanos) / 1e6 / acquireCount;
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        int formulaSize = cores * 2 + 1;
+        double averageInUse = holdSeconds / windowSeconds;
+        int loadSize = (int) Math.max(2, Math.ceil(averageInUse * HEADROOM));
+        int recommended = Math.min(loadSize, formulaSize);
+
+        List<Map<String, Object>> pools = pools();
+        long pending = 0;
+        int currentMax = 0;
+        for (Map<String, Object> pool : pools) {
+            pending += ((Number) pool.get("pending")).longValue();
+            currentMax = Math.max(currentMax, ((Number) pool.get("max")).intValue());
+        }
+
+        List<String> notes = new ArrayList<>();
+        if (pending > 0 || acquireMeanMillis > 10) {
+            notes.add("커넥션을 기다리는 요청이 있습니다. (pending=" + pending + ", 평균 획득 " + round(acquireMeanMillis) + "ms)");
+        }
+        if (holdSeconds > 0 && sqlSeconds / holdSeconds < 0.5) {
+            notes.add("커넥션 점유 시간 중 SQL 실행 비율이 " + Math.round(sqlSeconds / holdSeconds * 100)
+                    + "% 입니다. 풀을 늘리기 전에 점유 시간(OSIV, 트랜잭션 안의 다른 작업)을 줄이세요.");
+        }
+        if (loadSize > formulaSize) {
+            notes.add("평균 동시 사용(" + round(averageInUse) + ")이 코어 기준 상한(" + formulaSize
+                    + ")을 넘습니다. 풀을 늘려도 DB 처리량은 늘지 않습니다. 느린 쿼리와 점유 시간을 줄이세요.");
+        }
+        int recommendedPermits = Math.max(1, recommended - dbConcurrencyLimiter.getReservedConnections());
+        if (dbConcurrencyLimiter.getMaxPermits() != recommendedPermits) {
+            notes.add("풀 크기를 바꾸면 jpashop.api.db-permits 는 " + recommendedPermits + " 으로 맞추거나 0(자동)으로 두세요. (현재 "
+                    + dbConcurrencyLimiter.getMaxPermits() + ", 주문 조회/백그라운드 몫 " + dbConcurrencyLimiter.getReservedConnections() + ")");
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("windowSeconds", round(windowSeconds));
+        report.put("cores", cores);
+        report.put("pools", pools);
+        report.put("averageConnectionsInUse", round(averageInUse));
+        report.put("connectionHoldSeconds", round(holdSeconds));
+        report.put("sqlTimeShareOfHold", holdSeconds == 0 ? null : round(sqlSeconds / holdSeconds));
+        report.put("acquireMeanMillis", round(acquireMeanMillis));
+        report.put("formulaMaximumPoolSize", formulaSize);
+        report.put("loadMaximumPoolSize", loadSize);
+        report.put("currentMaximumPoolSize", currentMax);
+        report.put("recommendedMaximumPoolSize", recommended);
+        report.put("notes", notes);
+        report.put("topHolders", topHolders(from, now, holdSeconds));
+        return report;
+    }
+
+    private List<Map<String, Object>> pools() {
+        Map<String, Map<String, Object>> pools = new LinkedHashMap<>();
+        for (Gauge gauge : meterRegistry.find("hikaricp.connections.max").gauges()) {
+            String pool = gauge.getId().getTag("pool");
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("max", (int) gauge.value());
+            values.put("active", (int) gaugeValue("hikaricp.connections.active", pool));
+            values.put("idle", (int) gaugeValue("hikaricp.connections.idle", pool));
+            values.put("pending", (int) gaugeValue("hikaricp.connections.pending", pool));
+            Counter timeouts = meterRegistry.find("hikaricp.connections.timeout").tag("pool", pool).counter();
+            values.put("timeouts", timeouts == null ? 0 : (long) timeouts.count());
+            pools.put(pool, values);
+        }
+        List<Map<String, Object>> result = new ArrayList<>();
+        pools.forEach((name, values) -> {
+            Map<String, Object> pool = new LinkedHashMap<>();
+            pool.put("pool", name);
+            pool.putAll(values);
+            result.add(pool);
+        });
+        return result;
+    }
+
+    private double gaugeValue(String name, String pool) {
+        Gauge gauge = meterRegistry.find(name).tag("pool", pool).gauge();
+        return gauge == null ? 0 : gauge.value();
+    }
+
+    private List<Map<String, Object>> topHolders(Baseline from, Baseline now, double totalHoldSeconds) {
+        List<Map<String, Object>> holders = new ArrayList<>();
+        now.hold.forEach((key, nanosAndCount) -> {
+            long[] before = from.hold.getOrDefault(key, new long[2]);
+            long nanos = nanosAndCount[0] - before[0];
+            long count = nanosAndCount[1] - before[1];
+            if (count == 0) {
+                return;
+            }
+            String[] endpointAndService = key.split("\\|", 2);
+            Map<String, Object> holder = new LinkedHashMap<>();
+            holder.put("endpoint", endpointAndService[0]);
+            holder.put("service", endpointAndService[1]);
+            holder.put("connections", count);
+            holder.put("meanHoldMillis", round(nanos / 1e6 / count));
+            holder.put("shareOfHold", totalHoldSeconds == 0 ? 0.0 : round(nanos / 1e9 / totalHoldSeconds));
+            holders.add(holder);
+        });
+        holders.sort(Comparator.comparingDouble((Map<String, Object> h) -> (Double) h.get("shareOfHold")).reversed());
+        return holders.size() > TOP_ENDPOINTS ? holders.subList(0, TOP_ENDPOINTS) : holders;
+    }
+
+    private Baseline capture() {
+        Baseline baseline = new Baseline(System.nanoTime());
+        for (Timer timer : meterRegistry.find("jpashop.db.connection.hold").timers()) {
+            String key = timer.getId().getTag("endpoint") + "|" + timer.getId().getTag("service");
+            long[] nanosAndCount = baseline.hold.computeIfAbsent(key, k -> new long[2]);
+            nanosAndCount[0] += (long) timer.totalTime(TimeUnit.NANOSECONDS);
+            nanosAndCount[1] += timer.count();
+        }
+        for (Timer timer : meterRegistry.find("jpashop.db.connection.acquire").timers()) {
+            baseline.acquireNanos += (long) timer.totalTime(TimeUnit.NANOSECONDS);
+            baseline.acquireCount += timer.count();
+        }
+        // 요청 단위 SQL 시간 (서비스 단위는 요청 안에 겹치므로 제외)
+        for (Timer timer : meterRegistry.find("jpashop.sql.time").tag("scope", "request").timers()) {
+            baseline.sqlNanos += (long) timer.totalTime(TimeUnit.NANOSECONDS);
+        }
+        return baseline;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private static class Baseline {
+        private final long wallNanos;
+        private final Map<String, long[]> hold = new HashMap<>(); // endpoint|service -> {점유 시간 합, 횟수}
+        private long acquireNanos;
+        private long acquireCount;
+        private long sqlNanos;
+
+        private Baseline(long wallNanos) {
+            this.wallNanos = wallNanos;
+        }
+
+        private long totalHoldNanos() {
+            long total = 0;
+            for (long[] nanosAndCount : hold.values()) {
+                total += nanosAndCount[0];
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package jpabook.jpashop.datasource;
+
+/**
+ * read-your-writes: 쓰기 직후 일정 시간 동안 현재 스레드(요청)의 읽기를 primary 로 고정
+ * - 복제 지연 때문에 방금 만든 주문이 replica 에서 안 보이는 문제를 막는다.
+ * - 요청 사이에는 쿠키로 이어진다. (ReadYourWritesFilter)
+ */
+public final class PrimaryStickiness {
+    private static final ThreadLocal<Long> PINNED_UNTIL = new ThreadLocal<>();
+
+    private PrimaryStickiness() {
+    }
+
+    public static void pinUntil(long epochMillis) {
+        Long current = PINNED_UNTIL.get();
+        if (current == null || current < epochMillis) {
+            PINNED_UNTIL.set(epochMillis);
+        }
+    }
+
+    public static boolean isPinned() {
+        Long until = PINNED_UNTIL.get();
+        return until != null && System.currentTimeMillis() < until;
+    }
+
+    /**
+     * 다른 스레드로 넘겨줄 때 사용 (ApiTaskDecorator). 없으면 null
+     */
+    public static Long pinnedUntil() {
+        return PINNED_UNTIL.get();
+    }
+
+    public static void clear() {
+        PINNED_UNTIL.remove();
+    }
+}
@@ -0,0 +1,64 @@
+package jpabook.jpashop.datasource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 쓰기 후 read-your-writes 구간 시작 (라우팅을 켰을 때만 동작)
+ * - 커밋된 뒤부터 readYourWritesMillis 동안 현재 요청의 읽기는 primary 로 간다.
+ * - 같은 클라이언트의 다음 요청도 primary 로 가도록 쿠키에 만료 시각을 남긴다. (ReadYourWritesFilter 가 읽음)
+ */
+@Component
+public class ReadYourWrites {
+    static final String COOKIE_NAME = "jpashop-primary-until";
+
+    private final boolean enabled;
+    private final long windowMillis;
+
+    public ReadYourWrites(@Value("${jpashop.datasource.routing.enabled:false}") boolean enabled,
+                          @Value("${jpashop.datasource.routing.read-your-writes-millis:2000}") long windowMillis) {
+        this.enabled = enabled;
+        this.windowMillis = windowMillis;
+    }
+
+    public void markWritten() {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    pin();
+                }
+            });
+        } else {
+            pin();
+        }
+    }
+
+    private void pin() {
+        long until = System.currentTimeMillis() + windowMillis;
+        PrimaryStickiness.pinUntil(until);
+
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes) {
+            HttpServletResponse response = ((ServletRequestAttributes) attributes).getResponse();
+            if (response != null && !response.isCommitted()) {
+                Cookie cookie = new Cookie(COOKIE_NAME, Long.toString(until));
+                cookie.setPath("/");
+                cookie.setHttpOnly(true);
+                cookie.setMaxAge((int) Math.max(1, (windowMillis + 999) / 1000));
+                response.addCookie(cookie);
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package jpabook.jpashop.datasource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 쿠키에 남은 read-your-writes 만료 시각을 요청 스레드에 적용하고, 요청이 끝나면 지운다.
+ */
+@Component
+@ConditionalOnProperty(name = "jpashop.datasource.routing.enabled", havingValue = "true")
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    private final long windowMillis;
+
+    public ReadYourWritesFilter(@Value("${jpashop.datasource.routing.read-your-writes-millis:2000}") long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Cookie cookie = WebUtils.getCookie(request, ReadYourWrites.COOKIE_NAME);
+        if (cookie != null) {
+            try {
+                // 클라이언트가 보낸 값이므로 최대 windowMillis 까지만 인정
+                long until = Long.parseLong(cookie.getValue());
+                PrimaryStickiness.pinUntil(Math.min(until, System.currentTimeMillis() + windowMillis));
+            } catch (NumberFormatException ignored) {
+                // 잘못된 쿠키는 무시
+            }
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            PrimaryStickiness.clear();
+        }
+    }
+}
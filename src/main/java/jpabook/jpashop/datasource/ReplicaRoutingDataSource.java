@@ -0,0 +1,220 @@
+package jpabook.jpashop.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 읽기 전용 트랜잭션은 replica 로, 나머지는 primary 로 보내는 DataSource
+ * - @Transactional(readOnly = true) 인 트랜잭션만 replica 로 간다. (트랜잭션 밖, 쓰기 트랜잭션은 primary)
+ * - 트랜잭션 시작 시점에는 readOnly 여부가 아직 정해지지 않으므로, 반드시 LazyConnectionDataSourceProxy 로 감싸서
+ *   실제 SQL 을 실행할 때 커넥션을 얻도록 해야 한다. (DataSourceRoutingConfig)
+ * - replica 선택: ROUND_ROBIN 또는 LEAST_CONNECTIONS (지금 빌려간 커넥션 수가 가장 적은 replica)
+ * - probeLag() 로 replica 지연을 주기적으로 확인해서 maxLagMillis 를 넘거나 응답이 없는 replica 는 제외한다.
+ *   사용할 수 있는 replica 가 없으면 primary 로 읽는다.
+ * - 쓰기 직후에는 PrimaryStickiness 로 primary 에 고정된다. (read-your-writes)
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    public enum Strategy {
+        ROUND_ROBIN, LEAST_CONNECTIONS
+    }
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final Strategy strategy;
+    private final long maxLagMillis;
+    private final String lagQuery;
+    private final AtomicInteger next = new AtomicInteger();
+    private ScheduledExecutorService lagProbe;
+
+    /**
+     * @param replicas 이름 -> replica DataSource
+     * @param lagQuery replica 에서 실행해서 복제 지연(ms)을 숫자 하나로 돌려주는 SQL
+     */
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Strategy strategy,
+                                    long maxLagMillis, String lagQuery) {
+        this.primary = primary;
+        List<Replica> list = new ArrayList<>();
+        replicas.forEach((name, dataSource) -> list.add(new Replica(name, dataSource)));
+        this.replicas = Collections.unmodifiableList(list);
+        this.strategy = strategy;
+        this.maxLagMillis = maxLagMillis;
+        this.lagQuery = lagQuery;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Replica replica = route();
+        return replica == null ? primary.getConnection() : replica.getConnection(null, null);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Replica replica = route();
+        return replica == null ? primary.getConnection(username, password) : replica.getConnection(username, password);
+    }
+
+    /**
+     * 이번 커넥션을 줄 replica (primary 면 null)
+     */
+    Replica route() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || PrimaryStickiness.isPinned()) {
+            return null;
+        }
+        return select();
+    }
+
+    private Replica select() {
+        if (strategy == Strategy.LEAST_CONNECTIONS) {
+            Replica best = null;
+            for (Replica replica : replicas) {
+                if (replica.available && (best == null || replica.active.get() < best.active.get())) {
+                    best = replica;
+                }
+            }
+            return best;
+        }
+
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.available) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * replica 마다 lagQuery 를 실행해서 사용 가능 여부를 갱신한다. (DataSourceRoutingConfig 에서 주기적으로 호출)
+     */
+    public void probeLag() {
+        for (Replica replica : replicas) {
+            boolean available;
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(lagQuery)) {
+                long lag = rs.next() ? rs.getLong(1) : Long.MAX_VALUE;
+                replica.lagMillis = lag;
+                available = lag <= maxLagMillis;
+            } catch (SQLException | RuntimeException e) {
+                log.warn("replica lag probe failed. replica={}", replica.name, e);
+                replica.lagMillis = -1;
+                available = false;
+            }
+            if (replica.available != available) {
+                log.warn("replica {} is now {} (lag={}ms)", replica.name, available ? "available" : "excluded", replica.lagMillis);
+            }
+            replica.available = available;
+        }
+    }
+
+    public synchronized void startLagProbe(long intervalMillis) {
+        if (lagProbe != null || replicas.isEmpty()) {
+            return;
+        }
+        lagProbe = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replica-lag-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        lagProbe.scheduleWithFixedDelay(this::probeLag, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    @Override
+    public synchronized void close() throws Exception {
+        if (lagProbe != null) {
+            lagProbe.shutdownNow();
+        }
+        closeQuietly(primary);
+        for (Replica replica : replicas) {
+            closeQuietly(replica.dataSource);
+        }
+    }
+
+    private static void closeQuietly(DataSource dataSource) {
+        if (dataSource instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) dataSource).close();
+            } catch (Exception e) {
+                log.warn("failed to close datasource", e);
+            }
+        }
+    }
+
+    public static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private final AtomicInteger active = new AtomicInteger();
+        private volatile boolean available = true;
+        private volatile long lagMillis;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isAvailable() {
+            return available;
+        }
+
+        public long getLagMillis() {
+            return lagMillis;
+        }
+
+        public int getActiveConnections() {
+            return active.get();
+        }
+
+        /**
+         * 빌려간 커넥션 수를 세기 위해 close 를 가로채는 프록시로 감싼다.
+         */
+        private Connection getConnection(String username, String password) throws SQLException {
+            Connection target = username == null ? dataSource.getConnection() : dataSource.getConnection(username, password);
+            active.incrementAndGet();
+            AtomicInteger closed = new AtomicInteger();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if ("close".equals(method.getName()) && closed.getAndIncrement() == 0) {
+                            active.decrementAndGet();
+                        } else if ("unwrap".equals(method.getName()) || "isWrapperFor".equals(method.getName())) {
+                            if (((Class<?>) args[0]).isInstance(proxy)) {
+                                return "unwrap".equals(method.getName()) ? proxy : true;
+                            }
+                        }
+                        try {
+                            return method.invoke(target, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    });
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package jpabook.jpashop.domain;
 
 import jpabook.jpashop.domain.item.Item;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -10,6 +11,7 @@ import java.util.List;
 
 @Entity
 @Getter @Setter
+@Table(indexes = @Index(name = "idx_category_path", columnList = "path")) // 하위 트리 조회 (path like '/1/5/%')
 public class Category {
     @Id @GeneratedValue
     @Column(name = "category_id")
@@ -20,7 +22,8 @@ public class Category {
     @ManyToMany // 실전에서는 쓰지마라.
     @JoinTable(name = "category_item", // 가운데 끼는 테이블
         joinColumns = @JoinColumn(name = "category_id"),
-            inverseJoinColumns = @JoinColumn(name = "item_id")
+            inverseJoinColumns = @JoinColumn(name = "item_id"),
+            indexes = @Index(name = "idx_category_item_category", columnList = "category_id, item_id")
     )
     private List<Item> items = new ArrayList<>();
 
@@ -32,9 +35,56 @@ public class Category {
     @OneToMany(mappedBy = "parent")
     private List<Category> child = new ArrayList<>();
 
+    // 생성/이동마다 바뀐다. 서버마다 가진 트리 스냅샷이 DB 와 같은지 확인하는 데 쓴다. (CategoryTreeCache)
+    @Version
+    @Setter(AccessLevel.NONE)
+    private Long version;
+
+    // 조상 경로 (materialized path): 최상위는 "/", 1 의 자식은 "/1/", 1 > 5 의 자식은 "/1/5/"
+    // 하위 트리 전체를 재귀 없이 path like '{path}{id}/%' 쿼리 한 번으로 찾는다.
+    @Setter(AccessLevel.NONE)
+    private String path = "/";
+
     //-- 연관관계 매서드--//
     public void addChildCategory(Category child) {
         this.child.add(child);
         child.setParent(this);
+        if (id != null) {
+            child.path = getSubtreePath();
+        }
+    }
+
+    /**
+     * 부모 변경 (null 이면 최상위로). 자기 경로만 바꾸므로, 하위 카테고리 경로는 호출한 쪽에서 함께 바꾼다. (CategoryService.move)
+     */
+    public void moveTo(Category newParent) {
+        if (parent != null) {
+            parent.getChild().remove(this);
+        }
+        if (newParent == null) {
+            parent = null;
+            path = "/";
+        } else {
+            newParent.addChildCategory(this);
+        }
+    }
+
+    /**
+     * 하위 카테고리들의 path 앞부분 (자기 자신 포함 경로)
+     */
+    public String getSubtreePath() {
+        return path + id + "/";
+    }
+
+    // 부모를 먼저 저장하고 자식을 저장하면 부모 id 가 있으므로 여기서 경로가 정해진다.
+    @PrePersist
+    private void assignPath() {
+        if (parent == null) {
+            path = "/";
+        } else if (parent.getId() == null) {
+            throw new IllegalStateException("부모 카테고리를 먼저 저장해야 합니다.");
+        } else {
+            path = parent.getSubtreePath();
+        }
     }
 }
@@ -1,17 +1,33 @@
 package jpabook.jpashop.domain;
 
+import jpabook.jpashop.change.ChangeClock;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.OptimisticLock;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotEmpty;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 // 실무에서는 가급적 Getter는 열어두고, Setter는 꼭 필요한 경우에만 사용하는 것을 추천
 
 @Entity // 도메인 객체로 설정 (클래스명과 같음, 수정시에는 name 속성으로) -> @Table 생략됨.
 @Getter @Setter
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "member") // 2차 캐시
+@Table(
+        // 회원 이름 중복은 DB 가 막는다. (동시에 같은 이름으로 가입해도 하나만 성공, 유니크 인덱스로 이름 조회도 빨라짐)
+        uniqueConstraints = @UniqueConstraint(name = "uk_member_name", columnNames = "name"),
+        indexes = {
+                @Index(name = "idx_member_search_name", columnList = "search_name"), // 이름 앞부분 검색
+                @Index(name = "idx_member_modified_at", columnList = "modified_at")
+        }
+)
 public class Member {
     @Id @GeneratedValue // 기본키 설정
     @Column(name = "member_id") // @Entity 를 쓰면 생략 가능.
@@ -20,9 +36,22 @@ public class Member {
 //    @NotEmpty
     private String name;
 
+    // 검색용 이름 (앞뒤 공백 제거 + 소문자). 저장/수정시 name 으로부터 자동으로 채워진다.
+    @Column(name = "search_name")
+    @Setter(AccessLevel.NONE)
+    private String searchName;
+
     @Embedded // property 에 어노테이션 선언 / Embeddable 클래스를 Entity 에 맵핑하고 싶을 때 해당 어노테이션 사용
     private Address address;
 
+    @Version
+    private Long version;
+
+    // 마지막 저장/수정 시각 (ChangeClock), 조회 API ETag 용 - max(modified_at) 을 인덱스로 읽는다. (ChangeTracker)
+    @Column(name = "modified_at")
+    @Setter(AccessLevel.NONE)
+    private Long modifiedAt;
+
     // 일대다 (단방향) => 아래중에 한쪽에만 설정
     // @ManyToOne
     //  - 프로퍼티가 하나일 때, 해당 어노테이션을 선언
@@ -41,6 +70,22 @@ public class Member {
     // 실무에서 모든 연관관계는 지연로딩( LAZY )으로 설정해야 한다.
     // @OneToOne, @ManyToOne 관계는 기본이 즉시로딩이므로 직접 지연로딩으로 설정해야 한 다.
 
+    // 주문이 추가될 때마다 회원 version 이 올라가면, 같은 회원의 동시 주문끼리 충돌하므로 제외
+    @OptimisticLock(excluded = true)
     @OneToMany(mappedBy = "member")
     private List<Order> orders = new ArrayList<>();
+
+    @PrePersist
+    @PreUpdate
+    private void beforeSave() {
+        this.searchName = normalizeName(name);
+        this.modifiedAt = ChangeClock.next();
+    }
+
+    /**
+     * 이름 검색용 정규화 (검색어도 같은 규칙으로 정규화해서 비교한다)
+     */
+    public static String normalizeName(String name) {
+        return name == null ? null : name.trim().toLowerCase(Locale.ROOT);
+    }
 }
@@ -1,5 +1,6 @@
 package jpabook.jpashop.domain;
 
+import jpabook.jpashop.change.ChangeClock;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -11,11 +12,14 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = @Index(name = "idx_orders_modified_at", columnList = "modified_at"))
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class Order {
-    @Id @GeneratedValue
+    // allocationSize: 시퀀스를 한번 호출할 때 50개씩 미리 할당받아 INSERT 마다 시퀀스를 호출하지 않는다.
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq_generator")
+    @SequenceGenerator(name = "orders_seq_generator", sequenceName = "orders_seq", allocationSize = 50)
     @Column(name = "order_id")
     private Long id;
 
@@ -36,6 +40,14 @@ public class Order {
     @Enumerated(EnumType.STRING)
     private OrderStatus status; // 주문 상태 [ORDER, CANCEL]
 
+    @Version // 낙관적 락: 동시에 수정하면 나중에 커밋하는 쪽이 OptimisticLockException
+    private Long version;
+
+    // 마지막 저장/수정 시각 (ChangeClock), 조회 API ETag 용 - max(modified_at) 을 인덱스로 읽는다. (ChangeTracker)
+    @Column(name = "modified_at")
+    @Setter(AccessLevel.NONE)
+    private Long modifiedAt;
+
 
     // --- 연관관계 메서드-- //
     public void setMember(Member member) {
@@ -69,16 +81,18 @@ public class Order {
 
     // -- 비지니스 로직 -- //
     // 주문 취소
+    // 상태만 바꾸고 재고는 원복하지 않는다. 재고 원복은 OrderService.cancelOrder 에서 StockService 로 처리한다. (원자적 UPDATE)
+    // 엔티티의 재고 값을 직접 더하면 dirty checking 이 다른 주문의 차감분을 덮어쓰기 때문.
+    // -> 주문 취소는 반드시 OrderService.cancelOrder 를 통해서 한다.
     public void cancel() {
         if (delivery.getStatus() == DeliveryStatus.COMP) {
             throw new IllegalStateException("이미 배송 완료된 상품은 취소가 불가능합니다.");
         }
+        if (status == OrderStatus.CANCEL) {
+            throw new IllegalStateException("이미 취소된 주문입니다."); // 재고가 두 번 원복되지 않도록
+        }
 
         setStatus(OrderStatus.CANCEL);
-
-        for (OrderItem orderItem : orderItems) {
-            orderItem.cancel();
-        }
     }
 
     // -- 조회 로직 -- //
@@ -90,4 +104,10 @@ public class Order {
         }
         return totalPrice;
     }
+
+    @PrePersist
+    @PreUpdate
+    private void touch() {
+        this.modifiedAt = ChangeClock.next();
+    }
 }
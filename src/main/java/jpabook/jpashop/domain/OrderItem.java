@@ -11,9 +11,11 @@ import javax.persistence.*;
 @Entity
 @Getter
 @Setter
-@NoArgsConstructor(access = AccessLevel.PROTECTED) // 다른 곳에서 new OrderItem 형식으로 불러오지 못하게 막는다. createOrderItem으로만 호출할 수 있게끔. 공동 개발시 필수
+@NoArgsConstructor(access = AccessLevel.PROTECTED) // 다른 곳에서 new OrderItem 형식으로 불러오지 못하게 막는다. createReservedOrderItem으로만 호출할 수 있게끔. 공동 개발시 필수
 public class OrderItem {
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_item_seq_generator")
+    @SequenceGenerator(name = "order_item_seq_generator", sequenceName = "order_item_seq", allocationSize = 50)
     @Column(name = "order_item_id")
     private Long id;
 
@@ -29,23 +31,15 @@ public class OrderItem {
     private int count; // 주문 수량
 
     // -- 생성 메서드 -- //
-    public static OrderItem createOrderItem(Item item, int orderPrice, int count) {
+    // 재고는 StockService.reserve 로 먼저 차감한다. (원자적 UPDATE) -> 엔티티의 재고는 건드리지 않는다.
+    public static OrderItem createReservedOrderItem(Item item, int orderPrice, int count) {
         OrderItem orderItem = new OrderItem();
         orderItem.setItem(item);
         orderItem.setOrderPrice(orderPrice);
         orderItem.setCount(count);
-
-        item.removeStock(count);
         return orderItem;
     }
 
-
-    // -- 비지니스 로직 -- //
-    // 주문 취소
-    public void cancel() {
-        this.getItem().addStock(count);
-    }
-
     // -- 조회 로직 -- //
     // 총 금액
     public int getTotalPrice() {
@@ -0,0 +1,84 @@
+package jpabook.jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 주문 목록 조회 전용 테이블 (주문 1건당 1행)
+ * - 목록 화면/API 에서 orders, member, delivery, order_item 을 매번 조인하지 않도록
+ *   주문을 저장/취소하는 트랜잭션 안에서 함께 갱신한다. (OrderService)
+ * - 목록과 검색은 이 테이블 하나만 인덱스로 읽는다.
+ * - 회원 이름이 바뀌면 MemberService 에서 함께 바꾼다.
+ * - 이 테이블이 생기기 전에 저장된 주문은 앱 시작시 채운다. (OrderSummaryBackfill)
+ * - 배송 상태는 주문과 따로 바뀌므로 여기 복사하지 않는다. (배송 상태 검색은 delivery 를 exists 로 확인)
+ */
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Table(name = "order_summary", indexes = {
+        @Index(name = "idx_order_summary_status_date", columnList = "status, order_date"),
+        @Index(name = "idx_order_summary_date", columnList = "order_date"),
+        @Index(name = "idx_order_summary_member", columnList = "member_id"),
+        @Index(name = "idx_order_summary_member_name", columnList = "member_search_name")
+})
+public class OrderSummary {
+    @Id // 주문 id 를 그대로 사용
+    @Column(name = "order_id")
+    private Long id;
+
+    @Column(name = "member_id")
+    private Long memberId;
+
+    private String memberName;
+
+    @Column(name = "member_search_name")
+    private String memberSearchName; // 검색용 이름 (Member.normalizeName)
+
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+
+    @Embedded
+    private Address address; // 배송지
+
+    private int lineCount; // 주문 상품 종류 수
+    private int totalPrice;
+
+    // 대표상품 (첫 번째 주문 상품)
+    private String firstItemName;
+    private int firstItemPrice;
+    private int firstItemCount;
+
+    @Column(name = "order_date")
+    private LocalDateTime orderDate;
+
+    // -- 생성 메서드 -- //
+    // 주문을 저장한 직후 (주문 상품, 회원, 배송이 메모리에 있을 때) 호출한다.
+    public static OrderSummary from(Order order) {
+        OrderSummary summary = new OrderSummary();
+        summary.id = order.getId();
+        summary.memberId = order.getMember().getId();
+        summary.memberName = order.getMember().getName();
+        summary.memberSearchName = Member.normalizeName(order.getMember().getName());
+        summary.status = order.getStatus();
+        summary.address = order.getDelivery().getAddress();
+        summary.lineCount = order.getOrderItems().size();
+        summary.totalPrice = order.getTotalPrice();
+        if (!order.getOrderItems().isEmpty()) {
+            OrderItem first = order.getOrderItems().get(0);
+            summary.firstItemName = first.getItem().getName();
+            summary.firstItemPrice = first.getOrderPrice();
+            summary.firstItemCount = first.getCount();
+        }
+        summary.orderDate = order.getOrderDate();
+        return summary;
+    }
+
+    // -- 비지니스 로직 -- //
+    public void cancel() {
+        this.status = OrderStatus.CANCEL;
+    }
+}
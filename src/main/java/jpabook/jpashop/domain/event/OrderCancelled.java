@@ -0,0 +1,16 @@
+package jpabook.jpashop.domain.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * 주문 취소됨 (aggregate: Order)
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderCancelled {
+    private Long orderId;
+    private Long memberId;
+}
@@ -0,0 +1,40 @@
+package jpabook.jpashop.domain.event;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 주문됨 (aggregate: Order)
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderPlaced {
+    private Long orderId;
+    private Long memberId;
+    private int totalPrice;
+    private List<Line> lines;
+
+    public static OrderPlaced of(Order order) {
+        List<Line> lines = new ArrayList<>(order.getOrderItems().size());
+        for (OrderItem orderItem : order.getOrderItems()) {
+            lines.add(new Line(orderItem.getItem().getId(), orderItem.getOrderPrice(), orderItem.getCount()));
+        }
+        return new OrderPlaced(order.getId(), order.getMember().getId(), order.getTotalPrice(), lines);
+    }
+
+    @Getter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Line {
+        private Long itemId;
+        private int orderPrice;
+        private int count;
+    }
+}
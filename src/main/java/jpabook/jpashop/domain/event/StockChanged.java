@@ -0,0 +1,17 @@
+package jpabook.jpashop.domain.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * 재고 변경됨 (aggregate: Item)
+ * 현재 재고가 아니라 변경량(delta)만 담는다. 차감은 음수, 원복은 양수.
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockChanged {
+    private Long itemId;
+    private int delta;
+}
@@ -1,9 +1,12 @@
 package jpabook.jpashop.domain.item;
 
+import jpabook.jpashop.change.ChangeClock;
 import jpabook.jpashop.domain.Category;
-import jpabook.jpashop.exception.NotEnoughStockException;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.util.ArrayList;
@@ -12,6 +15,9 @@ import java.util.List;
 @Entity
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE) // 한테이블에 상속 받은 엔티티들 다 넣기
 @DiscriminatorColumn(name = "dtype")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "item") // 2차 캐시, 하위 타입(Book, Album, Movie)도 같은 region 사용
+@Table(indexes = @Index(name = "idx_item_modified_at", columnList = "modified_at"))
 @Getter
 @Setter
 public abstract class Item { // 추상 클래스 -> 구현체를 가져야하므로.
@@ -23,22 +29,22 @@ public abstract class Item { // 추상 클래스 -> 구현체를 가져야하므
     private int price;
     private int stockQuantity;
 
+    @Version
+    private Long version;
+
+    // 마지막 저장/수정 시각 (ChangeClock), 조회 API ETag 용 - max(modified_at) 을 인덱스로 읽는다. (ChangeTracker)
+    @Column(name = "modified_at")
+    @Setter(AccessLevel.NONE)
+    private Long modifiedAt;
+
     @ManyToMany(mappedBy = "items")
     private List<Category> categories = new ArrayList<>();
 
-    //--비지니스로직--//
-
-    // stock 증가
-    public void addStock(int quantity) {
-        this.stockQuantity += quantity;
-    }
+    // 재고 증감은 엔티티에서 하지 않는다. 읽고-수정-쓰기는 동시 주문에서 갱신 분실이 생기므로 StockService 의 원자적 UPDATE 로만 바꾼다.
 
-    // stock 감소
-    public void removeStock(int quantity){
-        int restStock = this.stockQuantity - quantity;
-        if (restStock < 0) {
-            throw new NotEnoughStockException("need more stock");
-        }
-        this.stockQuantity = restStock;
+    @PrePersist
+    @PreUpdate
+    private void touch() {
+        this.modifiedAt = ChangeClock.next();
     }
 }
@@ -0,0 +1,11 @@
+package jpabook.jpashop.exception;
+
+/**
+ * 트랜잭션 밖에서 지연 로딩을 시도함 (LazyLoadGuard, jpashop.jpa.lazy-guard=fail)
+ * - 지연 로딩이 필요한 연관관계는 서비스(@Transactional) 안에서 초기화하거나 fetch join 으로 함께 조회한다.
+ */
+public class LazyLoadOutsideTransactionException extends RuntimeException {
+    public LazyLoadOutsideTransactionException(String message) {
+        super(message);
+    }
+}
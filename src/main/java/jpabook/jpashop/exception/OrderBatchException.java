@@ -0,0 +1,21 @@
+package jpabook.jpashop.exception;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 대량 주문 중간 청크가 실패함
+ * - 앞 청크들은 이미 커밋되었으므로, 커밋된 주문 id 를 함께 돌려준다. (클라이언트는 나머지만 다시 보낸다)
+ */
+public class OrderBatchException extends RuntimeException {
+    private final List<Long> committedOrderIds;
+
+    public OrderBatchException(List<Long> committedOrderIds, Throwable cause) {
+        super("대량 주문 처리 중 실패했습니다. 커밋된 주문 수=" + committedOrderIds.size() + ", 원인=" + cause.getMessage(), cause);
+        this.committedOrderIds = Collections.unmodifiableList(committedOrderIds);
+    }
+
+    public List<Long> getCommittedOrderIds() {
+        return committedOrderIds;
+    }
+}
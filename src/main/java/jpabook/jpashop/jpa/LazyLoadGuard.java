@@ -0,0 +1,89 @@
+package jpabook.jpashop.jpa;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jpabook.jpashop.exception.LazyLoadOutsideTransactionException;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.InitializeCollectionEvent;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.event.spi.LoadEvent;
+import org.hibernate.event.spi.LoadEventListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.util.Locale;
+
+/**
+ * 트랜잭션 밖 지연 로딩 감지 (jpashop.jpa.lazy-guard = off | log | fail)
+ * - OSIV 로 영속성 컨텍스트가 열려 있으면 컨트롤러/뷰에서도 지연 로딩이 되는데,
+ *   그동안 요청이 커넥션을 계속 붙잡으므로 (트랜잭션이 끝나도 반환하지 않음) 트래픽이 많으면 커넥션이 모자란다.
+ * - 프록시/컬렉션 초기화 이벤트가 트랜잭션 밖에서 일어나면 jpashop.jpa.lazy_load_outside_tx 를 올리고,
+ *   fail 이면 SQL 을 실행하기 전에 예외를 던진다. (테스트, 운영 프로필)
+ * - 영속성 컨텍스트가 이미 닫혀서 나는 LazyInitializationException 은 Hibernate 가 던진다. (LazyLoadExceptionAdvice)
+ */
+@Slf4j
+@Component
+public class LazyLoadGuard implements LoadEventListener, InitializeCollectionEventListener {
+    public enum Mode {OFF, LOG, FAIL}
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final MeterRegistry meterRegistry;
+    private final Mode mode;
+
+    public LazyLoadGuard(EntityManagerFactory entityManagerFactory,
+                         MeterRegistry meterRegistry,
+                         @Value("${jpashop.jpa.lazy-guard:log}") String mode) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.meterRegistry = meterRegistry;
+        this.mode = Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+    }
+
+    @PostConstruct
+    public void register() {
+        if (mode == Mode.OFF) {
+            return;
+        }
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        // 실제 로딩(SQL)보다 먼저 실행되도록 앞에 등록
+        registry.prependListeners(EventType.LOAD, this);
+        registry.prependListeners(EventType.INIT_COLLECTION, this);
+    }
+
+    /**
+     * 프록시 초기화는 IMMEDIATE_LOAD 로 들어온다. (em.find, JPQL 결과 로딩은 다른 LoadType)
+     */
+    @Override
+    public void onLoad(LoadEvent event, LoadType loadType) throws HibernateException {
+        if (loadType == IMMEDIATE_LOAD) {
+            check("entity", event.getEntityClassName() + "#" + event.getEntityId());
+        }
+    }
+
+    @Override
+    public void onInitializeCollection(InitializeCollectionEvent event) throws HibernateException {
+        check("collection", event.getCollection().getRole() + "#" + event.getAffectedOwnerIdOrNull());
+    }
+
+    private void check(String kind, String target) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return;
+        }
+        String name = target.substring(0, target.indexOf('#'));
+        meterRegistry.counter("jpashop.jpa.lazy_load_outside_tx", "kind", kind, "target", name).increment();
+
+        String message = "트랜잭션 밖에서 지연 로딩: " + target
+                + " -> 서비스(@Transactional) 안에서 초기화하거나 fetch join 으로 함께 조회하세요.";
+        if (mode == Mode.FAIL) {
+            throw new LazyLoadOutsideTransactionException(message);
+        }
+        log.warn(message);
+    }
+}
@@ -0,0 +1,80 @@
+package jpabook.jpashop.outbox;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 아웃박스: 도메인 이벤트를 업무 데이터와 같은 트랜잭션에서 저장해두고, OutboxRelay 가 나중에 구독자에게 전달한다.
+ * - 주문이 롤백되면 이벤트도 함께 사라지고, 커밋되면 이벤트는 반드시 (한 번 이상) 전달된다.
+ * - 전달 순서는 id 순서 (같은 aggregate 안에서는 발생 순서가 보장된다)
+ *   id 는 이벤트를 저장할 때 DB 시퀀스에서 하나씩 받는다. (allocationSize = 1)
+ *   이벤트는 aggregate 행을 바꾼(잠근) 뒤에 저장하므로, 같은 aggregate 에서는 커밋 순서와 id 순서가 같다.
+ *   미리 여러 개를 받아두면(pooled) 인스턴스마다 다른 id 구간을 쓰게 되어, 나중에 커밋한 이벤트가 더 작은 id 를 가질 수 있다.
+ * - payload 는 CLOB 이다. 주문 상품 수에 제한이 없는 대량 주문(OrderPlaced)도 같은 트랜잭션에서 저장되어야 하므로 길이 제한을 두지 않는다.
+ */
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Table(name = "outbox_event", indexes = {
+        @Index(name = "idx_outbox_event_status", columnList = "status, outbox_event_id"),
+        @Index(name = "idx_outbox_event_aggregate", columnList = "aggregate_type, aggregate_id, status")
+})
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_seq_generator")
+    @SequenceGenerator(name = "outbox_seq_generator", sequenceName = "outbox_seq", allocationSize = 1)
+    @Column(name = "outbox_event_id")
+    private Long id;
+
+    @Column(name = "aggregate_type")
+    private String aggregateType; // Order, Item
+    @Column(name = "aggregate_id")
+    private Long aggregateId;
+
+    private String eventType; // 이벤트 클래스 이름 (OrderPlaced ...)
+
+    @Lob
+    private String payload; // JSON
+
+    @Enumerated(EnumType.STRING)
+    private OutboxEventStatus status;
+
+    private int attempts; // 전달 실패 횟수
+
+    @Column(length = 500)
+    private String lastError;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime publishedAt;
+
+    // -- 생성 메서드 -- //
+    public static OutboxEvent create(String aggregateType, Long aggregateId, String eventType, String payload) {
+        OutboxEvent event = new OutboxEvent();
+        event.aggregateType = aggregateType;
+        event.aggregateId = aggregateId;
+        event.eventType = eventType;
+        event.payload = payload;
+        event.status = OutboxEventStatus.PENDING;
+        event.createdAt = LocalDateTime.now();
+        return event;
+    }
+
+    // -- 비지니스 로직 -- //
+    // 전달 실패: maxAttempts 번 실패하면 FAILED 로 바꾼다.
+    // FAILED 이벤트가 있는 aggregate 의 뒤 이벤트는 순서를 지키기 위해 전달하지 않는다. (OutboxRepository.findPending)
+    public void fail(String error, int maxAttempts) {
+        attempts++;
+        lastError = error == null ? null : error.substring(0, Math.min(error.length(), 500));
+        if (attempts >= maxAttempts) {
+            status = OutboxEventStatus.FAILED;
+        }
+    }
+
+    public String getAggregateKey() {
+        return aggregateType + ":" + aggregateId;
+    }
+}
@@ -0,0 +1,5 @@
+package jpabook.jpashop.outbox;
+
+public enum OutboxEventStatus {
+    PENDING, PUBLISHED, FAILED
+}
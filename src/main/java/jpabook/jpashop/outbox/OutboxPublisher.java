@@ -0,0 +1,30 @@
+package jpabook.jpashop.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 도메인 이벤트를 아웃박스 테이블에 저장
+ * 반드시 업무 트랜잭션 안에서 호출한다. (MANDATORY: 트랜잭션이 없으면 예외) -> 업무 데이터와 함께 커밋/롤백
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboxPublisher {
+    private final OutboxRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(String aggregateType, Long aggregateId, Object event) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("이벤트를 JSON 으로 바꿀 수 없습니다. event=" + event.getClass().getSimpleName(), e);
+        }
+        outboxRepository.save(OutboxEvent.create(aggregateType, aggregateId, event.getClass().getSimpleName(), payload));
+    }
+}
@@ -0,0 +1,173 @@
+package jpabook.jpashop.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 아웃박스 이벤트를 구독자에게 전달 (OutboxRelayScheduler 가 주기적으로 호출)
+ * - 오래된 순서로 batch-size 개씩 읽어서 전달하고, 성공한 이벤트만 PUBLISHED 로 바꾼다.
+ *   전달 후 표시 전에 죽으면 다음에 다시 전달된다. (at-least-once)
+ * - 같은 aggregate 의 이벤트는 순서대로: 앞 이벤트가 실패하면 그 aggregate 의 뒤 이벤트는 다음 폴링까지 보류한다.
+ *   max-attempts 번 실패한 이벤트는 FAILED 가 되고, 그 aggregate 는 retryFailed 를 부를 때까지 막힌다. (직접 확인 필요)
+ *   실패한 이벤트를 건너뛰고 뒤 이벤트를 전달하면 구독자가 순서가 뒤바뀐 이벤트를 받게 된다. 다른 aggregate 는 계속 진행한다.
+ * - 구독자는 relay 스레드 하나에서 차례로 실행된다. 구독자가 느리면 폴링도 늦어질 뿐이고,
+ *   밀린 이벤트는 메모리가 아니라 아웃박스 테이블에 쌓인다. (한 번에 메모리에 올리는 건 batch-size 개)
+ * - 여러 인스턴스에서 동시에 돌리면 중복 전달되고 순서도 섞일 수 있으므로, relay 는 한 인스턴스에서만 켠다.
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+    private final OutboxRepository outboxRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Map<String, List<OutboxSubscriber<?>>> subscribers = new HashMap<>();
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration retention;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Counter publishedCounter;
+    private final Counter failureCounter;
+    private final Timer lagTimer;
+
+    public OutboxRelay(OutboxRepository outboxRepository,
+                       PlatformTransactionManager transactionManager,
+                       ObjectMapper objectMapper,
+                       MeterRegistry meterRegistry,
+                       ObjectProvider<OutboxSubscriber<?>> subscriberBeans,
+                       @Value("${jpashop.outbox.relay.batch-size:100}") int batchSize,
+                       @Value("${jpashop.outbox.relay.max-attempts:5}") int maxAttempts,
+                       @Value("${jpashop.outbox.retention-hours:24}") long retentionHours) {
+        this.outboxRepository = outboxRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retention = Duration.ofHours(retentionHours);
+        subscriberBeans.orderedStream().forEach(subscriber ->
+                subscribers.computeIfAbsent(subscriber.eventType().getSimpleName(), k -> new ArrayList<>()).add(subscriber));
+
+        this.publishedCounter = meterRegistry.counter("jpashop.outbox.published");
+        this.failureCounter = meterRegistry.counter("jpashop.outbox.failures");
+        this.lagTimer = Timer.builder("jpashop.outbox.lag") // 이벤트 저장부터 전달까지
+                .register(meterRegistry);
+    }
+
+    /**
+     * 쌓인 이벤트를 전달한다. 실패가 있거나 더 읽을 이벤트가 없으면 멈춘다.
+     * 이미 다른 스레드가 전달 중이면 바로 돌아간다.
+     * @return 전달한 이벤트 수
+     */
+    public int relayPending() {
+        if (!lock.tryLock()) {
+            return 0;
+        }
+        try {
+            int published = 0;
+            while (true) {
+                BatchResult result = relayBatch();
+                published += result.published;
+                if (result.fetched < batchSize || result.failed > 0) {
+                    return published;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * FAILED 로 막힌 aggregate 를 다시 전달 대상으로 (원인을 고친 뒤 호출)
+     * @return 다시 PENDING 이 된 이벤트 수
+     */
+    public int retryFailed(String aggregateType, Long aggregateId) {
+        return transactionTemplate.execute(status -> outboxRepository.retryFailed(aggregateType, aggregateId));
+    }
+
+    /**
+     * retention-hours 보다 오래된 PUBLISHED 이벤트 삭제
+     */
+    public int purgePublished() {
+        LocalDateTime before = LocalDateTime.now().minus(retention);
+        return transactionTemplate.execute(status -> outboxRepository.deletePublishedBefore(before));
+    }
+
+    private BatchResult relayBatch() {
+        List<OutboxEvent> batch = transactionTemplate.execute(status -> outboxRepository.findPending(batchSize));
+
+        Set<String> blocked = new HashSet<>();
+        List<Long> publishedIds = new ArrayList<>();
+        Map<Long, String> failures = new LinkedHashMap<>();
+        for (OutboxEvent event : batch) {
+            if (blocked.contains(event.getAggregateKey())) {
+                continue; // 앞 이벤트가 실패한 aggregate -> 순서를 지키기 위해 보류
+            }
+            try {
+                dispatch(event);
+                publishedIds.add(event.getId());
+                lagTimer.record(Duration.between(event.getCreatedAt(), LocalDateTime.now()));
+            } catch (Exception e) {
+                blocked.add(event.getAggregateKey());
+                failures.put(event.getId(), e.toString());
+                log.warn("outbox event delivery failed. id={}, type={}, aggregate={}, attempts={}",
+                        event.getId(), event.getEventType(), event.getAggregateKey(), event.getAttempts() + 1, e);
+            }
+        }
+
+        if (!publishedIds.isEmpty() || !failures.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!publishedIds.isEmpty()) {
+                    outboxRepository.markPublished(publishedIds, LocalDateTime.now());
+                }
+                failures.forEach((id, error) -> outboxRepository.findOne(id).fail(error, maxAttempts));
+            });
+        }
+        publishedCounter.increment(publishedIds.size());
+        failureCounter.increment(failures.size());
+        return new BatchResult(batch.size(), publishedIds.size(), failures.size());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void dispatch(OutboxEvent event) throws IOException {
+        List<OutboxSubscriber<?>> targets = subscribers.get(event.getEventType());
+        if (targets == null) {
+            return; // 구독자가 없는 이벤트는 전달한 것으로 본다.
+        }
+        Object payload = objectMapper.readValue(event.getPayload(), targets.get(0).eventType());
+        for (OutboxSubscriber<?> subscriber : targets) {
+            ((OutboxSubscriber<Object>) subscriber).handle(payload);
+        }
+    }
+
+    private static class BatchResult {
+        private final int fetched;
+        private final int published;
+        private final int failed;
+
+        private BatchResult(int fetched, int published, int failed) {
+            this.fetched = fetched;
+            this.published = published;
+            this.failed = failed;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package jpabook.jpashop.outbox;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * 아웃박스 relay 주기 실행
+ * - fixedDelay: 앞 실행이 끝난 뒤부터 기다린다. (구독자가 느려도 실행이 겹치지 않음)
+ * - 스케줄러 스레드는 하나 (spring.task.scheduling.pool.size 기본값 1)
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "jpashop.outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+public class OutboxRelayScheduler {
+    private final OutboxRelay outboxRelay;
+
+    @Scheduled(initialDelayString = "${jpashop.outbox.relay.poll-interval-millis:500}",
+            fixedDelayString = "${jpashop.outbox.relay.poll-interval-millis:500}")
+    public void relay() {
+        outboxRelay.relayPending();
+    }
+
+    @Scheduled(initialDelayString = "${jpashop.outbox.purge-interval-millis:3600000}",
+            fixedDelayString = "${jpashop.outbox.purge-interval-millis:3600000}")
+    public void purge() {
+        outboxRelay.purgePublished();
+    }
+}
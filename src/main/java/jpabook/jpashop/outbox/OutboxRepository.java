@@ -0,0 +1,76 @@
+package jpabook.jpashop.outbox;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class OutboxRepository {
+    private final EntityManager em;
+
+    public void save(OutboxEvent event) {
+        em.persist(event);
+    }
+
+    public OutboxEvent findOne(Long id) {
+        return em.find(OutboxEvent.class, id);
+    }
+
+    /**
+     * 전달할 이벤트를 오래된 순서로 limit 개 (status, id 인덱스)
+     * - 앞에 FAILED 이벤트가 있는 aggregate 의 이벤트는 빼고 읽는다. 건너뛰고 전달하면 같은 aggregate 의 순서가 깨진다.
+     *   (retryFailed 로 다시 PENDING 이 되면 그 이벤트부터 순서대로 전달)
+     */
+    public List<OutboxEvent> findPending(int limit) {
+        return em.createQuery("select e from OutboxEvent e" +
+                        " where e.status = :status" +
+                        " and not exists (select f.id from OutboxEvent f" +
+                        " where f.aggregateType = e.aggregateType and f.aggregateId = e.aggregateId" +
+                        " and f.status = :failed and f.id < e.id)" +
+                        " order by e.id", OutboxEvent.class)
+                .setParameter("status", OutboxEventStatus.PENDING)
+                .setParameter("failed", OutboxEventStatus.FAILED)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * aggregate 의 FAILED 이벤트를 다시 PENDING 으로 (실패 횟수 초기화)
+     */
+    public int retryFailed(String aggregateType, Long aggregateId) {
+        return em.createQuery("update OutboxEvent e" +
+                        " set e.status = :pending, e.attempts = 0" +
+                        " where e.aggregateType = :aggregateType and e.aggregateId = :aggregateId and e.status = :failed")
+                .setParameter("pending", OutboxEventStatus.PENDING)
+                .setParameter("failed", OutboxEventStatus.FAILED)
+                .setParameter("aggregateType", aggregateType)
+                .setParameter("aggregateId", aggregateId)
+                .executeUpdate();
+    }
+
+    public int markPublished(Collection<Long> ids, LocalDateTime publishedAt) {
+        return em.createQuery("update OutboxEvent e" +
+                        " set e.status = :status, e.publishedAt = :publishedAt" +
+                        " where e.id in :ids")
+                .setParameter("status", OutboxEventStatus.PUBLISHED)
+                .setParameter("publishedAt", publishedAt)
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
+    /**
+     * 전달이 끝난 이벤트 정리 (아웃박스 테이블이 계속 커지지 않도록)
+     */
+    public int deletePublishedBefore(LocalDateTime before) {
+        return em.createQuery("delete from OutboxEvent e" +
+                        " where e.status = :status and e.publishedAt < :before")
+                .setParameter("status", OutboxEventStatus.PUBLISHED)
+                .setParameter("before", before)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,15 @@
+package jpabook.jpashop.outbox;
+
+/**
+ * 아웃박스 이벤트 구독자 (빈으로 등록하면 OutboxRelay 가 찾아서 전달한다)
+ * - 한 번 이상 전달(at-least-once)이므로 같은 이벤트를 두 번 받아도 결과가 같도록 만들어야 한다.
+ *   (같은 이벤트의 다른 구독자가 실패해도 다시 전달된다)
+ * - 예외를 던지면 실패로 기록되고 다음 폴링 때 다시 전달된다. 그동안 같은 aggregate 의 뒤 이벤트는 전달되지 않는다.
+ * - 요청 트랜잭션 밖(relay 스레드)에서 호출된다. DB 작업이 필요하면 직접 트랜잭션을 연다.
+ */
+public interface OutboxSubscriber<T> {
+
+    Class<T> eventType();
+
+    void handle(T event);
+}
@@ -0,0 +1,93 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.domain.item.Item;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class CategoryRepository {
+    private final EntityManager em;
+
+    public void save(Category category) {
+        em.persist(category);
+    }
+
+    public Category findOne(Long id) {
+        return em.find(Category.class, id);
+    }
+
+    /**
+     * 행을 잠그고 조회 (select ... for update) -> 트랜잭션이 끝날 때까지 다른 트랜잭션이 바꾸거나 잠그지 못한다.
+     */
+    public Category findOneForUpdate(Long id) {
+        return em.find(Category.class, id, LockModeType.PESSIMISTIC_WRITE);
+    }
+
+    /**
+     * 트리 스냅샷용 (id, 이름, 부모 id) - 쿼리 1번
+     */
+    public List<Object[]> findAllIdNameParent() {
+        return em.createQuery("select c.id, c.name, p.id from Category c left join c.parent p order by c.id", Object[].class)
+                .getResultList();
+    }
+
+    /**
+     * 카테고리 트리 버전 (카테고리 수, version 합) - 생성하면 수가, 이동하면 version 합이 늘어난다.
+     * 서버마다 가진 트리 스냅샷이 DB 와 같은지 확인하는 데 쓴다. (CategoryTreeCache, 쿼리 1번)
+     */
+    public List<Long> findTreeVersion() {
+        Object[] row = em.createQuery("select count(c), coalesce(sum(c.version), 0) from Category c", Object[].class)
+                .getSingleResult();
+        return Arrays.asList(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+    }
+
+    /**
+     * 하위 트리(자기 포함)에 속한 상품 - path 인덱스로 쿼리 1번
+     */
+    public List<Item> findItemsInSubtree(Category category, int offset, int limit) {
+        return em.createQuery("select i from Item i" +
+                        " where i.id in (select ci.id from Category c join c.items ci" +
+                        "   where c.id = :id or c.path like :subtreePath)" +
+                        " order by i.id", Item.class)
+                .setParameter("id", category.getId())
+                .setParameter("subtreePath", category.getSubtreePath() + "%")
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * 카테고리 id 목록(트리 스냅샷에서 구한 하위 트리)에 속한 상품 - category_item 인덱스
+     */
+    public List<Item> findItemsInCategories(Collection<Long> categoryIds, int offset, int limit) {
+        return em.createQuery("select i from Item i" +
+                        " where i.id in (select ci.id from Category c join c.items ci where c.id in :categoryIds)" +
+                        " order by i.id", Item.class)
+                .setParameter("categoryIds", categoryIds)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * 하위 트리 이동: path 가 oldSubtreePath 로 시작하는 카테고리의 앞부분을 newSubtreePath 로 바꾼다. (벌크 UPDATE 1번)
+     * 벌크 UPDATE 는 @Version 을 올리지 않으므로 직접 올린다. (트리 버전이 바뀌어야 다른 서버가 스냅샷을 다시 만든다)
+     */
+    public int replacePathPrefix(String oldSubtreePath, String newSubtreePath) {
+        return em.createQuery("update Category c" +
+                        " set c.path = concat(:newPath, substring(c.path, :from)), c.version = c.version + 1" +
+                        " where c.path like :oldPath")
+                .setParameter("newPath", newSubtreePath)
+                .setParameter("from", oldSubtreePath.length() + 1)
+                .setParameter("oldPath", oldSubtreePath + "%")
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,135 @@
+package jpabook.jpashop.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 카테고리 트리 스냅샷 (불변)
+ * - 카테고리를 전위 순회 순서로 한 줄로 세워 두면, 어떤 카테고리의 하위 트리는 [자기 위치, 하위 트리 끝) 구간이 된다.
+ * - 하위 트리 id 목록은 배열 구간을 잘라서 바로 구한다. (재귀, DB 조회 없음)
+ * - 바뀌면 고치지 않고 새로 만들어 통째로 바꾼다. (CategoryTreeCache)
+ */
+public final class CategoryTree {
+    public static final CategoryTree EMPTY = build(Collections.emptyList());
+
+    private final List<Node> nodes; // 전위 순회 순서
+    private final List<Long> ids;   // nodes 와 같은 순서
+    private final Map<Long, Integer> positions;
+    private final int[] subtreeEnds;
+
+    private CategoryTree(List<Node> nodes, int[] subtreeEnds) {
+        this.nodes = Collections.unmodifiableList(nodes);
+        this.subtreeEnds = subtreeEnds;
+        List<Long> ids = new ArrayList<>(nodes.size());
+        Map<Long, Integer> positions = new HashMap<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            ids.add(nodes.get(i).getId());
+            positions.put(nodes.get(i).getId(), i);
+        }
+        this.ids = Collections.unmodifiableList(ids);
+        this.positions = positions;
+    }
+
+    /**
+     * @param rows (카테고리 id, 이름, 부모 id) - CategoryRepository.findAllIdNameParent
+     */
+    public static CategoryTree build(List<Object[]> rows) {
+        Map<Long, String> names = new HashMap<>();
+        Map<Long, List<Long>> children = new HashMap<>();
+        List<Long> roots = new ArrayList<>();
+        for (Object[] row : rows) {
+            names.put((Long) row[0], (String) row[1]);
+        }
+        for (Object[] row : rows) { // id 순으로 들어오므로 자식 목록도 id 순
+            Long id = (Long) row[0];
+            Long parentId = (Long) row[2];
+            if (parentId == null || !names.containsKey(parentId)) {
+                roots.add(id);
+            } else {
+                children.computeIfAbsent(parentId, p -> new ArrayList<>()).add(id);
+            }
+        }
+
+        // 재귀 없이 스택으로 전위 순회. 하위 트리 끝은 자식을 다 돌고 나올 때 정해진다.
+        List<Node> nodes = new ArrayList<>(rows.size());
+        int[] subtreeEnds = new int[rows.size()];
+        Deque<Object[]> stack = new ArrayDeque<>(); // {id, 부모 id, 깊이, 나올 때 여부}
+        for (int i = roots.size() - 1; i >= 0; i--) {
+            stack.push(new Object[]{roots.get(i), null, 0, false});
+        }
+        Map<Long, Integer> positions = new HashMap<>();
+        while (!stack.isEmpty()) {
+            Object[] frame = stack.pop();
+            Long id = (Long) frame[0];
+            if ((Boolean) frame[3]) {
+                subtreeEnds[positions.get(id)] = nodes.size();
+                continue;
+            }
+            if (positions.containsKey(id)) { // 부모 관계가 꼬여 있어도 한 번만 넣는다.
+                continue;
+            }
+            int depth = (Integer) frame[2];
+            positions.put(id, nodes.size());
+            nodes.add(new Node(id, names.get(id), (Long) frame[1], depth));
+            stack.push(new Object[]{id, frame[1], depth, true});
+            List<Long> childIds = children.getOrDefault(id, Collections.emptyList());
+            for (int i = childIds.size() - 1; i >= 0; i--) {
+                stack.push(new Object[]{childIds.get(i), id, depth + 1, false});
+            }
+        }
+        return new CategoryTree(nodes, subtreeEnds);
+    }
+
+    public boolean contains(Long categoryId) {
+        return positions.containsKey(categoryId);
+    }
+
+    /**
+     * 전위 순회 순서의 전체 카테고리 (부모가 항상 자식보다 앞)
+     */
+    public List<Node> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * 하위 트리 카테고리 id (자기 포함, 전위 순회 순서). 없는 카테고리면 빈 목록
+     */
+    public List<Long> subtreeIds(Long categoryId) {
+        Integer position = positions.get(categoryId);
+        if (position == null) {
+            return Collections.emptyList();
+        }
+        return ids.subList(position, subtreeEnds[position]);
+    }
+
+    /**
+     * ancestorId 가 categoryId 자신이거나 조상이면 true
+     */
+    public boolean isInSubtree(Long ancestorId, Long categoryId) {
+        Integer ancestor = positions.get(ancestorId);
+        Integer position = positions.get(categoryId);
+        return ancestor != null && position != null
+                && ancestor <= position && position < subtreeEnds[ancestor];
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Node {
+        private final Long id;
+        private final String name;
+        private final Long parentId;
+        private final int depth;
+    }
+}
@@ -0,0 +1,87 @@
+package jpabook.jpashop.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 카테고리 트리 스냅샷 보관
+ * - 앱 시작시 쿼리 한 번으로 만들고, 카테고리가 바뀌면 커밋 후에 새로 만들어 통째로 바꾼다.
+ * - 읽는 쪽은 락 없이 현재 스냅샷을 그대로 쓴다.
+ * - 서버마다 따로 가지는 스냅샷이라 다른 서버에서 바꾼 내용은 모를 수 있다.
+ *   그래서 상품 조회처럼 결과가 틀리면 안 되는 곳은 getIfCurrent 로 DB 의 트리 버전과 비교해서 같을 때만 쓰고,
+ *   다르면 호출하는 쪽에서 path 쿼리로 대신한다. (CategoryService, 스냅샷은 그 트랜잭션이 끝난 뒤 새로 만든다)
+ */
+@Component
+@RequiredArgsConstructor
+public class CategoryTreeCache {
+    private final CategoryRepository categoryRepository;
+
+    private volatile Snapshot snapshot = new Snapshot(CategoryTree.EMPTY, Collections.emptyList());
+
+    // 버전을 먼저 읽는다. 그 사이에 바뀌면 트리가 버전보다 새것이 되고, 다음 확인 때 한 번 더 만들 뿐이다.
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        List<Long> version = categoryRepository.findTreeVersion();
+        snapshot = new Snapshot(CategoryTree.build(categoryRepository.findAllIdNameParent()), version);
+    }
+
+    /**
+     * 현재 스냅샷 (확인 없이, 화면 표시용)
+     */
+    public CategoryTree get() {
+        return snapshot.tree;
+    }
+
+    /**
+     * DB 의 트리 버전과 같을 때만 스냅샷, 다르면 null (다른 서버에서 바뀜, 또는 이 트랜잭션에서 바꾸고 아직 커밋 전)
+     * 다르면 트랜잭션이 끝난 뒤 새로 만든다. (커밋되지 않은 트리가 스냅샷이 되지 않도록)
+     */
+    public CategoryTree getIfCurrent() {
+        Snapshot current = snapshot;
+        if (!current.version.equals(categoryRepository.findTreeVersion())) {
+            rebuildAfterCommit();
+            return null;
+        }
+        return current.tree;
+    }
+
+    /**
+     * 트랜잭션 안이면 커밋된 뒤에, 아니면 바로 다시 만든다. (한 트랜잭션에서 여러 번 불러도 한 번만)
+     */
+    public void rebuildAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            rebuild();
+            return;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof RebuildAfterCommit) {
+                return;
+            }
+        }
+        TransactionSynchronizationManager.registerSynchronization(new RebuildAfterCommit());
+    }
+
+    private static class Snapshot {
+        private final CategoryTree tree;
+        private final List<Long> version;
+
+        private Snapshot(CategoryTree tree, List<Long> version) {
+            this.tree = tree;
+            this.version = version;
+        }
+    }
+
+    private class RebuildAfterCommit implements TransactionSynchronization {
+        @Override
+        public void afterCommit() {
+            rebuild();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package jpabook.jpashop.repository;
+
+import lombok.Data;
+
+/**
+ * 상품 목록 화면 한 줄 (엔티티 대신 필요한 컬럼만 조회)
+ */
+@Data
+public class ItemListDto {
+    private Long id;
+    private String name;
+    private int price;
+    private int stockQuantity;
+
+    public ItemListDto(Long id, String name, int price, int stockQuantity) {
+        this.id = id;
+        this.name = name;
+        this.price = price;
+        this.stockQuantity = stockQuantity;
+    }
+}
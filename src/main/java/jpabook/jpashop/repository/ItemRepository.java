@@ -1,11 +1,21 @@
 package jpabook.jpashop.repository;
 
+import jpabook.jpashop.change.ChangeClock;
 import jpabook.jpashop.domain.item.Item;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.jpa.QueryHints;
+import org.hibernate.query.NativeQuery;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 @RequiredArgsConstructor
@@ -24,7 +34,124 @@ public class ItemRepository {
         return em.find(Item.class, id);
     }
 
+    // 쿼리 캐시: 결과 id 목록을 캐시하고 엔티티는 2차 캐시에서 꺼낸다. 상품을 저장/수정하면 자동으로 무효화된다.
+    // (재고 UPDATE 는 id 목록을 바꾸지 않으므로 무효화하지 않고, 바뀐 상품 엔티티만 캐시에서 뺀다)
     public List<Item> findAll() {
-        return em.createQuery("select i from Item i", Item.class).getResultList();
+        return em.createQuery("select i from Item i", Item.class)
+                .setHint(QueryHints.HINT_CACHEABLE, true)
+                .getResultList();
+    }
+
+    /**
+     * 상품 목록 화면: id 순 키셋 페이징, 필요한 컬럼만 DTO 로 조회 (쿼리 1번, pk 인덱스)
+     * @param afterId 이전 페이지의 마지막 상품 id (첫 페이지면 null)
+     */
+    public List<ItemListDto> findListPage(Long afterId, int limit) {
+        return em.createQuery("select new jpabook.jpashop.repository.ItemListDto(i.id, i.name, i.price, i.stockQuantity)" +
+                        " from Item i where i.id > :afterId order by i.id", ItemListDto.class)
+                .setParameter("afterId", afterId == null ? 0L : afterId) // id 는 1 부터
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    public List<Item> findAllById(Collection<Long> ids) {
+        return em.createQuery("select i from Item i where i.id in :ids", Item.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    public List<Long> findExistingIds(Collection<Long> ids) {
+        return em.createQuery("select i.id from Item i where i.id in :ids", Long.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    /**
+     * 검색 색인용 스트리밍 조회 (item 테이블 한 번 훑기)
+     * - 엔티티를 만들지 않고 검색할 컬럼만 fetchSize 만큼씩 읽는다.
+     * - 행: (item_id, version, dtype, name, price, author, isbn, artist, director, actor)
+     * - 트랜잭션 안에서 사용하고, 다 읽으면 반드시 close 해야 한다. (try-with-resources)
+     */
+    @SuppressWarnings("unchecked")
+    public Stream<Object[]> streamSearchFields(int fetchSize) {
+        return em.createNativeQuery("select item_id, version, dtype, name, price, author, isbn, artist, director, actor from item order by item_id")
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .getResultStream();
+    }
+
+    /**
+     * 재고 차감: 원자적 조건부 UPDATE
+     * - 엔티티를 읽고-수정-쓰기(dirty checking) 하면 동시 주문 시 갱신 분실(lost update)이 생긴다.
+     * - DB가 row 단위로 조건 검사와 차감을 한번에 처리하므로 락 없이도 재고가 음수가 되지 않는다.
+     * - version 도 함께 올려서, 이 상품을 dirty checking 으로 수정 중인 트랜잭션이 충돌을 감지하게 한다.
+     *   modified_at 도 함께 채운다. (엔티티 콜백을 거치지 않으므로, 조회 API ETag 용)
+     * - JPQL 벌크 UPDATE 는 Hibernate 가 item 2차 캐시 region 전체와 관련 쿼리 캐시를 비우므로,
+     *   주문마다 상품 캐시 전체가 날아간다. 네이티브 SQL 로 실행하고 이 상품 하나만 캐시에서 뺀다. (evictItem)
+     * @return 변경된 row 수 (0 이면 재고 부족)
+     */
+    public int removeStock(Long itemId, int quantity) {
+        int updated = stockUpdate("update item set stock_quantity = stock_quantity - :quantity, version = version + 1, modified_at = :modifiedAt" +
+                " where item_id = :itemId and stock_quantity >= :quantity")
+                .setParameter("quantity", quantity)
+                .setParameter("itemId", itemId)
+                .setParameter("modifiedAt", ChangeClock.next())
+                .executeUpdate();
+        if (updated > 0) {
+            evictItem(itemId);
+        }
+        return updated;
+    }
+
+    /**
+     * 재고 원복: 원자적 UPDATE (removeStock 과 같이 이 상품 하나만 캐시에서 뺀다)
+     */
+    public int addStock(Long itemId, int quantity) {
+        int updated = stockUpdate("update item set stock_quantity = stock_quantity + :quantity, version = version + 1, modified_at = :modifiedAt" +
+                " where item_id = :itemId")
+                .setParameter("quantity", quantity)
+                .setParameter("itemId", itemId)
+                .setParameter("modifiedAt", ChangeClock.next())
+                .executeUpdate();
+        if (updated > 0) {
+            evictItem(itemId);
+        }
+        return updated;
+    }
+
+    /**
+     * 네이티브 UPDATE 는 어떤 테이블을 바꾸는지 Hibernate 가 모르므로 기본으로 2차 캐시 전체를 비운다.
+     * 빈 query space 를 지정해서 캐시 region 은 건드리지 않게 하고, 무효화는 evictItem 으로 직접 한다.
+     * query space 를 지정하면 자동 flush 도 하지 않으므로, 아직 INSERT 되지 않은 상품이 있을 수 있어 직접 flush 한다.
+     */
+    private Query stockUpdate(String sql) {
+        em.flush();
+        Query query = em.createNativeQuery(sql);
+        query.unwrap(NativeQuery.class).addSynchronizedQuerySpace("");
+        return query;
+    }
+
+    /**
+     * 상품 하나만 2차 캐시에서 뺀다.
+     * - 지금 빼고, 트랜잭션이 끝난 뒤에 한번 더 뺀다.
+     *   (커밋 전에 다른 트랜잭션이 예전 재고를 읽어서 캐시에 다시 넣을 수 있기 때문)
+     */
+    private void evictItem(Long itemId) {
+        Cache cache = em.getEntityManagerFactory().unwrap(SessionFactory.class).getCache();
+        cache.evictEntityData(Item.class, itemId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.evictEntityData(Item.class, itemId);
+                }
+            });
+        }
+    }
+
+    /**
+     * 벌크 UPDATE 는 영속성 컨텍스트를 거치지 않으므로, 이미 조회한 엔티티는 DB 값으로 다시 맞춰야 한다.
+     */
+    public void refresh(Item item) {
+        em.refresh(item);
     }
 }
@@ -0,0 +1,38 @@
+package jpabook.jpashop.repository;
+
+import lombok.Getter;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 키셋 페이징 결과
+ * - size + 1 건을 조회해서 다음 페이지가 있는지 판단한다. (count 쿼리 없음)
+ * - 다음 페이지는 nextAfterId 다음부터 읽으므로 페이지가 뒤로 가도 조회 비용이 같다.
+ */
+@Getter
+public class KeysetPage<T> {
+    private final List<T> content;
+    private final Long nextAfterId; // 다음 페이지 커서, 마지막 페이지면 null
+
+    private KeysetPage(List<T> content, Long nextAfterId) {
+        this.content = content;
+        this.nextAfterId = nextAfterId;
+    }
+
+    /**
+     * @param rows size + 1 건까지 조회한 결과
+     * @param idOf 키셋 기준 id
+     */
+    public static <T> KeysetPage<T> of(List<T> rows, int size, Function<T, Long> idOf) {
+        if (rows.size() <= size) {
+            return new KeysetPage<>(rows, null);
+        }
+        List<T> content = rows.subList(0, size);
+        return new KeysetPage<>(content, idOf.apply(content.get(size - 1)));
+    }
+
+    public boolean hasNext() {
+        return nextAfterId != null;
+    }
+}
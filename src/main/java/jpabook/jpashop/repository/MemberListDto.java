@@ -0,0 +1,20 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Address;
+import lombok.Data;
+
+/**
+ * 회원 목록 화면 한 줄 (엔티티 대신 필요한 컬럼만 조회)
+ */
+@Data
+public class MemberListDto {
+    private Long id;
+    private String name;
+    private Address address;
+
+    public MemberListDto(Long id, String name, Address address) {
+        this.id = id;
+        this.name = name;
+        this.address = address;
+    }
+}
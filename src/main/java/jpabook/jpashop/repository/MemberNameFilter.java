@@ -0,0 +1,101 @@
+package jpabook.jpashop.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 이미 사용중인 회원 이름의 Bloom filter (선택, 기본 꺼짐)
+ * - mightContain 이 false 면 그 이름은 확실히 없는 이름이다. -> 중복 확인 SELECT 없이 바로 INSERT
+ * - true 면 있을 수도 있는 이름 -> 기존처럼 SELECT 로 확인
+ * - 중복 여부는 결국 uk_member_name 유니크 제약이 보장하므로, 이 필터가 틀려도(롤백된 가입이 남아있는 등) 비용만 달라진다.
+ * - 이름은 지우지 않는다. (Bloom filter 는 삭제가 안 되므로, 이름 변경 후 예전 이름은 '있을 수도 있음'으로 남는다)
+ */
+@Component
+public class MemberNameFilter {
+    private final boolean enabled;
+    private final int bitCount;
+    private final int hashCount;
+    private final AtomicLongArray bits;
+    private final MemberRepository memberRepository;
+    private volatile boolean ready;
+
+    public MemberNameFilter(MemberRepository memberRepository,
+                            @Value("${jpashop.member.bloom.enabled:false}") boolean enabled,
+                            @Value("${jpashop.member.bloom.expected-names:1000000}") int expectedNames,
+                            @Value("${jpashop.member.bloom.fpp:0.01}") double fpp) {
+        this.memberRepository = memberRepository;
+        this.enabled = enabled;
+        // m = -n ln(p) / (ln2)^2, k = m/n ln2
+        long m = (long) Math.ceil(-expectedNames * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        this.bitCount = (int) Math.max(64, Math.min(m, Integer.MAX_VALUE - 63));
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedNames * Math.log(2)));
+        this.bits = new AtomicLongArray(enabled ? (bitCount + 63) / 64 : 0);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        for (Object[] row : memberRepository.findAllIdAndName()) {
+            put((String) row[1]);
+        }
+        ready = true;
+    }
+
+    /**
+     * 꺼져 있거나 아직 준비되지 않았으면 항상 true (SELECT 로 확인)
+     */
+    public boolean mightContain(String name) {
+        if (!enabled || !ready || name == null) {
+            return true;
+        }
+        long hash = hash(name);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            int bit = index(h1 + i * h2);
+            if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void put(String name) {
+        if (!enabled || name == null) {
+            return;
+        }
+        long hash = hash(name);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            int bit = index(h1 + i * h2);
+            long mask = 1L << bit;
+            int word = bit >>> 6;
+            long old;
+            do {
+                old = bits.get(word);
+            } while ((old & mask) == 0 && !bits.compareAndSet(word, old, old | mask));
+        }
+    }
+
+    private int index(int combined) {
+        return (combined & Integer.MAX_VALUE) % bitCount;
+    }
+
+    // FNV-1a 64bit
+    private static long hash(String name) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,167 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Member;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 회원 이름 '포함' 검색용 메모리 색인 (3-gram)
+ * - '%name%' LIKE 는 인덱스를 못 타고 회원 테이블 전체를 읽는다.
+ * - 이름을 3글자씩 잘라 (3-gram -> 회원 id 목록) 으로 들고 있다가, 검색어의 3-gram 목록을 교집합해서 후보를 찾고
+ *   실제로 포함하는지 한번 더 확인한다. (검색어가 3글자 미만이면 이름 목록을 직접 훑는다)
+ * - 주문 검색은 여기서 찾은 회원 id 로 주문 테이블을 조회한다.
+ * - 비교 규칙은 search_name 컬럼과 같다. (Member.normalizeName: 앞뒤 공백 제거 + 소문자)
+ *   색인을 끄거나 준비되지 않았을 때 쓰는 DB 검색(search_name like)과 결과가 같다.
+ * - 앱 시작시 한번 만들고, 회원 가입/수정은 커밋 후에 반영한다.
+ *   서버마다 따로 가지는 색인이라 다른 서버에서 가입/이름 변경한 회원은 재시작 전까지 찾지 못한다.
+ *   그래서 기본은 꺼져 있고(jpashop.member.name-index.enabled), 인스턴스가 하나일 때만 켠다.
+ */
+@Component
+public class MemberNameIndex {
+    private static final int GRAM = 3;
+
+    private final MemberRepository memberRepository;
+    private final boolean enabled;
+
+    private volatile Map<Long, String> names = new ConcurrentHashMap<>();
+    private volatile Map<String, Set<Long>> grams = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    public MemberNameIndex(MemberRepository memberRepository,
+                           @Value("${jpashop.member.name-index.enabled:false}") boolean enabled) {
+        this.memberRepository = memberRepository;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        Map<Long, String> newNames = new ConcurrentHashMap<>();
+        Map<String, Set<Long>> newGrams = new ConcurrentHashMap<>();
+        for (Object[] row : memberRepository.findAllIdAndName()) {
+            add(newNames, newGrams, (Long) row[0], Member.normalizeName((String) row[1]));
+        }
+        names = newNames;
+        grams = newGrams;
+        ready = true;
+    }
+
+    /**
+     * 색인이 꺼져 있거나 아직 만들어지지 않았으면 false (호출하는 쪽에서 DB 검색으로 대신한다)
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 트랜잭션 안이면 커밋된 뒤에, 아니면 바로 색인에 반영
+     */
+    public void indexAfterCommit(Long memberId, String name) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    index(memberId, name);
+                }
+            });
+        } else {
+            index(memberId, name);
+        }
+    }
+
+    public synchronized void index(Long memberId, String name) {
+        String normalized = Member.normalizeName(name);
+        String old = names.get(memberId);
+        if (old != null) {
+            if (old.equals(normalized)) {
+                return;
+            }
+            for (String gram : gramsOf(old)) {
+                Set<Long> ids = grams.get(gram);
+                if (ids != null) {
+                    ids.remove(memberId);
+                }
+            }
+        }
+        add(names, grams, memberId, normalized);
+    }
+
+    /**
+     * 이름에 text 가 포함된 회원 id (오름차순)
+     */
+    public SortedSet<Long> findMemberIdsContaining(String text) {
+        String query = Member.normalizeName(text);
+        if (query == null || query.isEmpty()) {
+            return Collections.emptySortedSet();
+        }
+
+        Map<Long, String> names = this.names;
+        SortedSet<Long> result = new TreeSet<>();
+        if (query.length() < GRAM) {
+            names.forEach((id, name) -> {
+                if (name.contains(query)) result.add(id);
+            });
+            return result;
+        }
+
+        // 가장 짧은 목록을 후보로 잡고 나머지 3-gram 으로 걸러낸다.
+        List<String> queryGrams = gramsOf(query);
+        Set<Long> smallest = null;
+        for (String gram : queryGrams) {
+            Set<Long> ids = grams.get(gram);
+            if (ids == null || ids.isEmpty()) {
+                return Collections.emptySortedSet();
+            }
+            if (smallest == null || ids.size() < smallest.size()) {
+                smallest = ids;
+            }
+        }
+        for (Long id : smallest) {
+            String name = names.get(id);
+            if (name != null && name.contains(query)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    private static void add(Map<Long, String> names, Map<String, Set<Long>> grams, Long memberId, String name) {
+        if (name == null) {
+            names.remove(memberId);
+            return;
+        }
+        names.put(memberId, name);
+        for (String gram : gramsOf(name)) {
+            grams.computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet()).add(memberId);
+        }
+    }
+
+    private static List<String> gramsOf(String name) {
+        if (name.length() < GRAM) {
+            return Collections.emptyList();
+        }
+        List<String> result = new ArrayList<>(name.length() - GRAM + 1);
+        for (int i = 0; i + GRAM <= name.length(); i++) {
+            result.add(name.substring(i, i + GRAM));
+        }
+        return result;
+    }
+}
@@ -2,10 +2,13 @@ package jpabook.jpashop.repository;
 
 import jpabook.jpashop.domain.Member;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.util.StringUtils;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.Collection;
 import java.util.List;
 
 @Repository // 자동으로 스프링 빈 관리 (Repository는 저장소를 의미한다) , Component를 포함하고 있다.
@@ -18,15 +21,92 @@ public class MemberRepository {
         em.persist(member);
     }
 
+    /**
+     * 쌓인 INSERT/UPDATE 를 바로 실행 (제약조건 위반을 이 시점에 확인하기 위해 사용)
+     */
+    public void flush() {
+        em.flush();
+    }
+
     public Member findOne(Long id) {
         return em.find(Member.class, id);
     }
 
     public List<Member> findAll() {
-        return em.createQuery("select m from Member m", Member.class).getResultList();
+        return em.createQuery("select m from Member m", Member.class)
+                .setHint(QueryHints.HINT_CACHEABLE, true) // 쿼리 캐시
+                .getResultList();
+    }
+
+    /**
+     * 회원 목록 화면: id 순 키셋 페이징, 필요한 컬럼만 DTO 로 조회 (쿼리 1번, pk 인덱스)
+     * @param afterId 이전 페이지의 마지막 회원 id (첫 페이지면 null)
+     */
+    public List<MemberListDto> findListPage(Long afterId, int limit) {
+        return em.createQuery("select new jpabook.jpashop.repository.MemberListDto(m.id, m.name, m.address)" +
+                        " from Member m where m.id > :afterId order by m.id", MemberListDto.class)
+                .setParameter("afterId", afterId == null ? 0L : afterId) // id 는 1 부터
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * 주문 화면 회원 선택: 이름 앞부분 검색을 id 순 키셋 페이징으로 (search_name 인덱스)
+     */
+    public List<MemberListDto> findListPageByNamePrefix(String prefix, Long afterId, int limit) {
+        if (!StringUtils.hasText(prefix)) {
+            return findListPage(afterId, limit); // 검색어가 없으면 조건 없이
+        }
+        return em.createQuery("select new jpabook.jpashop.repository.MemberListDto(m.id, m.name, m.address)" +
+                        " from Member m" +
+                        " where m.searchName like :prefix escape '!' and m.id > :afterId" +
+                        " order by m.id", MemberListDto.class)
+                .setParameter("prefix", escapeLike(Member.normalizeName(prefix)) + "%")
+                .setParameter("afterId", afterId == null ? 0L : afterId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    public List<Member> findAllById(Collection<Long> ids) {
+        return em.createQuery("select m from Member m where m.id in :ids", Member.class)
+                .setParameter("ids", ids)
+                .getResultList();
     }
 
     public List<Member> findByName(String name) {
         return em.createQuery("select m from Member m where m.name = :name", Member.class).setParameter("name", name).getResultList();
     }
+
+    /**
+     * 이름 앞부분 검색 (대소문자/앞뒤 공백 무시)
+     * - 정규화된 search_name 인덱스를 타도록 'prefix%' 형태로만 검색한다. ('%name%' 은 인덱스를 못 탄다)
+     * - 검색어의 %, _ 는 와일드카드가 아니라 문자 그대로 검색한다.
+     * - 검색어가 null 이거나 비어 있으면 조건 없이 같은 순서로 조회한다.
+     */
+    public List<Member> findByNamePrefix(String prefix, int limit) {
+        if (!StringUtils.hasText(prefix)) {
+            return em.createQuery("select m from Member m order by m.searchName, m.id", Member.class)
+                    .setMaxResults(limit)
+                    .getResultList();
+        }
+        return em.createQuery(
+                "select m from Member m" +
+                " where m.searchName like :prefix escape '!'" +
+                " order by m.searchName, m.id", Member.class)
+                .setParameter("prefix", escapeLike(Member.normalizeName(prefix)) + "%")
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * 이름 색인 생성용: 엔티티를 만들지 않고 (id, name) 만 읽는다.
+     */
+    public List<Object[]> findAllIdAndName() {
+        return em.createQuery("select m.id, m.name from Member m", Object[].class)
+                .getResultList();
+    }
+
+    static String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
 }
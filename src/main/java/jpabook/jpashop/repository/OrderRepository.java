@@ -3,86 +3,61 @@ package jpabook.jpashop.repository;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.QueryHints;
 import org.springframework.stereotype.Repository;
-import org.springframework.util.StringUtils;
 
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 @Repository
 @RequiredArgsConstructor
 public class OrderRepository {
     private final EntityManager em;
+    private final MemberNameIndex memberNameIndex;
 
     public void save(Order order) {
         em.persist(order);
     }
 
+    /**
+     * 대량 저장시 사용: 쌓인 INSERT 를 JDBC 배치로 내보내고, 영속성 컨텍스트를 비워서 메모리가 늘어나지 않게 한다.
+     */
+    public void flushAndClear() {
+        em.flush();
+        em.clear();
+    }
+
     public Order findOne(Long id) {
         return em.find(Order.class, id);
     }
 
-    public List<Order> findAllByString(OrderSearch orderSearch) {
-//        em.createQuery("select o from Order o join o.member m" +
-//                " where o.status = :status" +
-//                " and m.name like :name", Order.class)
-//                .setParameter("status", orderSearch.getOrderStatus())
-//                .setParameter("name", orderSearch.getMemberName())
-//                // .setFirstPosition(100) -> 페이징 할때 유용 100부터 1000개 가져오는..
-//                .setMaxResults(1000)
-//                .getResultList();
-        //language=JPQL
-        String jpql = "select o From Order o join o.member m";
-        boolean isFirstCondition = true;
-
-        //주문 상태 검색
-        if (orderSearch.getOrderStatus() != null) {
-            if (isFirstCondition) {
-                jpql += " where";
-                isFirstCondition = false;
-            } else {
-                jpql += " and";
-            }
-            jpql += " o.status = :status";
-        }
-
-        //회원 이름 검색
-        if (StringUtils.hasText(orderSearch.getMemberName())) {
-            if (isFirstCondition) {
-                jpql += " where";
-                isFirstCondition = false;
-            } else {
-                jpql += " and";
-            }
-            jpql += " m.name like :name";
-        }
-
-        TypedQuery<Order> query = em.createQuery(jpql, Order.class)
-                .setMaxResults(1000); //최대 1000건
-
-        if (orderSearch.getOrderStatus() != null) {
-            query = query.setParameter("status", orderSearch.getOrderStatus());
+    /**
+     * 주문 검색 (동적 쿼리)
+     * - 조건 조합 x 정렬 마다 미리 정해진 JPQL 하나만 사용한다. (OrderSearchQuery 참고)
+     *   요청마다 문자열을 이어붙여 만들지 않으므로, 같은 조합이면 Hibernate 쿼리 플랜 캐시를 재사용한다.
+     * - page/size 로 페이징 (size 기본 20, 최대 1000)
+     * - 회원 이름은 '포함' 검색: 회원 이름 색인으로 회원 id 를 먼저 찾고 주문은 m.id in (...) 으로 조회한다.
+     *   찾은 회원이 너무 많거나 색인이 준비되지 않았으면 '%name%' 검색으로 대신한다.
+     */
+    public List<Order> findAll(OrderSearch orderSearch) {
+        OrderSearchQuery searchQuery = OrderSearchQuery.resolve(orderSearch, memberNameIndex);
+        if (searchQuery.matchesNothing()) {
+            return Collections.emptyList();
         }
 
-        if (StringUtils.hasText(orderSearch.getMemberName())) {
-            query = query.setParameter("name", orderSearch.getMemberName());
-        }
+        TypedQuery<Order> query = em.createQuery(searchQuery.getJpql(), Order.class);
+        searchQuery.bind(query);
 
-        return query.getResultList();
+        int size = orderSearch.getPageSize();
+        return query
+                .setFirstResult(orderSearch.getPage() * size)
+                .setMaxResults(size)
+                .getResultList();
     }
 
-
-    /**
-     * JPA Criteria
-     *
-     * @param //orderSearch
-     * @return
-     */
-//    public List<Order> findAllByCriteria(OrderSearch orderSearch) {
-//
-//    }
-
     /**
      * fetch join 전략: 쿼리 한번으로 최적화
      * 실제 sql문에서는 join한 m.*, d.* 도 함께 select 된다.
@@ -111,7 +86,64 @@ public class OrderRepository {
                 " join fetch o.member m" +
                 " join fetch o.delivery d" +
                 " join fetch o.orderItems io" + // orders->order_item 이 일대다 관계 -> 중복 데이터가 발생
-                " join fetch io.item i", Order.class).getResultList();
+                " join fetch io.item i", Order.class)
+                .setHint(QueryHints.HINT_PASS_DISTINCT_THROUGH, false) // 중복 제거는 애플리케이션에서만 (SQL 에는 distinct 를 넣지 않음)
+                .getResultList();
+    }
+
+    /**
+     * 컬렉션 페치 조인 + 페이징 (2단계 조회)
+     * - 컬렉션 페치 조인에 setMaxResults 를 쓰면 Hibernate 가 전체를 읽어서 메모리에서 페이징한다. (HHH000104 경고)
+     * - 1단계: 주문 (id, version) 만 DB 에서 페이징해서 조회 (order by + limit, 조인 없음) - JSON 조각 캐시 확인에도 쓴다.
+     * - 2단계: 그 id 들의 주문을 member, delivery, orderItems, item 까지 한번에 페치 조인으로 조회 (findAllWithItemByIds)
+     * - 페이지 크기와 상관없이 쿼리 2번, 메모리 페이징 없음
+     * @param limit 0 이하면 전체
+     */
+    public List<Object[]> findIdAndVersion(int offset, int limit) {
+        TypedQuery<Object[]> query = em.createQuery("select o.id, o.version from Order o order by o.id", Object[].class)
+                .setFirstResult(offset);
+        if (limit > 0) {
+            query.setMaxResults(limit);
+        }
+        return query.getResultList();
+    }
+
+    /**
+     * JSON 조각 캐시용: 회원 이름이 바뀌면 지울 주문 id
+     */
+    public List<Long> findIdsByMember(Long memberId) {
+        return em.createQuery("select o.id from Order o where o.member.id = :memberId", Long.class)
+                .setParameter("memberId", memberId)
+                .getResultList();
+    }
+
+    /**
+     * JSON 조각 캐시용: 상품 이름이 바뀌면 지울 주문 id
+     */
+    public List<Long> findIdsByItem(Long itemId) {
+        return em.createQuery("select distinct oi.order.id from OrderItem oi where oi.item.id = :itemId", Long.class)
+                .setParameter("itemId", itemId)
+                .getResultList();
+    }
+
+    /**
+     * 2단계: id 페이지의 주문을 컬렉션까지 페치 조인
+     * - 주문 상품이 없는 주문도 페이지에서 빠지지 않도록 orderItems 는 left join (빠지면 페이지가 size 보다 짧아진다)
+     */
+    public List<Order> findAllWithItemByIds(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return em.createQuery("select distinct o from Order o" +
+                " join fetch o.member m" +
+                " join fetch o.delivery d" +
+                " left join fetch o.orderItems io" +
+                " left join fetch io.item i" +
+                " where o.id in :orderIds" +
+                " order by o.id", Order.class)
+                .setParameter("orderIds", orderIds)
+                .setHint(QueryHints.HINT_PASS_DISTINCT_THROUGH, false)
+                .getResultList();
     }
 
 
@@ -129,4 +161,30 @@ public class OrderRepository {
                 .setMaxResults(limit)
                 .getResultList();
     }
+
+    /**
+     * 키셋(seek) 페이징: offset 만큼 읽고 버리는 대신 order_id(PK 인덱스)로 바로 탐색한다.
+     * - afterId 가 null 이면 첫 페이지
+     * - 페이지 깊이와 상관없이 limit 만큼만 읽으므로 응답 시간이 일정하다.
+     * - ToOne 관계는 페치 조인, 컬렉션은 default_batch_fetch_size 로 조회한다. (V3.1과 동일)
+     */
+    public List<Order> findAllWithMemberDeliveryAfter(Long afterId, int limit) {
+        TypedQuery<Order> query;
+        if (afterId == null) {
+            query = em.createQuery(
+                    "select o from Order o" +
+                            " join fetch o.member m" +
+                            " join fetch o.delivery d" +
+                            " order by o.id", Order.class);
+        } else {
+            query = em.createQuery(
+                    "select o from Order o" +
+                            " join fetch o.member m" +
+                            " join fetch o.delivery d" +
+                            " where o.id > :afterId" +
+                            " order by o.id", Order.class)
+                    .setParameter("afterId", afterId);
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
 }
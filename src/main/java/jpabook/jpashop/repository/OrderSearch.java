@@ -1,13 +1,44 @@
 package jpabook.jpashop.repository;
 
+import jpabook.jpashop.domain.DeliveryStatus;
 import jpabook.jpashop.domain.OrderStatus;
 import lombok.Getter;
 import lombok.Setter;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
 
 @Getter
 @Setter
 public class OrderSearch {
+    public static final int DEFAULT_SIZE = 20; // size 를 넘기지 않은 API/화면 요청
+    public static final int MAX_SIZE = 1000;
+
     private String memberName; // 회원 이름
     private OrderStatus orderStatus; // 주문 상태 [ ORDER, CANCEL ]
 
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime orderDateFrom; // 주문 일시 (이상)
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime orderDateTo; // 주문 일시 (미만)
+
+    private Long itemId; // 주문 상품
+    private DeliveryStatus deliveryStatus; // 배송 상태 [ READY, COMP ]
+
+    private OrderSort sort; // 정렬 (기본 최신 주문순)
+    private int page; // 0 부터
+    private Long afterId; // 키셋 페이징: 이전 페이지의 마지막 주문 id (있으면 page 대신 사용)
+    private int size = DEFAULT_SIZE;
+
+    public OrderSort getSortOrDefault() {
+        return sort != null ? sort : OrderSort.ID_DESC;
+    }
+
+    public int getPageSize() {
+        return Math.min(Math.max(size, 1), MAX_SIZE);
+    }
+
+    public int getPage() {
+        return afterId != null ? 0 : Math.max(page, 0);
+    }
 }
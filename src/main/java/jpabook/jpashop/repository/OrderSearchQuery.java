@@ -0,0 +1,174 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Member;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.SortedSet;
+
+/**
+ * 주문 검색 JPQL
+ * - 어떤 조건이 들어왔는지(비트마스크)와 정렬만으로 JPQL 이 정해진다. (조건 8개 -> 256가지 x 정렬 4가지)
+ * - 가능한 JPQL 을 처음에 한번 모두 만들어두고 재사용하므로, 요청마다 문자열을 이어붙이지 않고
+ *   같은 조합은 항상 같은 문자열 -> Hibernate 쿼리 플랜 캐시에서 파싱 결과를 재사용한다. (히트율: OrderSearchBenchmark)
+ * - 값은 모두 파라미터로 바인딩한다. (값을 JPQL 문자열에 넣으면 값마다 다른 쿼리가 되어 플랜 캐시를 채워버린다)
+ * - 같은 조건을 주문 엔티티(Order)와 목록 조회 테이블(OrderSummary) 양쪽에 대해 만든다.
+ *   OrderSummary 는 조인 없이 order_summary 테이블 하나만 읽는다. (상품, 배송 상태 조건만 exists)
+ */
+final class OrderSearchQuery {
+    static final int STATUS = 1;
+    static final int MEMBER_NAME = 1 << 1;
+    static final int DATE_FROM = 1 << 2;
+    static final int DATE_TO = 1 << 3;
+    static final int ITEM = 1 << 4;
+    static final int DELIVERY_STATUS = 1 << 5;
+    static final int MEMBER_IDS = 1 << 6;
+    static final int AFTER = 1 << 7; // 키셋 페이징 (afterId 다음부터)
+    private static final int CONDITION_COUNT = 8;
+    private static final int MAX_MEMBER_IDS = 1000;
+
+    private static final OrderSort[] SORTS = OrderSort.values();
+    private static final String[] JPQL = new String[(1 << CONDITION_COUNT) * SORTS.length];
+    private static final String[] SUMMARY_JPQL = new String[JPQL.length];
+
+    static {
+        for (int mask = 0; mask < (1 << CONDITION_COUNT); mask++) {
+            for (OrderSort sort : SORTS) {
+                JPQL[index(mask, sort)] = build(mask, sort);
+                SUMMARY_JPQL[index(mask, sort)] = buildSummary(mask, sort);
+            }
+        }
+    }
+
+    private final OrderSearch search;
+    private final Collection<Long> memberIds;
+    private final int mask;
+    private boolean matchesNothing;
+
+    private OrderSearchQuery(OrderSearch search, Collection<Long> memberIds, int mask) {
+        this.search = search;
+        this.memberIds = memberIds;
+        this.mask = mask;
+    }
+
+    /**
+     * 회원 이름은 '포함' 검색: 회원 이름 색인으로 회원 id 를 먼저 찾고 m.id in (...) 으로 조회한다.
+     * 찾은 회원이 너무 많거나 색인이 준비되지 않았으면 '%name%' 검색으로 대신한다.
+     * 이름에 맞는 회원이 한 명도 없으면 matchesNothing() -> 쿼리를 실행할 필요가 없다.
+     */
+    static OrderSearchQuery resolve(OrderSearch search, MemberNameIndex memberNameIndex) {
+        Collection<Long> memberIds = null;
+        boolean matchesNothing = false;
+        if (StringUtils.hasText(search.getMemberName()) && memberNameIndex.isReady()) {
+            SortedSet<Long> ids = memberNameIndex.findMemberIdsContaining(search.getMemberName());
+            if (ids.isEmpty()) {
+                matchesNothing = true;
+            } else if (ids.size() <= MAX_MEMBER_IDS) {
+                memberIds = ids;
+            }
+        }
+        OrderSearchQuery query = of(search, memberIds);
+        query.matchesNothing = matchesNothing;
+        return query;
+    }
+
+    /**
+     * @param memberIds 회원 이름 색인으로 미리 찾은 회원 id (null 이면 회원 이름으로 DB 에서 검색)
+     */
+    static OrderSearchQuery of(OrderSearch search, Collection<Long> memberIds) {
+        int mask = 0;
+        if (search.getOrderStatus() != null) mask |= STATUS;
+        if (memberIds != null) mask |= MEMBER_IDS;
+        else if (StringUtils.hasText(search.getMemberName())) mask |= MEMBER_NAME;
+        if (search.getOrderDateFrom() != null) mask |= DATE_FROM;
+        if (search.getOrderDateTo() != null) mask |= DATE_TO;
+        if (search.getItemId() != null) mask |= ITEM;
+        if (search.getDeliveryStatus() != null) mask |= DELIVERY_STATUS;
+        if (search.getAfterId() != null) mask |= AFTER;
+        return new OrderSearchQuery(search, memberIds, mask);
+    }
+
+    boolean matchesNothing() {
+        return matchesNothing;
+    }
+
+    String getJpql() {
+        return JPQL[index(mask, search.getSortOrDefault())];
+    }
+
+    /**
+     * OrderSummary 를 조회하는 JPQL (파라미터 이름은 getJpql 과 같으므로 bind 를 그대로 사용)
+     */
+    String getSummaryJpql() {
+        return SUMMARY_JPQL[index(mask, search.getSortOrDefault())];
+    }
+
+    void bind(TypedQuery<?> query) {
+        if (has(STATUS)) query.setParameter("status", search.getOrderStatus());
+        if (has(MEMBER_NAME)) query.setParameter("name", "%" + MemberRepository.escapeLike(Member.normalizeName(search.getMemberName())) + "%");
+        if (has(MEMBER_IDS)) query.setParameter("memberIds", memberIds);
+        if (has(DATE_FROM)) query.setParameter("dateFrom", search.getOrderDateFrom());
+        if (has(DATE_TO)) query.setParameter("dateTo", search.getOrderDateTo());
+        if (has(ITEM)) query.setParameter("itemId", search.getItemId());
+        if (has(DELIVERY_STATUS)) query.setParameter("deliveryStatus", search.getDeliveryStatus());
+        if (has(AFTER)) query.setParameter("afterId", search.getAfterId());
+    }
+
+    private boolean has(int condition) {
+        return (mask & condition) != 0;
+    }
+
+    private static int index(int mask, OrderSort sort) {
+        return mask * SORTS.length + sort.ordinal();
+    }
+
+    private static String build(int mask, OrderSort sort) {
+        StringBuilder jpql = new StringBuilder("select o from Order o join o.member m");
+        if ((mask & DELIVERY_STATUS) != 0) {
+            jpql.append(" join o.delivery d");
+        }
+
+        List<String> where = new ArrayList<>();
+        if ((mask & STATUS) != 0) where.add("o.status = :status");
+        if ((mask & MEMBER_NAME) != 0) where.add("m.searchName like :name escape '!'");
+        if ((mask & MEMBER_IDS) != 0) where.add("m.id in :memberIds");
+        if ((mask & DATE_FROM) != 0) where.add("o.orderDate >= :dateFrom");
+        if ((mask & DATE_TO) != 0) where.add("o.orderDate < :dateTo");
+        // 주문 상품 조건은 조인하면 주문이 라인 수만큼 중복되므로 exists 로 처리
+        if ((mask & ITEM) != 0) where.add("exists (select oi.id from OrderItem oi where oi.order = o and oi.item.id = :itemId)");
+        if ((mask & DELIVERY_STATUS) != 0) where.add("d.status = :deliveryStatus");
+        if ((mask & AFTER) != 0) where.add(sort.getKeysetJpql("Order"));
+
+        if (!where.isEmpty()) {
+            jpql.append(" where ").append(String.join(" and ", where));
+        }
+        jpql.append(" order by ").append(sort.getJpql());
+        return jpql.toString();
+    }
+
+    // 정렬(OrderSort)이 o.id, o.orderDate 를 쓰므로 별칭은 똑같이 o
+    private static String buildSummary(int mask, OrderSort sort) {
+        StringBuilder jpql = new StringBuilder("select o from OrderSummary o");
+
+        List<String> where = new ArrayList<>();
+        if ((mask & STATUS) != 0) where.add("o.status = :status");
+        if ((mask & MEMBER_NAME) != 0) where.add("o.memberSearchName like :name escape '!'");
+        if ((mask & MEMBER_IDS) != 0) where.add("o.memberId in :memberIds");
+        if ((mask & DATE_FROM) != 0) where.add("o.orderDate >= :dateFrom");
+        if ((mask & DATE_TO) != 0) where.add("o.orderDate < :dateTo");
+        // 상품 조건은 주문 상품 테이블을 봐야 한다. (order_item 의 order_id 로 exists)
+        if ((mask & ITEM) != 0) where.add("exists (select oi.id from OrderItem oi where oi.order.id = o.id and oi.item.id = :itemId)");
+        // 배송 상태는 주문과 따로 바뀌므로 order_summary 에 복사하지 않고 delivery 를 본다.
+        if ((mask & DELIVERY_STATUS) != 0) where.add("exists (select od.id from Order od join od.delivery d where od.id = o.id and d.status = :deliveryStatus)");
+        if ((mask & AFTER) != 0) where.add(sort.getKeysetJpql("OrderSummary"));
+
+        if (!where.isEmpty()) {
+            jpql.append(" where ").append(String.join(" and ", where));
+        }
+        jpql.append(" order by ").append(sort.getJpql());
+        return jpql.toString();
+    }
+}
@@ -0,0 +1,46 @@
+package jpabook.jpashop.repository;
+
+/**
+ * 주문 검색 정렬 (페이징이 흔들리지 않도록 항상 o.id 를 마지막 기준으로 포함)
+ * - keyset: 키셋 페이징 조건. 마지막으로 본 주문(:afterId) 의 정렬 값 다음부터 읽는다.
+ *   주문일시 정렬은 커서에 일시를 담지 않고 서브쿼리(pk 조회)로 마지막 주문의 일시를 읽는다.
+ */
+public enum OrderSort {
+    ID_DESC("o.id desc", "o.id < :afterId", false),
+    ID_ASC("o.id asc", "o.id > :afterId", false),
+    ORDER_DATE_DESC("o.orderDate desc, o.id desc",
+            "(o.orderDate < (select k.orderDate from {entity} k where k.id = :afterId)" +
+            " or (o.orderDate = (select k.orderDate from {entity} k where k.id = :afterId) and o.id < :afterId))", true),
+    ORDER_DATE_ASC("o.orderDate asc, o.id asc",
+            "(o.orderDate > (select k.orderDate from {entity} k where k.id = :afterId)" +
+            " or (o.orderDate = (select k.orderDate from {entity} k where k.id = :afterId) and o.id > :afterId))", true);
+
+    private final String jpql;
+    private final String keyset;
+    private final boolean keysetReadsCursorRow;
+
+    OrderSort(String jpql, String keyset, boolean keysetReadsCursorRow) {
+        this.jpql = jpql;
+        this.keyset = keyset;
+        this.keysetReadsCursorRow = keysetReadsCursorRow;
+    }
+
+    /**
+     * 키셋 조건이 :afterId 주문의 값을 읽으면 true. 없는 주문이면 서브쿼리가 null 이 되어 빈 페이지가 나오므로
+     * 호출하는 쪽에서 afterId 주문이 있는지 먼저 확인한다. (OrderService)
+     */
+    public boolean isKeysetReadsCursorRow() {
+        return keysetReadsCursorRow;
+    }
+
+    String getJpql() {
+        return jpql;
+    }
+
+    /**
+     * @param entity 조회 대상 엔티티 이름 (Order, OrderSummary)
+     */
+    String getKeysetJpql(String entity) {
+        return keyset.replace("{entity}", entity);
+    }
+}
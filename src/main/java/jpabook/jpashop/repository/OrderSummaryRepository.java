@@ -0,0 +1,80 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.OrderSummary;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 주문 목록 조회 테이블 (order_summary)
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderSummaryRepository {
+    private final EntityManager em;
+    private final MemberNameIndex memberNameIndex;
+
+    public void save(OrderSummary summary) {
+        em.persist(summary);
+    }
+
+    public OrderSummary findOne(Long orderId) {
+        return em.find(OrderSummary.class, orderId);
+    }
+
+    /**
+     * 주문 검색 - OrderRepository.findAll 과 같은 조건/정렬/페이징을 order_summary 테이블 하나로 처리한다.
+     * (조인 없음, 상품 조건만 order_item exists)
+     * - afterId 가 있으면 offset 대신 키셋 조건으로 다음 페이지를 읽는다.
+     * - 화면 표시용이므로 읽기 전용으로 조회한다. (변경 감지용 스냅샷을 만들지 않음)
+     */
+    public List<OrderSummary> findAll(OrderSearch orderSearch) {
+        OrderSearchQuery searchQuery = OrderSearchQuery.resolve(orderSearch, memberNameIndex);
+        if (searchQuery.matchesNothing()) {
+            return Collections.emptyList();
+        }
+
+        TypedQuery<OrderSummary> query = em.createQuery(searchQuery.getSummaryJpql(), OrderSummary.class);
+        searchQuery.bind(query);
+
+        int size = orderSearch.getPageSize();
+        return query
+                .setHint(QueryHints.HINT_READONLY, true)
+                .setFirstResult(orderSearch.getPage() * size)
+                .setMaxResults(size)
+                .getResultList();
+    }
+
+    /**
+     * 목록 조회 테이블이 아직 없는 주문 id (id 순, afterId 다음부터)
+     */
+    public List<Long> findOrderIdsWithoutSummary(Long afterId, int limit) {
+        return em.createQuery("select o.id from Order o" +
+                        " where o.id > :afterId" +
+                        " and not exists (select s.id from OrderSummary s where s.id = o.id)" +
+                        " order by o.id", Long.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * 회원 이름 변경을 반영 (벌크 UPDATE, 회원의 주문 수와 상관없이 쿼리 1번)
+     * 벌크 연산은 영속성 컨텍스트를 거치지 않으므로, 같은 트랜잭션에서 이미 읽은 OrderSummary 는 옛 이름을 가지고 있다.
+     */
+    public int updateMemberName(Long memberId, String name) {
+        return em.createQuery("update OrderSummary s" +
+                        " set s.memberName = :name, s.memberSearchName = :searchName" +
+                        " where s.memberId = :memberId")
+                .setParameter("name", name)
+                .setParameter("searchName", Member.normalizeName(name))
+                .setParameter("memberId", memberId)
+                .executeUpdate();
+    }
+}
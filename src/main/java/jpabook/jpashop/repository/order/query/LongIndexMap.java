@@ -0,0 +1,65 @@
+package jpabook.jpashop.repository.order.query;
+
+/**
+ * long 키 -> int 인덱스 맵 (주문 id -> 결과 리스트 위치)
+ * - HashMap&lt;Long, ...&gt; 은 키마다 Long 객체와 Entry 객체를 만든다. 수만 건이면 그만큼 GC 부담이 된다.
+ * - 크기를 미리 정해서 만들고(리사이즈 없음), 배열 두 개로 open addressing(linear probing) 한다.
+ * - 삭제는 지원하지 않는다. 한 스레드에서 만들고 나면 읽기만 여러 스레드에서 해도 된다.
+ */
+public final class LongIndexMap {
+    private final long[] keys;
+    private final int[] values; // index + 1 을 저장, 0 이면 빈 칸
+    private final int mask;
+    private int size;
+
+    public LongIndexMap(int expectedSize) {
+        // 사용률 50% 이하로 유지
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+    public void put(long key, int index) {
+        if (index < 0) {
+            throw new IllegalArgumentException("index must not be negative: " + index);
+        }
+        int slot = slot(key);
+        while (values[slot] != 0) {
+            if (keys[slot] == key) {
+                values[slot] = index + 1;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size >= (keys.length >> 1)) {
+            throw new IllegalStateException("LongIndexMap is full: " + size);
+        }
+        keys[slot] = key;
+        values[slot] = index + 1;
+        size++;
+    }
+
+    /**
+     * 없으면 -1
+     */
+    public int get(long key) {
+        int slot = slot(key);
+        while (values[slot] != 0) {
+            if (keys[slot] == key) {
+                return values[slot] - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
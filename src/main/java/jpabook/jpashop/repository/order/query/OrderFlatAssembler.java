@@ -0,0 +1,70 @@
+package jpabook.jpashop.repository.order.query;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 플랫 조회 결과(V6, 주문 헤더가 라인 수만큼 반복되는 row)를 주문 단위 OrderQueryDto 로 묶는다.
+ */
+public final class OrderFlatAssembler {
+
+    private OrderFlatAssembler() {
+    }
+
+    /**
+     * 순서와 상관없이 묶기 (주문은 처음 나온 순서대로)
+     * - 주문 id -> 위치는 LongIndexMap, 라인은 OrderLineStore 에 쌓았다가 한번에 배치한다.
+     *   (groupingBy 처럼 Long 박싱, 주문별 HashMap Entry/ArrayList 재할당이 없다)
+     */
+    public static List<OrderQueryDto> group(List<OrderFlatDto> rows) {
+        LongIndexMap orderIndex = new LongIndexMap(rows.size());
+        long[] orderIds = new long[rows.size()];
+        List<OrderQueryDto> orders = new ArrayList<>();
+        OrderLineStore lines = new OrderLineStore(rows.size());
+
+        for (OrderFlatDto row : rows) {
+            long orderId = row.getOrderId();
+            int index = orderIndex.get(orderId);
+            if (index < 0) {
+                index = orders.size();
+                orderIndex.put(orderId, index);
+                orderIds[index] = orderId;
+                orders.add(toHeader(row));
+            }
+            lines.add(index, row.getItemName(), row.getOrderPrice(), row.getCount());
+        }
+
+        List<List<OrderItemQueryDto>> itemLists = lines.toItemLists(orderIds, orders.size());
+        for (int i = 0; i < orders.size(); i++) {
+            orders.get(i).setOrderItems(itemLists.get(i));
+        }
+        return orders;
+    }
+
+    /**
+     * order_id 순으로 정렬된 row 를 읽으면서 주문이 완성될 때마다 넘겨준다. (메모리에는 현재 주문 1건만)
+     */
+    public static void forEachOrder(Iterator<OrderFlatDto> rowsSortedByOrderId, Consumer<OrderQueryDto> action) {
+        OrderQueryDto current = null;
+        while (rowsSortedByOrderId.hasNext()) {
+            OrderFlatDto row = rowsSortedByOrderId.next();
+            if (current == null || !current.getOrderId().equals(row.getOrderId())) {
+                if (current != null) {
+                    action.accept(current);
+                }
+                current = toHeader(row);
+                current.setOrderItems(new ArrayList<>(4));
+            }
+            current.getOrderItems().add(new OrderItemQueryDto(row.getOrderId(), row.getItemName(), row.getOrderPrice(), row.getCount()));
+        }
+        if (current != null) {
+            action.accept(current);
+        }
+    }
+
+    private static OrderQueryDto toHeader(OrderFlatDto row) {
+        return new OrderQueryDto(row.getOrderId(), row.getName(), row.getOrderDate(), row.getOrderStatus(), row.getAddress());
+    }
+}
@@ -0,0 +1,77 @@
+package jpabook.jpashop.repository.order.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 주문 라인(상품명, 가격, 수량)을 주문 위치(index)와 함께 배열에 순서대로 쌓아두는 저장소
+ * - 라인마다 리스트에 넣으면 주문마다 ArrayList 가 생기고 크기가 모자랄 때마다 배열을 다시 만든다.
+ * - 다 쌓은 뒤 주문별 개수를 세서(counting sort) 한 배열에 주문 순서대로 배치하고, 주문별 리스트는 그 배열의 구간(subList)으로 만든다.
+ */
+public final class OrderLineStore {
+    private int size;
+    private int[] orderIndexes;
+    private String[] itemNames;
+    private int[] orderPrices;
+    private int[] counts;
+
+    public OrderLineStore(int expectedLines) {
+        int capacity = Math.max(expectedLines, 16);
+        this.orderIndexes = new int[capacity];
+        this.itemNames = new String[capacity];
+        this.orderPrices = new int[capacity];
+        this.counts = new int[capacity];
+    }
+
+    public void add(int orderIndex, String itemName, int orderPrice, int count) {
+        if (size == orderIndexes.length) {
+            int capacity = size + (size >> 1);
+            orderIndexes = Arrays.copyOf(orderIndexes, capacity);
+            itemNames = Arrays.copyOf(itemNames, capacity);
+            orderPrices = Arrays.copyOf(orderPrices, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        orderIndexes[size] = orderIndex;
+        itemNames[size] = itemName;
+        orderPrices[size] = orderPrice;
+        counts[size] = count;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 주문 위치별 라인 목록 (같은 주문 안에서는 쌓인 순서 유지)
+     * @param orderIds 주문 위치 -> 주문 id
+     */
+    public List<List<OrderItemQueryDto>> toItemLists(long[] orderIds, int orderCount) {
+        // 주문별 시작 위치
+        int[] offsets = new int[orderCount + 1];
+        for (int i = 0; i < size; i++) {
+            offsets[orderIndexes[i] + 1]++;
+        }
+        for (int i = 0; i < orderCount; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+
+        OrderItemQueryDto[] sorted = new OrderItemQueryDto[size];
+        int[] cursor = Arrays.copyOf(offsets, orderCount);
+        for (int i = 0; i < size; i++) {
+            int orderIndex = orderIndexes[i];
+            sorted[cursor[orderIndex]++] = new OrderItemQueryDto(orderIds[orderIndex], itemNames[i], orderPrices[i], counts[i]);
+        }
+
+        List<OrderItemQueryDto> all = Arrays.asList(sorted);
+        List<List<OrderItemQueryDto>> result = new ArrayList<>(orderCount);
+        for (int i = 0; i < orderCount; i++) {
+            result.add(offsets[i] == offsets[i + 1]
+                    ? Collections.emptyList()
+                    : all.subList(offsets[i], offsets[i + 1]));
+        }
+        return result;
+    }
+}
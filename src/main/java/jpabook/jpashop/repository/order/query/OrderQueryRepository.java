@@ -1,17 +1,40 @@
 package jpabook.jpashop.repository.order.query;
 
-import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Repository
-@RequiredArgsConstructor
 public class OrderQueryRepository {
     private final EntityManager em;
+    private final Executor orderQueryExecutor;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int inChunkSize;
+
+    public OrderQueryRepository(EntityManager em,
+                                PlatformTransactionManager transactionManager,
+                                @Qualifier("orderQueryExecutor") Executor orderQueryExecutor,
+                                @Value("${jpashop.order-query.in-chunk-size:1000}") int inChunkSize) {
+        this.em = em;
+        this.orderQueryExecutor = orderQueryExecutor;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true); // replica 라우팅 (ReplicaRoutingDataSource)
+        this.inChunkSize = Math.max(1, inChunkSize);
+    }
 
 
     /**
@@ -52,38 +75,110 @@ public class OrderQueryRepository {
 
     /**
     * 최적화
-    * Query: 루트 1번, 컬렉션 1번
+    * Query: 루트 1번, 컬렉션 1번 (주문이 chunkSize 보다 많으면 컬렉션은 chunkSize 개씩 나눠서 동시에)
     * 데이터를 한꺼번에 처리할 때 많이 사용하는 방식
     */
     public List<OrderQueryDto> findAllByDto_optimization() {
+        return findAllByDto_optimization(inChunkSize);
+    }
+
+    List<OrderQueryDto> findAllByDto_optimization(int chunkSize) {
         // 루트 조회 (toOne 코드를 모두 한번에 조회)
         List<OrderQueryDto> result = findOrders();
 
-        // orderItem 컬렉션을 MAP 한방에 조회
-        Map<Object, List<OrderItemQueryDto>> orderItemMap = findOrderItemMap(toOrderIds(result));
-
-        // 루프를 돌면서 컬렉션 추가 (추가 쿼리 실행X)
-        result.forEach(
-                o->o.setOrderItems(orderItemMap.get(o.getOrderId()))
-        );
+        // 주문 id -> result 위치
+        long[] orderIds = new long[result.size()];
+        LongIndexMap orderIndex = new LongIndexMap(result.size());
+        for (int i = 0; i < result.size(); i++) {
+            orderIds[i] = result.get(i).getOrderId();
+            orderIndex.put(orderIds[i], i);
+        }
+
+        // orderItem 컬렉션을 IN 절로 조회
+        List<List<OrderItemQueryDto>> chunks = findOrderItemChunks(orderIds, chunkSize);
+
+        // 주문별 개수를 먼저 세서 딱 맞는 크기의 리스트에 붙인다. (추가 쿼리 실행X)
+        int[] itemCounts = new int[result.size()];
+        for (List<OrderItemQueryDto> orderItems : chunks) {
+            for (OrderItemQueryDto orderItem : orderItems) {
+                itemCounts[orderIndex.get(orderItem.getOrderId())]++;
+            }
+        }
+        for (int i = 0; i < result.size(); i++) {
+            result.get(i).setOrderItems(new ArrayList<>(itemCounts[i]));
+        }
+        for (List<OrderItemQueryDto> orderItems : chunks) {
+            for (OrderItemQueryDto orderItem : orderItems) {
+                result.get(orderIndex.get(orderItem.getOrderId())).getOrderItems().add(orderItem);
+            }
+        }
 
         return result;
     }
 
-    private List<Long> toOrderIds(List<OrderQueryDto> result) {
-        List<Long> orderIds = result.stream()
-                .map(o -> o.getOrderId()).collect(Collectors.toList());
-        return orderIds;
+    /**
+     * IN 절 목록을 chunkSize 개씩 나눠서 조회
+     * - IN 절에 수만 개를 넣으면 DB 제한(Oracle 1000개 등)에 걸리고, 큰 쿼리 하나가 한 스레드에서만 실행된다.
+     * - 나눠진 조회는 전용 스레드 풀에서 동시에 실행된다. 각자 읽기 전용 트랜잭션(커넥션)을 따로 열어서 조회하고,
+     *   read-your-writes 고정(PrimaryStickiness)과 SQL 통계는 스레드 풀의 ApiTaskDecorator 가 넘겨준다.
+     *   -> replica 라우팅은 호출한 쪽과 똑같이 적용되고, 작업 스레드의 SQL 도 요청의 SqlStats 에 모인다.
+     *   -> 다른 커넥션이므로 호출한 트랜잭션의 변경 내용은 보이지 않는다. (커밋된 데이터를 읽는 조회/export 용)
+     * - 스레드 풀에 남는 스레드가 없으면 그 조각은 현재 EntityManager(호출한 트랜잭션의 커넥션)로 직접 조회한다.
+     *   요청 하나가 커넥션을 여러 개 잡지 않고, 풀 전체의 추가 커넥션은 스레드 수를 넘지 않는다. (OrderQueryExecutorConfig)
+     * - 한 번에 끝나는 크기면 나누지 않고 현재 EntityManager 로 조회한다.
+     */
+    private List<List<OrderItemQueryDto>> findOrderItemChunks(long[] orderIds, int chunkSize) {
+        if (orderIds.length == 0) {
+            return Collections.emptyList();
+        }
+        if (orderIds.length <= chunkSize) {
+            return Collections.singletonList(findOrderItems(em, toList(orderIds, 0, orderIds.length)));
+        }
+
+        List<CompletableFuture<List<OrderItemQueryDto>>> futures = new ArrayList<>();
+        for (int from = 0; from < orderIds.length; from += chunkSize) {
+            List<Long> chunk = toList(orderIds, from, Math.min(from + chunkSize, orderIds.length));
+            CompletableFuture<List<OrderItemQueryDto>> future;
+            try {
+                future = CompletableFuture.supplyAsync(() -> findOrderItemsReadOnly(chunk), orderQueryExecutor);
+            } catch (RejectedExecutionException e) {
+                future = CompletableFuture.completedFuture(findOrderItems(em, chunk)); // 남는 스레드 없음
+            }
+            futures.add(future);
+        }
+
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            futures.forEach(f -> f.cancel(false));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+    }
+
+    // 작업 스레드에서 실행: 스레드에 묶인 새 읽기 전용 트랜잭션 안에서 공유 EntityManager 로 조회
+    private List<OrderItemQueryDto> findOrderItemsReadOnly(List<Long> orderIds) {
+        return readOnlyTransaction.execute(status -> findOrderItems(em, orderIds));
     }
 
-    private Map<Object, List<OrderItemQueryDto>> findOrderItemMap(List<Long> orderIds) {
-        List<OrderItemQueryDto> orderItems = em.createQuery("select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count) from OrderItem oi" +
+    private static List<OrderItemQueryDto> findOrderItems(EntityManager em, List<Long> orderIds) {
+        return em.createQuery("select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count) from OrderItem oi" +
                 " join oi.item i" +
-                " where oi.order.id in :orderIds", OrderItemQueryDto.class).setParameter("orderIds", orderIds).getResultList();
+                " where oi.order.id in :orderIds", OrderItemQueryDto.class)
+                .setParameter("orderIds", orderIds)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .getResultList();
+    }
 
-        Map<Object, List<OrderItemQueryDto>> orderItemMap = orderItems.stream()
-                .collect(Collectors.groupingBy(orderItemQueryDto -> orderItemQueryDto.getOrderId()));
-        return orderItemMap;
+    private static List<Long> toList(long[] ids, int from, int to) {
+        List<Long> list = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            list.add(ids[i]);
+        }
+        return list;
     }
 
     public List<OrderFlatDto> findAllByDto_flat() {
@@ -93,4 +188,21 @@ public class OrderQueryRepository {
                 " join o.orderItems oi" +
                 " join oi.item i", OrderFlatDto.class).getResultList();
     }
+
+    /**
+     * 플랫 데이터 스트리밍 조회 (전체 export 용)
+     * - getResultList() 로 전체를 메모리에 올리지 않고, forward-only 커서(ScrollableResults)로 fetchSize 만큼씩 읽는다.
+     * - 같은 주문의 라인이 연속으로 나오도록 order_id 순으로 정렬한다.
+     * - 트랜잭션 안에서 사용하고, 다 읽으면 반드시 close 해야 한다. (try-with-resources)
+     */
+    public Stream<OrderFlatDto> streamAllByDto_flat(int fetchSize) {
+        return em.createQuery("select new jpabook.jpashop.repository.order.query.OrderFlatDto(o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count) from Order o" +
+                " join o.member m" +
+                " join o.delivery d" +
+                " join o.orderItems oi" +
+                " join oi.item i" +
+                " order by o.id, oi.id", OrderFlatDto.class)
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .getResultStream();
+    }
 }
@@ -17,11 +17,11 @@ public class OrderSimpleQueryRepository {
          * new 명령어를 사용해서 JPQL의 결과를 DTO로 즉시 변환
          * SELECT 절에서 원하는 데이터를 직접 선택하므로 DB 애플리케이션 네트웍 용량 최적화(생각보다 미비)
          * 리포지토리 재사용성 떨어짐, API 스펙에 맞춘 코드가 리포지토리에 들어가는 단점
+         * -> 주문 목록 조회 테이블(order_summary) 하나만 읽는다. (orders, member, delivery 조인 없음)
          */
 
-        return em.createQuery("select new jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto(o.id, m.name,o.orderDate, o.status, d.address)" +
-                " from Order o" +
-                " join o.member m" +
-                " join o.delivery d", OrderSimpleQueryDto.class).getResultList();
+        return em.createQuery("select new jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto(s.id, s.memberName, s.orderDate, s.status, s.address)" +
+                " from OrderSummary s" +
+                " order by s.id", OrderSimpleQueryDto.class).getResultList();
     }
 }
@@ -0,0 +1,97 @@
+package jpabook.jpashop.search;
+
+import jpabook.jpashop.domain.item.Album;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.item.Movie;
+import lombok.Getter;
+import org.hibernate.Hibernate;
+
+import javax.persistence.DiscriminatorValue;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 검색 색인에 들어가는 상품 1건 (불변)
+ * - 검색 결과를 DB 없이 보여줄 수 있도록 이름/가격/종류를 함께 들고 있다.
+ * - terms/fieldMasks: 이 상품의 토큰과 토큰이 나온 필드 (색인에서 뺄 때 사용)
+ * - version: 상품 @Version. 색인은 이미 가진 것보다 오래된 문서를 버린다. (커밋 후 반영이 순서를 바꿔 도착해도)
+ */
+@Getter
+public class ItemSearchDocument {
+    // 토큰이 나온 필드 (비트). 여러 필드에 나오면 OR
+    static final int NAME = 1;
+    static final int PEOPLE = 2; // 저자, 아티스트, 감독, 배우
+    static final int CODE = 4;   // isbn
+    static final int FIELD_BITS = 3;
+
+    private final Long itemId;
+    private final long version;
+    private final String type; // dtype (B, A, M)
+    private final String name;
+    private final int price;
+    private final String[] terms;
+    private final int[] fieldMasks;
+
+    public ItemSearchDocument(Long itemId, long version, String type, String name, int price,
+                              String author, String isbn, String artist, String director, String actor) {
+        this.itemId = itemId;
+        this.version = version;
+        this.type = type;
+        this.name = name;
+        this.price = price;
+
+        Map<String, Integer> masks = new LinkedHashMap<>();
+        addTerms(masks, name, NAME);
+        addTerms(masks, author, PEOPLE);
+        addTerms(masks, artist, PEOPLE);
+        addTerms(masks, director, PEOPLE);
+        addTerms(masks, actor, PEOPLE);
+        addTerms(masks, isbn, CODE);
+        if (isbn != null) { // 978-89-... 는 하이픈 없이도 찾을 수 있게
+            addTerms(masks, isbn.replaceAll("[^0-9A-Za-z]", ""), CODE);
+        }
+        this.terms = masks.keySet().toArray(new String[0]);
+        this.fieldMasks = masks.values().stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * 저장/수정한 엔티티에서 만든다. (커밋 후에 부르면 flush 로 올라간 version 까지 들어간다)
+     */
+    public static ItemSearchDocument of(Item item) {
+        Item target = (Item) Hibernate.unproxy(item);
+        DiscriminatorValue discriminator = target.getClass().getAnnotation(DiscriminatorValue.class);
+        String type = discriminator == null ? target.getClass().getSimpleName() : discriminator.value();
+        String author = null, isbn = null, artist = null, director = null, actor = null;
+        if (target instanceof Book) {
+            author = ((Book) target).getAuthor();
+            isbn = ((Book) target).getIsbn();
+        } else if (target instanceof Album) {
+            artist = ((Album) target).getArtist();
+        } else if (target instanceof Movie) {
+            director = ((Movie) target).getDirector();
+            actor = ((Movie) target).getActor();
+        }
+        return new ItemSearchDocument(target.getId(), target.getVersion() == null ? 0 : target.getVersion(),
+                type, target.getName(), target.getPrice(),
+                author, isbn, artist, director, actor);
+    }
+
+    /**
+     * 소문자로 바꾸고 글자/숫자가 아닌 문자에서 자른다. (한글도 글자)
+     */
+    static String[] tokenize(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+        String normalized = text.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{Nd}]+", " ").trim();
+        return normalized.isEmpty() ? new String[0] : normalized.split(" ");
+    }
+
+    private static void addTerms(Map<String, Integer> masks, String text, int field) {
+        for (String term : tokenize(text)) {
+            masks.merge(term, field, (a, b) -> a | b);
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package jpabook.jpashop.search;
+
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.ItemRepository;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * 상품 검색용 메모리 역색인 (이름, 저자, isbn, 아티스트, 감독, 배우)
+ * - 토큰 -> 상품 목록(posting). posting 은 long[] 하나로, 값은 (상품 id << 3 | 필드 비트) 이고 상품 id 순으로 정렬되어 있다.
+ * - 검색어의 토큰마다 그 토큰으로 시작하는 토큰들의 posting 을 모으고, 모든 토큰에 걸리는 상품만 남긴다. (AND)
+ * - 점수: 토큰마다 나온 필드 가중치 (이름 3, 사람 2, isbn 1), 토큰이 정확히 같으면 2배. 점수 내림차순, 같으면 id 순
+ * - 앱 시작시 item 테이블을 스트리밍으로 한번 훑어서 만들고(State 를 통째로 바꾼다), 상품 저장/수정은 커밋 후에 반영한다.
+ * - 상품 하나를 반영할 때는 그 상품의 토큰 posting 배열만 새로 만들어 토큰별로 바꾼다. (copy-on-write, 색인 전체를 복사하지 않음)
+ *   바꾸는 순서: 새 토큰 posting -> 문서 -> 빠진 토큰 posting. 검색은 락 없이 읽으므로 그 사이의 상태를 볼 수 있어서,
+ *   결과에 넣기 전에 지금 문서가 모든 검색어 토큰에 걸리는지 다시 확인한다. (옛 토큰으로 걸린 새 문서는 빠진다)
+ * - 문서에는 상품 version 이 있다. 이미 가진 것보다 오래된 문서는 버린다. (커밋 후 반영이 순서를 바꿔 도착해도 최신 유지)
+ * - 서버마다 따로 가지는 색인이다.
+ */
+@Component
+@RequiredArgsConstructor
+public class ItemSearchIndex {
+    private static final int FETCH_SIZE = 500;
+    // 검색어 토큰 하나가 앞부분으로 펼칠 수 있는 최대 토큰 수 (한 글자 검색이 색인 전체를 훑지 않도록)
+    // 넘으면 일부 토큰만 보고 결과에 truncated 로 알린다.
+    private static final int MAX_PREFIX_TERMS = 200;
+
+    private final ItemRepository itemRepository;
+
+    private volatile State state = new State(new ConcurrentSkipListMap<>(), new ConcurrentHashMap<>());
+    private volatile boolean ready;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public synchronized void rebuild() {
+        Map<String, LongArray> building = new HashMap<>();
+        ConcurrentHashMap<Long, ItemSearchDocument> documents = new ConcurrentHashMap<>();
+        try (Stream<Object[]> rows = itemRepository.streamSearchFields(FETCH_SIZE)) {
+            rows.forEach(row -> {
+                ItemSearchDocument document = new ItemSearchDocument(((Number) row[0]).longValue(),
+                        row[1] == null ? 0 : ((Number) row[1]).longValue(), String.valueOf(row[2]),
+                        (String) row[3], row[4] == null ? 0 : ((Number) row[4]).intValue(),
+                        (String) row[5], (String) row[6], (String) row[7], (String) row[8], (String) row[9]);
+                documents.put(document.getItemId(), document);
+                for (int i = 0; i < document.getTerms().length; i++) { // id 순으로 읽으므로 뒤에 붙이면 정렬 유지
+                    building.computeIfAbsent(document.getTerms()[i], t -> new LongArray())
+                            .add(posting(document.getItemId(), document.getFieldMasks()[i]));
+                }
+            });
+        }
+        ConcurrentSkipListMap<String, long[]> postings = new ConcurrentSkipListMap<>();
+        building.forEach((term, values) -> postings.put(term, values.toArray()));
+        state = new State(postings, documents);
+        ready = true;
+    }
+
+    /**
+     * 색인이 아직 만들어지지 않았으면 false
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 트랜잭션 안이면 커밋된 뒤에, 아니면 바로 색인에 반영
+     * (문서는 커밋 후의 엔티티에서 만든다. flush 로 올라간 version 이 들어가야 순서를 비교할 수 있다)
+     */
+    public void indexAfterCommit(Item item) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    index(ItemSearchDocument.of(item));
+                }
+            });
+        } else {
+            index(ItemSearchDocument.of(item));
+        }
+    }
+
+    /**
+     * 상품 하나를 반영한다. 비용은 이 상품의 토큰 posting 크기만큼이다. (이미 가진 것보다 오래된 version 이면 버린다)
+     */
+    public synchronized void index(ItemSearchDocument document) {
+        State current = this.state;
+        ItemSearchDocument old = current.documents.get(document.getItemId());
+        if (old != null && old.getVersion() > document.getVersion()) {
+            return;
+        }
+        Set<String> newTerms = new HashSet<>(Arrays.asList(document.getTerms()));
+        for (int i = 0; i < document.getTerms().length; i++) {
+            replacePosting(current.postings, document.getTerms()[i], document.getItemId(),
+                    posting(document.getItemId(), document.getFieldMasks()[i]));
+        }
+        current.documents.put(document.getItemId(), document);
+        if (old != null) {
+            for (String term : old.getTerms()) {
+                if (!newTerms.contains(term)) {
+                    removePosting(current.postings, term, old.getItemId());
+                }
+            }
+        }
+    }
+
+    public ItemSearchResult search(String query, int offset, int limit) {
+        Set<String> tokens = new LinkedHashSet<>(Arrays.asList(ItemSearchDocument.tokenize(query)));
+        if (tokens.isEmpty()) {
+            return new ItemSearchResult(0, Collections.emptyList(), false);
+        }
+
+        State state = this.state;
+        Map<Long, Integer> scores = null;
+        boolean truncated = false;
+        for (String token : tokens) {
+            Map<Long, Integer> tokenScores = new HashMap<>();
+            truncated |= scoreToken(state.postings, token, tokenScores);
+            if (scores == null) {
+                scores = tokenScores;
+            } else {
+                Map<Long, Integer> matched = new HashMap<>();
+                for (Map.Entry<Long, Integer> entry : scores.entrySet()) {
+                    Integer score = tokenScores.get(entry.getKey());
+                    if (score != null) {
+                        matched.put(entry.getKey(), entry.getValue() + score);
+                    }
+                }
+                scores = matched;
+            }
+            if (scores.isEmpty()) {
+                return new ItemSearchResult(0, Collections.emptyList(), truncated);
+            }
+        }
+
+        List<Map.Entry<Long, Integer>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort((a, b) -> {
+            int byScore = Integer.compare(b.getValue(), a.getValue());
+            return byScore != 0 ? byScore : Long.compare(a.getKey(), b.getKey());
+        });
+        List<Hit> hits = new ArrayList<>();
+        for (int i = Math.max(0, offset); i < ranked.size() && hits.size() < limit; i++) {
+            ItemSearchDocument document = state.documents.get(ranked.get(i).getKey());
+            if (document != null && matchesAll(document, tokens)) { // 반영 중에 옛 토큰으로 걸린 문서는 뺀다.
+                hits.add(new Hit(document, ranked.get(i).getValue()));
+            }
+        }
+        return new ItemSearchResult(ranked.size(), hits, truncated);
+    }
+
+    /**
+     * token 으로 시작하는 토큰들에 걸리는 상품과 점수를 scores 에 담는다. (상품마다 가장 높은 점수)
+     * @return 펼칠 토큰이 MAX_PREFIX_TERMS 보다 많아서 일부만 봤으면 true
+     */
+    private static boolean scoreToken(ConcurrentNavigableMap<String, long[]> postings, String token, Map<Long, Integer> scores) {
+        int expanded = 0;
+        for (Map.Entry<String, long[]> entry : postings.subMap(token, true, token + Character.MAX_VALUE, false).entrySet()) {
+            if (expanded++ >= MAX_PREFIX_TERMS) {
+                return true;
+            }
+            int exact = entry.getKey().equals(token) ? 2 : 1;
+            for (long posting : entry.getValue()) {
+                scores.merge(posting >>> ItemSearchDocument.FIELD_BITS, weight((int) (posting & 7)) * exact, Math::max);
+            }
+        }
+        return false;
+    }
+
+    private static boolean matchesAll(ItemSearchDocument document, Set<String> tokens) {
+        for (String token : tokens) {
+            boolean matched = false;
+            for (String term : document.getTerms()) {
+                if (term.startsWith(token)) {
+                    matched = true;
+                    break;
+                }
+            }
+            if (!matched) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int weight(int fieldMask) {
+        if ((fieldMask & ItemSearchDocument.NAME) != 0) return 3;
+        if ((fieldMask & ItemSearchDocument.PEOPLE) != 0) return 2;
+        return 1;
+    }
+
+    private static long posting(Long itemId, int fieldMask) {
+        return itemId << ItemSearchDocument.FIELD_BITS | fieldMask;
+    }
+
+    // 상품 id 위치를 찾는다. (필드 비트가 0 인 값보다 바로 뒤에 있다) 없으면 -(넣을 위치 + 1)
+    private static int find(long[] values, Long itemId) {
+        int at = Arrays.binarySearch(values, posting(itemId, 0));
+        at = at >= 0 ? at : -(at + 1);
+        if (at < values.length && values[at] >>> ItemSearchDocument.FIELD_BITS == itemId) {
+            return at;
+        }
+        return -(at + 1);
+    }
+
+    // term 의 posting 에서 이 상품 값을 posting 으로 바꾸거나 넣은 새 배열로 바꾼다. (배열은 만든 뒤 바꾸지 않는다)
+    private static void replacePosting(Map<String, long[]> postings, String term, Long itemId, long posting) {
+        postings.compute(term, (t, values) -> {
+            if (values == null) {
+                return new long[]{posting};
+            }
+            int at = find(values, itemId);
+            if (at >= 0) {
+                if (values[at] == posting) {
+                    return values;
+                }
+                long[] copy = values.clone();
+                copy[at] = posting;
+                return copy;
+            }
+            at = -(at + 1);
+            long[] copy = new long[values.length + 1];
+            System.arraycopy(values, 0, copy, 0, at);
+            copy[at] = posting;
+            System.arraycopy(values, at, copy, at + 1, values.length - at);
+            return copy;
+        });
+    }
+
+    private static void removePosting(Map<String, long[]> postings, String term, Long itemId) {
+        postings.computeIfPresent(term, (t, values) -> {
+            int at = find(values, itemId);
+            if (at < 0) {
+                return values;
+            }
+            if (values.length == 1) {
+                return null;
+            }
+            long[] copy = new long[values.length - 1];
+            System.arraycopy(values, 0, copy, 0, at);
+            System.arraycopy(values, at + 1, copy, at, values.length - at - 1);
+            return copy;
+        });
+    }
+
+    // rebuild 때만 통째로 바꾼다. 상품 하나는 맵 안의 값(토큰별 posting 배열, 문서)만 바꾼다.
+    private static class State {
+        private final ConcurrentNavigableMap<String, long[]> postings;
+        private final Map<Long, ItemSearchDocument> documents;
+
+        private State(ConcurrentNavigableMap<String, long[]> postings, Map<Long, ItemSearchDocument> documents) {
+            this.postings = postings;
+            this.documents = documents;
+        }
+    }
+
+    private static class LongArray {
+        private long[] values = new long[4];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Hit {
+        private final ItemSearchDocument document;
+        private final int score;
+    }
+
+    /**
+     * truncated 가 true 면 검색어가 너무 짧아서(앞부분이 같은 토큰이 너무 많음) 일부 토큰만 본 결과다.
+     * hits 와 total 은 본 토큰까지의 결과이므로 실제보다 적을 수 있다. -> 검색어를 더 길게 입력해야 한다.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class ItemSearchResult {
+        private final int total;
+        private final List<Hit> hits;
+        private final boolean truncated;
+    }
+}
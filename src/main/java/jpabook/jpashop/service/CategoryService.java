@@ -0,0 +1,118 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.CategoryRepository;
+import jpabook.jpashop.repository.CategoryTree;
+import jpabook.jpashop.repository.CategoryTreeCache;
+import jpabook.jpashop.repository.ItemRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collections;
+import java.util.List;
+
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class CategoryService {
+    // 하위 트리가 이보다 크면 IN 목록 대신 path 쿼리로 찾는다.
+    private static final int MAX_IN_CATEGORY_IDS = 1000;
+
+    private final CategoryRepository categoryRepository;
+    private final CategoryTreeCache categoryTreeCache;
+    private final ItemRepository itemRepository;
+
+    /**
+     * 카테고리 생성 (parentId 가 null 이면 최상위)
+     */
+    @Transactional
+    public Long create(String name, Long parentId) {
+        Category category = new Category();
+        category.setName(name);
+        if (parentId != null) {
+            findCategory(parentId).addChildCategory(category);
+        }
+        categoryRepository.save(category);
+        categoryTreeCache.rebuildAfterCommit();
+        return category.getId();
+    }
+
+    /**
+     * 카테고리를 다른 부모 밑으로 옮긴다. (newParentId 가 null 이면 최상위로)
+     * 자기 경로는 변경 감지로, 하위 카테고리 경로는 벌크 UPDATE 한 번으로 바꾼다.
+     * - 옮기는 카테고리와 새 부모를 id 순서로 잠근 뒤에(데드락 방지) 잠근 시점의 경로로 순환을 확인한다.
+     *   A 를 B 밑으로, B 를 A 밑으로 동시에 옮기면 뒤의 것은 앞의 커밋을 기다렸다가 바뀐 경로를 보고 거절된다.
+     *   더 먼 하위끼리 엇갈려 옮기는 경우는 서로의 하위 트리 UPDATE 가 상대가 잠근 행에서 막혀 한쪽이 롤백된다.
+     */
+    @Transactional
+    public void move(Long categoryId, Long newParentId) {
+        Category category;
+        Category newParent = null;
+        if (newParentId != null && newParentId < categoryId) {
+            newParent = lockCategory(newParentId);
+            category = lockCategory(categoryId);
+        } else {
+            category = lockCategory(categoryId);
+            if (newParentId != null) {
+                newParent = lockCategory(newParentId);
+            }
+        }
+        if (newParent != null && (newParent.getId().equals(category.getId())
+                || newParent.getPath().startsWith(category.getSubtreePath()))) {
+            throw new IllegalArgumentException("자기 자신이나 하위 카테고리 밑으로 옮길 수 없습니다.");
+        }
+
+        String oldSubtreePath = category.getSubtreePath();
+        category.moveTo(newParent);
+        categoryRepository.replacePathPrefix(oldSubtreePath, category.getSubtreePath()); // JPQL 실행 전에 category 변경이 flush 된다.
+        categoryTreeCache.rebuildAfterCommit();
+    }
+
+    @Transactional
+    public void addItem(Long categoryId, Long itemId) {
+        Category category = findCategory(categoryId);
+        Item item = itemRepository.findOne(itemId);
+        if (item == null) {
+            throw new IllegalArgumentException("상품이 없습니다. id=" + itemId);
+        }
+        if (!category.getItems().contains(item)) {
+            category.getItems().add(item);
+        }
+    }
+
+    /**
+     * 카테고리와 모든 하위 카테고리에 속한 상품 (상품 id 순, 쿼리 1번)
+     * - 스냅샷이 DB 와 같으면 (트리 버전 쿼리 1번) 스냅샷으로 하위 카테고리 id 를 구해 category_item 인덱스로 찾는다.
+     * - 스냅샷이 낡았거나 (다른 서버에서 카테고리를 만들거나 옮김) 하위 트리가 너무 크면 path 인덱스로 찾는다.
+     */
+    public List<Item> findItemsInSubtree(Long categoryId, int offset, int limit) {
+        CategoryTree tree = categoryTreeCache.getIfCurrent();
+        List<Long> categoryIds = tree == null ? Collections.emptyList() : tree.subtreeIds(categoryId);
+        if (!categoryIds.isEmpty() && categoryIds.size() <= MAX_IN_CATEGORY_IDS) {
+            return categoryRepository.findItemsInCategories(categoryIds, offset, limit);
+        }
+        return categoryRepository.findItemsInSubtree(findCategory(categoryId), offset, limit);
+    }
+
+    public CategoryTree getTree() {
+        return categoryTreeCache.get();
+    }
+
+    private Category findCategory(Long categoryId) {
+        Category category = categoryRepository.findOne(categoryId);
+        if (category == null) {
+            throw new IllegalArgumentException("카테고리가 없습니다. id=" + categoryId);
+        }
+        return category;
+    }
+
+    private Category lockCategory(Long categoryId) {
+        Category category = categoryRepository.findOneForUpdate(categoryId);
+        if (category == null) {
+            throw new IllegalArgumentException("카테고리가 없습니다. id=" + categoryId);
+        }
+        return category;
+    }
+}
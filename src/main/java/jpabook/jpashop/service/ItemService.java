@@ -1,23 +1,39 @@
 package jpabook.jpashop.service;
 
+import jpabook.jpashop.aop.OptimisticLockRetry;
+import jpabook.jpashop.change.ChangeTable;
+import jpabook.jpashop.change.ChangeTracker;
 import jpabook.jpashop.domain.item.Book;
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.ItemListDto;
 import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.KeysetPage;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.search.ItemSearchIndex;
+import jpabook.jpashop.service.query.OrderJsonCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Objects;
 
 @Service
 @Transactional(readOnly = true)
 @RequiredArgsConstructor
 public class ItemService {
     private final ItemRepository itemRepository;
+    private final StockGate stockGate;
+    private final ItemSearchIndex itemSearchIndex;
+    private final OrderRepository orderRepository;
+    private final OrderJsonCache orderJsonCache;
+    private final ChangeTracker changeTracker;
 
     @Transactional
     public void saveItem(Item item) {
         itemRepository.save(item);
+        itemSearchIndex.indexAfterCommit(item);
+        changeTracker.markChanged(ChangeTable.ITEMS);
     }
 
     // 준영속 엔티티?
@@ -26,13 +42,21 @@ public class ItemService {
     // 변경감지와 병합(merge)
     // 1. merge 병합 : 준영속 상태의 엔티티를 영속 상태로 변경할때 사용하는 기능이다. em.merge(item); => 모든 속성이 변경
     // 2. 변경 감지 기능 사용: => 원하는 속성만 변경하므로 이것을 이용하자 / Transactional 때문에 save 같은걸 호출 안해도 그냥 업데이트 됨. Transactional이 마지막에 flush 처리 해줌
+    @OptimisticLockRetry
     @Transactional
     public void updateItem(Long itemId, String name, int price, int stockQuantity) {
         Item findItem = itemRepository.findOne(itemId);
         // 주의!! Setter 는 아래 처럼 실무에서 쓰지 말자. findItem.change(name, price..) 와 같이 하나 만들어서 사용하는게 효율적
+        boolean renamed = !Objects.equals(name, findItem.getName());
         findItem.setPrice(price);
         findItem.setName(name);
         findItem.setStockQuantity(stockQuantity);
+        stockGate.clear(itemId); // 재고가 바뀌었으므로 품절 기록 제거
+        if (renamed) {
+            orderJsonCache.evictAfterCommit(orderRepository.findIdsByItem(itemId)); // 주문 JSON 에는 상품 이름만 들어간다. (가격은 주문 가격)
+        }
+        itemSearchIndex.indexAfterCommit(findItem);
+        changeTracker.markChanged(ChangeTable.ITEMS);
 
         // Item 이 자동으로 바뀜. (flush 안해줘도) => 변경감지 기능!
         // 영속성 컨텍스트에서 엔티티를 다시 조회한 후에 데이터를 수정하는 방법
@@ -43,6 +67,13 @@ public class ItemService {
         return itemRepository.findAll();
     }
 
+    /**
+     * 상품 목록 화면 (id 순 키셋 페이징, 쿼리 1번)
+     */
+    public KeysetPage<ItemListDto> findItemPage(Long afterId, int size) {
+        return KeysetPage.of(itemRepository.findListPage(afterId, size + 1), size, ItemListDto::getId);
+    }
+
     public Item findOne(Long itemId) {
         return itemRepository.findOne(itemId);
     }
@@ -1,25 +1,54 @@
 package jpabook.jpashop.service;
 
+import jpabook.jpashop.aop.OptimisticLockRetry;
+import jpabook.jpashop.change.ChangeTable;
+import jpabook.jpashop.change.ChangeTracker;
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.KeysetPage;
+import jpabook.jpashop.repository.MemberListDto;
+import jpabook.jpashop.repository.MemberNameFilter;
+import jpabook.jpashop.repository.MemberNameIndex;
 import jpabook.jpashop.repository.MemberRepository;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSummaryRepository;
+import jpabook.jpashop.service.query.OrderJsonCache;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
 
 @Service // Component 자동으로 있음. 자동으로 스프링빈 등록됨
 @Transactional(readOnly = true) // 필수
 @RequiredArgsConstructor // final 붙이는거 잊지 말고 @Autowired 강제 주입을 자동으로~
 public class MemberService {
+    private static final String UK_MEMBER_NAME = "UK_MEMBER_NAME";
+
     private final MemberRepository memberRepository;
+    private final MemberNameFilter memberNameFilter;
+    private final MemberNameIndex memberNameIndex;
+    private final OrderSummaryRepository orderSummaryRepository;
+    private final OrderRepository orderRepository;
+    private final OrderJsonCache orderJsonCache;
+    private final ChangeTracker changeTracker;
 
     // 회원가입
+    // 중복회원은 uk_member_name 유니크 제약으로 막는다. (SELECT 후 INSERT 는 동시 가입시 둘 다 통과할 수 있음)
     @Transactional
     public Long join(Member member) {
-        validateDuplicationMember(member); // 중복회원 검증
+        if (memberNameFilter.mightContain(member.getName())) {
+            validateDuplicationMember(member); // 있을 수도 있는 이름만 미리 확인 (필터를 안 쓰면 항상 확인)
+        }
         memberRepository.save(member);
+        flushCheckingDuplicateName(); // INSERT 를 바로 실행해서 제약조건 위반을 여기서 확인
+        memberNameFilter.put(member.getName());
+        memberNameIndex.indexAfterCommit(member.getId(), member.getName());
+        changeTracker.markChanged(ChangeTable.MEMBERS);
 
         return member.getId();
     }
@@ -32,18 +61,72 @@ public class MemberService {
         }
     }
 
+    // 쌓인 INSERT/UPDATE 를 바로 실행하고, 이름 유니크 제약 위반이면 가입/이름변경 모두 같은 예외로 바꾼다.
+    private void flushCheckingDuplicateName() {
+        try {
+            memberRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            if (isDuplicateName(e)) {
+                throw new IllegalStateException("이미 존재하는 회원입니다.", e);
+            }
+            throw e;
+        }
+    }
+
+    private static boolean isDuplicateName(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                String constraintName = ((ConstraintViolationException) cause).getConstraintName();
+                String target = constraintName != null ? constraintName : String.valueOf(cause.getMessage());
+                return target.toUpperCase(Locale.ROOT).contains(UK_MEMBER_NAME);
+            }
+        }
+        return false;
+    }
+
     // 회원 전체 조회
     public List<Member> findMembers() {
         return memberRepository.findAll();
     }
 
+    /**
+     * 회원 목록 화면 (id 순 키셋 페이징, 쿼리 1번)
+     */
+    public KeysetPage<MemberListDto> findMemberPage(Long afterId, int size) {
+        return KeysetPage.of(memberRepository.findListPage(afterId, size + 1), size, MemberListDto::getId);
+    }
+
+    /**
+     * 주문 화면 회원 선택용 이름 앞부분 검색 (id 순 키셋 페이징, 쿼리 1번)
+     */
+    public KeysetPage<MemberListDto> findMemberPageByNamePrefix(String prefix, Long afterId, int size) {
+        return KeysetPage.of(memberRepository.findListPageByNamePrefix(prefix, afterId, size + 1), size, MemberListDto::getId);
+    }
+
     public Member findOne(Long memberId) {
         return memberRepository.findOne(memberId);
     }
 
+    @OptimisticLockRetry
     @Transactional
     public void update(Long id, String name) {
         Member member = memberRepository.findOne(id);
+        boolean renamed = !Objects.equals(name, member.getName());
         member.setName(name);
+        flushCheckingDuplicateName(); // 이미 있는 이름이면 가입과 같은 IllegalStateException
+        orderSummaryRepository.updateMemberName(id, name); // 주문 목록 조회 테이블의 회원 이름도 함께
+        if (renamed) {
+            orderJsonCache.evictAfterCommit(orderRepository.findIdsByMember(id)); // 이 회원의 주문 JSON 조각만
+        }
+        memberNameFilter.put(name);
+        memberNameIndex.indexAfterCommit(id, name);
+        changeTracker.markChanged(ChangeTable.MEMBERS);
+    }
+
+    /**
+     * 이름 앞부분으로 회원 검색 (search_name 인덱스 사용)
+     */
+    public List<Member> findMembersByNamePrefix(String prefix, int limit) {
+        return memberRepository.findByNamePrefix(prefix, limit);
     }
 }
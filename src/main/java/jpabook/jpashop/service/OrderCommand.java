@@ -0,0 +1,23 @@
+package jpabook.jpashop.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 주문 1건 (회원 1명, 주문 상품 여러개)
+ */
+@Getter
+@AllArgsConstructor
+public class OrderCommand {
+    private final Long memberId;
+    private final List<Line> lines;
+
+    @Getter
+    @AllArgsConstructor
+    public static class Line {
+        private final Long itemId;
+        private final int count;
+    }
+}
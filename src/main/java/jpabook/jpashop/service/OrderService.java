@@ -1,27 +1,61 @@
 package jpabook.jpashop.service;
 
+import jpabook.jpashop.aop.OptimisticLockRetry;
+import jpabook.jpashop.change.ChangeTable;
+import jpabook.jpashop.change.ChangeTracker;
+import jpabook.jpashop.datasource.ReadYourWrites;
 import jpabook.jpashop.domain.Delivery;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.OrderSummary;
+import jpabook.jpashop.domain.event.OrderCancelled;
+import jpabook.jpashop.domain.event.OrderPlaced;
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.InvalidCursorException;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.exception.OrderBatchException;
+import jpabook.jpashop.outbox.OutboxPublisher;
 import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.KeysetPage;
 import jpabook.jpashop.repository.MemberRepository;
 import jpabook.jpashop.repository.OrderRepository;
 import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.OrderSummaryRepository;
+import jpabook.jpashop.service.query.OrderJsonCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional(readOnly = true)
 @RequiredArgsConstructor
 public class OrderService{
+    private static final int BATCH_CHUNK_SIZE = 500;
+
     private final OrderRepository orderRepository;
+    private final OrderSummaryRepository orderSummaryRepository;
     private final MemberRepository memberRepository;
     private final ItemRepository itemRepository;
+    private final StockService stockService;
+    private final ReadYourWrites readYourWrites;
+    private final OutboxPublisher outboxPublisher;
+    private final ChangeTracker changeTracker; // 조회 API ETag 용 변경 버전
+    private final OrderJsonCache orderJsonCache;
+    private final PlatformTransactionManager transactionManager; // 대량 주문 청크별 트랜잭션
 
     /**
      * 주문
@@ -39,34 +73,192 @@ public class OrderService{
         // 배송 delivery 를 em.persist 안한 이유는 Order에서 CascadeType.ALL를 사용했기 떄문.
         // 이를 통해서 order 만 persist 를 해주면(repository 에서) 자동으로 delivery 도 생성되는 것임.
 
+        // 재고 차감 (원자적 조건부 UPDATE, 재고 부족시 NotEnoughStockException)
+        stockService.reserve(item, count);
+
         // 주문 상품 생성
-        OrderItem orderItem = OrderItem.createOrderItem(item, item.getPrice(), count);
+        OrderItem orderItem = OrderItem.createReservedOrderItem(item, item.getPrice(), count);
 
         // 주문 생성
         Order order = Order.createOrder(member, delivery, orderItem);
 
-        // 주문 저장
+        // 주문 저장 (목록 조회 테이블도 같은 트랜잭션에서)
         orderRepository.save(order);
+        orderSummaryRepository.save(OrderSummary.from(order));
+        outboxPublisher.publish("Order", order.getId(), OrderPlaced.of(order)); // 후속 처리는 OutboxRelay 에서
+        readYourWrites.markWritten(); // 직후 주문 조회는 primary 에서
+        changeTracker.markChanged(ChangeTable.ORDERS, ChangeTable.ITEMS); // 재고도 바뀐다
 
         return order.getId();
     }
 
+    /**
+     * 대량 주문 (주문 여러건, 주문마다 주문 상품 여러개)
+     * - 청크(BATCH_CHUNK_SIZE 건)마다 트랜잭션을 따로 커밋한다. 한 트랜잭션으로 처리하면 배치가 클수록 락을 오래 잡고 undo 가 끝없이 커진다.
+     * - 재고는 청크 안에서 상품별로 수량을 합쳐서 상품당 UPDATE 1번만 실행한다. (item_id 순서로 -> 동시에 실행되는 배치끼리 데드락 방지)
+     * - 회원/상품은 청크마다 IN 쿼리로 한번에 조회한다.
+     * - 주문/주문상품/배송/주문요약 INSERT 는 시퀀스 allocationSize + hibernate.jdbc.batch_size 로 JDBC 배치 처리된다.
+     *   (아웃박스 이벤트 INSERT 도 배치되지만, id 는 순서를 지키기 위해 이벤트마다 시퀀스를 호출한다. OutboxEvent)
+     * - 청크가 실패하면 (재고 부족 등) 그 청크만 롤백되고 멈춘다. 앞 청크들은 이미 커밋되었으므로
+     *   OrderBatchException 에 커밋된 주문 id 를 담아서 던진다.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<Long> orderBatch(List<OrderCommand> commands) {
+        for (OrderCommand command : commands) {
+            if (command.getLines().isEmpty()) {
+                throw new IllegalArgumentException("주문 상품이 없습니다. memberId=" + command.getMemberId());
+            }
+        }
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        List<Long> orderIds = new ArrayList<>(commands.size());
+        for (int from = 0; from < commands.size(); from += BATCH_CHUNK_SIZE) {
+            List<OrderCommand> chunk = commands.subList(from, Math.min(from + BATCH_CHUNK_SIZE, commands.size()));
+            try {
+                orderIds.addAll(transactionTemplate.execute(status -> orderChunk(chunk)));
+            } catch (RuntimeException e) {
+                if (orderIds.isEmpty()) {
+                    throw e; // 커밋된 주문이 없으면 원래 예외 그대로
+                }
+                throw new OrderBatchException(orderIds, e);
+            }
+        }
+        return orderIds;
+    }
+
+    private List<Long> orderChunk(List<OrderCommand> chunk) {
+        // 상품별 총 수량 (int 로 더하면 큰 배치에서 넘칠 수 있다)
+        Map<Long, Long> quantityByItem = new TreeMap<>();
+        for (OrderCommand command : chunk) {
+            for (OrderCommand.Line line : command.getLines()) {
+                quantityByItem.merge(line.getItemId(), (long) line.getCount(), Long::sum);
+            }
+        }
+        validateItemsExist(quantityByItem.keySet());
+
+        // 재고 차감 (상품당 1번). 재고는 int 이므로 int 범위를 넘는 수량은 채울 수 없다.
+        quantityByItem.forEach((itemId, quantity) -> {
+            if (quantity > Integer.MAX_VALUE) {
+                throw new NotEnoughStockException("need more stock");
+            }
+            stockService.reserve(itemId, quantity.intValue());
+        });
+
+        List<Long> orderIds = saveChunk(chunk);
+        orderRepository.flushAndClear();
+        readYourWrites.markWritten();
+        changeTracker.markChanged(ChangeTable.ORDERS, ChangeTable.ITEMS); // 재고도 바뀐다
+        return orderIds;
+    }
+
+    private List<Long> saveChunk(List<OrderCommand> chunk) {
+        Set<Long> memberIds = new HashSet<>();
+        Set<Long> itemIds = new HashSet<>();
+        for (OrderCommand command : chunk) {
+            memberIds.add(command.getMemberId());
+            command.getLines().forEach(line -> itemIds.add(line.getItemId()));
+        }
+
+        Map<Long, Member> members = memberRepository.findAllById(memberIds).stream()
+                .collect(Collectors.toMap(Member::getId, m -> m));
+        Map<Long, Item> items = itemRepository.findAllById(itemIds).stream()
+                .collect(Collectors.toMap(Item::getId, i -> i));
+
+        List<Long> orderIds = new ArrayList<>(chunk.size());
+        for (OrderCommand command : chunk) {
+            Member member = members.get(command.getMemberId());
+            if (member == null) {
+                throw new IllegalArgumentException("존재하지 않는 회원입니다. memberId=" + command.getMemberId());
+            }
+
+            Delivery delivery = new Delivery();
+            delivery.setAddress(member.getAddress());
+
+            OrderItem[] orderItems = command.getLines().stream()
+                    .map(line -> {
+                        Item item = items.get(line.getItemId());
+                        return OrderItem.createReservedOrderItem(item, item.getPrice(), line.getCount());
+                    })
+                    .toArray(OrderItem[]::new);
+
+            Order order = Order.createOrder(member, delivery, orderItems);
+            orderRepository.save(order);
+            orderSummaryRepository.save(OrderSummary.from(order));
+            outboxPublisher.publish("Order", order.getId(), OrderPlaced.of(order));
+            orderIds.add(order.getId());
+        }
+        return orderIds;
+    }
+
+    private void validateItemsExist(Set<Long> itemIds) {
+        List<Long> existing = itemRepository.findExistingIds(itemIds);
+        if (existing.size() != itemIds.size()) {
+            Set<Long> missing = new TreeSet<>(itemIds);
+            missing.removeAll(existing);
+            throw new IllegalArgumentException("존재하지 않는 상품입니다. itemIds=" + missing);
+        }
+    }
+
     /**
      * 주문 취소
      */
+    @OptimisticLockRetry
     @Transactional
     public void cancelOrder(Long orderId) {
         // 주문 엔티티 조회
         Order order = orderRepository.findOne(orderId);
         // 주문 취소
         order.cancel();
+        cancelSummary(order);
+        outboxPublisher.publish("Order", order.getId(), new OrderCancelled(order.getId(), order.getMember().getId()));
+        // 재고 원복
+        for (OrderItem orderItem : order.getOrderItems()) {
+            stockService.release(orderItem.getItem(), orderItem.getCount());
+        }
+        readYourWrites.markWritten();
+        changeTracker.markChanged(ChangeTable.ORDERS, ChangeTable.ITEMS); // 재고도 바뀐다
+        orderJsonCache.evictAfterCommit(orderId);
     }
 
+    // 목록 조회 테이블이 없는 주문(테이블을 만들기 전에 저장된 주문)이면 지금 만든다.
+    private void cancelSummary(Order order) {
+        OrderSummary summary = orderSummaryRepository.findOne(order.getId());
+        if (summary == null) {
+            orderSummaryRepository.save(OrderSummary.from(order));
+        } else {
+            summary.cancel();
+        }
+    }
 
     /**
      * 주문 검색
      */
     public List<Order> findOrders(OrderSearch orderSearch) {
-        return orderRepository.findAllByString(orderSearch);
+        validateAfterId(orderSearch, afterId -> orderRepository.findOne(afterId) != null);
+        return orderRepository.findAll(orderSearch);
+    }
+
+    /**
+     * 주문 목록 검색 (order_summary 테이블만 조회)
+     */
+    public List<OrderSummary> findOrderSummaries(OrderSearch orderSearch) {
+        validateAfterId(orderSearch, afterId -> orderSummaryRepository.findOne(afterId) != null);
+        return orderSummaryRepository.findAll(orderSearch);
+    }
+
+    /**
+     * 주문 목록 화면 (검색 조건 + 키셋 페이징, order_summary 쿼리 1번)
+     */
+    public KeysetPage<OrderSummary> findOrderSummaryPage(OrderSearch orderSearch, int size) {
+        orderSearch.setSize(size + 1);
+        return KeysetPage.of(findOrderSummaries(orderSearch), size, OrderSummary::getId);
+    }
+
+    // 일시 정렬의 키셋 조건은 afterId 주문의 일시를 읽으므로, 없는 주문이면 빈 페이지 대신 400 (pk 조회 1번)
+    private static void validateAfterId(OrderSearch orderSearch, Predicate<Long> exists) {
+        Long afterId = orderSearch.getAfterId();
+        if (afterId != null && orderSearch.getSortOrDefault().isKeysetReadsCursorRow() && !exists.test(afterId)) {
+            throw new InvalidCursorException("잘못된 페이지 위치입니다. afterId=" + afterId);
+        }
     }
 }
@@ -0,0 +1,86 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderSummary;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSummaryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * 주문 목록 조회 테이블(order_summary)이 없는 주문을 채운다.
+ * - 목록 화면/API 는 order_summary 만 읽으므로, 이 테이블을 만들기 전에 저장된 주문은 채우기 전까지 목록에 나오지 않는다.
+ * - 앱 시작시 한 번, 청크(CHUNK_SIZE 건)마다 따로 커밋하면서 채운다. 이미 있는 주문은 건너뛰므로 몇 번을 실행해도 된다.
+ * - 새 주문은 OrderService 가 같은 트랜잭션에서 만들므로 여기서 다시 만들 일이 없다.
+ *   채우는 도중 다른 요청(주문 취소)이 먼저 만든 주문이 있으면 그 청크만 실패하고 다음 청크로 넘어간다. (다음 시작 때 다시 채움)
+ */
+@Slf4j
+@Component
+public class OrderSummaryBackfill {
+    private static final int CHUNK_SIZE = 500;
+
+    private final OrderRepository orderRepository;
+    private final OrderSummaryRepository orderSummaryRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+
+    public OrderSummaryBackfill(OrderRepository orderRepository,
+                                OrderSummaryRepository orderSummaryRepository,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${jpashop.order-summary.backfill.enabled:true}") boolean enabled) {
+        this.orderRepository = orderRepository;
+        this.orderSummaryRepository = orderSummaryRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (!enabled) {
+            return;
+        }
+        long count = backfill();
+        if (count > 0) {
+            log.info("order_summary backfill: {} orders", count);
+        }
+    }
+
+    /**
+     * @return 새로 만든 주문 목록 조회 행 수
+     */
+    public long backfill() {
+        long count = 0;
+        long afterId = 0;
+        while (true) {
+            long from = afterId;
+            List<Long> orderIds = transactionTemplate.execute(status ->
+                    orderSummaryRepository.findOrderIdsWithoutSummary(from, CHUNK_SIZE));
+            if (orderIds.isEmpty()) {
+                return count;
+            }
+            try {
+                count += transactionTemplate.execute(status -> saveSummaries(orderIds));
+            } catch (DataIntegrityViolationException e) {
+                log.warn("order_summary backfill: chunk skipped, orders {}..{}", orderIds.get(0), orderIds.get(orderIds.size() - 1), e);
+            }
+            afterId = orderIds.get(orderIds.size() - 1);
+        }
+    }
+
+    private int saveSummaries(List<Long> orderIds) {
+        List<Order> orders = orderRepository.findAllWithItemByIds(orderIds); // 회원, 배송, 주문 상품까지 쿼리 1번
+        for (Order order : orders) {
+            orderSummaryRepository.save(OrderSummary.from(order));
+        }
+        orderRepository.flushAndClear();
+        return orders.size();
+    }
+}
@@ -0,0 +1,65 @@
+package jpabook.jpashop.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 재고 차감 앞단의 메모리 게이트 (선택, 기본 꺼짐)
+ * - 인기 상품이 품절되면 이후 주문은 모두 같은 row 에 UPDATE 를 날리고 0건으로 실패한다.
+ * - 최근에 같은 수량 이하로 재고 부족이 확인된 상품은 ttl 동안 DB까지 가지 않고 바로 실패시킨다.
+ * - 재고가 늘어나는 경우(주문 취소, 상품 수정)에는 즉시 기록을 지운다.
+ * - 서버마다 따로 가지는 값이므로, 다른 서버에서 재고가 늘어난 경우는 ttl 이 지나야 반영된다.
+ */
+@Component
+public class StockGate {
+    private final boolean enabled;
+    private final long ttlNanos;
+    private final ConcurrentMap<Long, Shortage> shortages = new ConcurrentHashMap<>();
+
+    public StockGate(@Value("${jpashop.stock.gate.enabled:false}") boolean enabled,
+                     @Value("${jpashop.stock.gate.ttl-millis:1000}") long ttlMillis) {
+        this.enabled = enabled;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+    }
+
+    public boolean isShort(Long itemId, int quantity) {
+        if (!enabled) {
+            return false;
+        }
+        Shortage shortage = shortages.get(itemId);
+        if (shortage == null) {
+            return false;
+        }
+        if (System.nanoTime() - shortage.markedAt > ttlNanos) {
+            shortages.remove(itemId, shortage);
+            return false;
+        }
+        return quantity >= shortage.quantity;
+    }
+
+    public void markShort(Long itemId, int quantity) {
+        if (!enabled) {
+            return;
+        }
+        // 더 적은 수량으로 실패했다면 그 수량을 기준으로 한다.
+        shortages.merge(itemId, new Shortage(quantity, System.nanoTime()),
+                (old, now) -> now.quantity <= old.quantity ? now : new Shortage(old.quantity, now.markedAt));
+    }
+
+    public void clear(Long itemId) {
+        shortages.remove(itemId);
+    }
+
+    private static final class Shortage {
+        private final int quantity;
+        private final long markedAt;
+
+        private Shortage(int quantity, long markedAt) {
+            this.quantity = quantity;
+            this.markedAt = markedAt;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.event.StockChanged;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.outbox.OutboxPublisher;
+import jpabook.jpashop.repository.ItemRepository;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 재고 차감/원복
+ * - 엔티티의 재고 값을 읽고-수정-쓰기 하면 동시 주문 시 갱신 분실이 생기고,
+ *   비관적 락을 걸면 인기 상품 한 row 에 모든 주문이 줄을 서게 된다.
+ * - 조건부 UPDATE (stock_quantity >= ?) 한 번으로 검사와 차감을 DB에서 원자적으로 처리한다.
+ * - 호출한 트랜잭션에 참여하므로 주문이 롤백되면 차감도 함께 롤백된다.
+ * - 변경할 때마다 StockChanged 이벤트를 아웃박스에 남긴다. (같은 트랜잭션)
+ */
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class StockService {
+    private final ItemRepository itemRepository;
+    private final StockGate stockGate;
+    private final OutboxPublisher outboxPublisher;
+
+    /**
+     * 재고 차감 후, 이미 조회한 엔티티의 재고 값도 DB 값으로 맞춘다.
+     * (메모리 값을 직접 바꾸면 dirty checking 이 다른 주문의 차감분을 덮어쓴다)
+     */
+    @Transactional
+    public void reserve(Item item, int quantity) {
+        reserve(item.getId(), quantity);
+        itemRepository.refresh(item);
+    }
+
+    @Transactional
+    public void reserve(Long itemId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("주문 수량은 1개 이상이어야 합니다.");
+        }
+        if (stockGate.isShort(itemId, quantity)) {
+            throw new NotEnoughStockException("need more stock");
+        }
+
+        int updated = itemRepository.removeStock(itemId, quantity);
+        if (updated == 0) {
+            stockGate.markShort(itemId, quantity);
+            throw new NotEnoughStockException("need more stock");
+        }
+        outboxPublisher.publish("Item", itemId, new StockChanged(itemId, -quantity));
+    }
+
+    @Transactional
+    public void release(Item item, int quantity) {
+        release(item.getId(), quantity);
+        // 아직 로딩되지 않은 프록시라면 맞출 메모리 값도 없다.
+        if (Hibernate.isInitialized(item)) {
+            itemRepository.refresh(item);
+        }
+    }
+
+    @Transactional
+    public void release(Long itemId, int quantity) {
+        itemRepository.addStock(itemId, quantity);
+        stockGate.clear(itemId);
+        outboxPublisher.publish("Item", itemId, new StockChanged(itemId, quantity));
+    }
+}
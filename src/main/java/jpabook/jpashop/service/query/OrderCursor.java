@@ -0,0 +1,53 @@
+package jpabook.jpashop.service.query;
+
+import jpabook.jpashop.exception.InvalidCursorException;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 키셋 페이징용 커서
+ * - 클라이언트에게는 마지막 order_id 를 감춘 불투명(opaque) 문자열로 전달한다.
+ * - 커서 형식이 바뀌어도 API 스펙은 그대로 유지할 수 있다.
+ */
+public final class OrderCursor {
+    private static final String PREFIX = "o:";
+
+    private OrderCursor() {
+    }
+
+    public static String encode(Long orderId) {
+        byte[] raw = (PREFIX + orderId).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    /**
+     * 빈 커서는 첫 페이지(null)를 의미한다.
+     * 형식이 맞지 않는 커서는 InvalidCursorException (400)
+     */
+    public static Long decode(String cursor) {
+        if (!StringUtils.hasText(cursor)) {
+            return null;
+        }
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("잘못된 커서입니다. cursor=" + cursor, e);
+        }
+        if (!raw.startsWith(PREFIX)) {
+            throw new InvalidCursorException("잘못된 커서입니다. cursor=" + cursor);
+        }
+        long orderId;
+        try {
+            orderId = Long.parseLong(raw.substring(PREFIX.length()));
+        } catch (NumberFormatException e) {
+            throw new InvalidCursorException("잘못된 커서입니다. cursor=" + cursor, e);
+        }
+        if (orderId <= 0) {
+            throw new InvalidCursorException("잘못된 커서입니다. cursor=" + cursor);
+        }
+        return orderId;
+    }
+}
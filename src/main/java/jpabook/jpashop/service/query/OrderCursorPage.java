@@ -0,0 +1,13 @@
+package jpabook.jpashop.service.query;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class OrderCursorPage {
+    private List<OrderDto> data;
+    private String next; // 다음 페이지 커서, 마지막 페이지면 null
+}
@@ -0,0 +1,59 @@
+package jpabook.jpashop.service.query;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.repository.order.query.OrderFlatDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * 전체 주문 NDJSON(한 줄에 주문 하나) export
+ * - 결과를 List 로 모으지 않고, 읽는 즉시 주문 단위로 묶어서 바로 출력한다.
+ * - 메모리에는 현재 주문 1건과 JDBC fetch size 만큼의 row 만 남으므로 테이블 크기와 상관없이 일정하다.
+ * - 주문별 byte[] 를 만들지 않고 응답 스트림에 바로 JSON 으로 쓴다. (OrderNdjsonWriter, 앱 ObjectMapper 설정 그대로)
+ */
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class OrderExportService {
+    private static final int FETCH_SIZE = 500;
+    private static final int CLEAR_INTERVAL = 1000; // 주문 1000건마다 영속성 컨텍스트 정리 + flush
+
+    private final OrderQueryRepository orderQueryRepository;
+    private final EntityManager em;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * @return 출력한 주문 수
+     */
+    public long exportNdjson(OutputStream out) throws IOException {
+        OrderNdjsonWriter writer = new OrderNdjsonWriter(objectMapper, out);
+        long cleared = 0;
+
+        try (Stream<OrderFlatDto> rows = orderQueryRepository.streamAllByDto_flat(FETCH_SIZE)) {
+            Iterator<OrderFlatDto> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                // order_id 순으로 정렬되어 있으므로 id가 바뀌면 이전 주문은 완성된 것 (writer 가 처리)
+                writer.write(iterator.next());
+
+                long count = writer.getCount();
+                if (count - cleared >= CLEAR_INTERVAL) {
+                    cleared = count;
+                    em.clear();
+                    writer.flush();
+                }
+            }
+        }
+
+        writer.finish();
+        out.flush();
+        return writer.getCount();
+    }
+}
@@ -0,0 +1,117 @@
+package jpabook.jpashop.service.query;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.domain.Order;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 주문 1건의 OrderDto JSON 바이트 캐시 (ehcache.xml 의 orderJson)
+ * - 주문은 저장된 뒤 거의 바뀌지 않는다. 취소하면 상태가 바뀌고 @Version 이 올라간다.
+ *   그래서 (주문 id, 주문 version) 이 같으면 저장해 둔 바이트를 그대로 쓴다.
+ * - JSON 에는 회원 이름과 상품 이름도 들어간다. 회원/상품 이름이 바뀌면 그 회원/상품의 주문만 커밋 후에 지운다.
+ *   (MemberService.update, ItemService.updateItem) 다른 주문의 조각은 그대로 쓴다.
+ * - 취소는 커밋 후에 바로 지운다. (version 이 달라서 어차피 다시 만들지만 옛 바이트를 들고 있지 않도록)
+ * - 이름 변경은 주문 version 을 올리지 않으므로, 변경이 커밋되기 전에 옛 이름을 읽은 조회가 지운 뒤에 다시 넣을 수 있다.
+ *   그래서 지울 때마다 generation 을 올리고, 읽기 전에 받아 둔 generation 이 지금과 다르면 저장하지 않는다. (put)
+ *   지우기는 드물어서 그동안 만든 조각 몇 개를 저장하지 않는 것으로 충분하다.
+ * - 서버마다 따로 가지는 캐시다. 다른 서버의 이름 변경은 TTL(ehcache.xml) 이 지날 때까지 옛 이름으로 보일 수 있다.
+ */
+@Component
+public class OrderJsonCache {
+    public static final String CACHE_NAME = "orderJson";
+
+    private final Cache cache;
+    private final ObjectMapper objectMapper;
+    private final AtomicLong generation = new AtomicLong();
+
+    public OrderJsonCache(CacheManager cacheManager, ObjectMapper objectMapper) {
+        this.cache = Objects.requireNonNull(cacheManager.getCache(CACHE_NAME), "ehcache.xml 에 orderJson 캐시가 없습니다.");
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 지금까지 지운 횟수 - 주문을 읽기 전에 받아 두고 put 에 넘긴다.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * @return 캐시된 JSON, 없거나 version 이 다르면 null
+     */
+    public byte[] get(Long orderId, long version) {
+        Fragment fragment = cache.get(orderId, Fragment.class);
+        if (fragment == null || fragment.version != version) {
+            return null;
+        }
+        return fragment.json;
+    }
+
+    /**
+     * 주문을 OrderDto 로 직렬화해서 저장하고 반환 (member, delivery, orderItems, item 이 로딩된 상태로 호출)
+     * @param readGeneration 주문을 읽기 전의 generation(), 그 뒤에 지운 적이 있으면 저장하지 않고 반환만 한다.
+     */
+    public byte[] put(Order order, long readGeneration) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(new OrderDto(order));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (generation.get() == readGeneration) {
+            cache.put(order.getId(), new Fragment(order.getVersion() == null ? 0 : order.getVersion(), json));
+        }
+        return json;
+    }
+
+    /**
+     * 트랜잭션 안이면 커밋된 뒤에, 아니면 바로 지운다.
+     */
+    public void evictAfterCommit(Long orderId) {
+        evictAfterCommit(Collections.singletonList(orderId));
+    }
+
+    public void evictAfterCommit(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(orderIds);
+                }
+            });
+        } else {
+            evict(orderIds);
+        }
+    }
+
+    // generation 을 먼저 올린다. -> 이보다 먼저 읽은 조회의 put 은 지우기 전에 들어가서 지워지거나, 뒤에 와서 거절된다.
+    private void evict(Collection<Long> orderIds) {
+        generation.incrementAndGet();
+        orderIds.forEach(cache::evict);
+    }
+
+    private static final class Fragment implements Serializable {
+        private final long version;
+        private final byte[] json;
+
+        private Fragment(long version, byte[] json) {
+            this.version = version;
+            this.json = json;
+        }
+    }
+}
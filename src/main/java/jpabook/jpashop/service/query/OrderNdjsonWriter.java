@@ -0,0 +1,102 @@
+package jpabook.jpashop.service.query;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jpabook.jpashop.repository.order.query.OrderFlatDto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 플랫 row(order_id 순 정렬)를 읽는 즉시 NDJSON 으로 쓴다. (한 줄에 주문 하나, OrderQueryDto 와 같은 JSON 모양)
+ * - 주문마다 OrderQueryDto/ArrayList/OrderItemQueryDto 를 만들지 않고, 하나의 JsonGenerator 에 필드를 바로 쓴다.
+ *   주문 id 가 바뀌면 주문 객체를 열고, 라인은 그 자리에서 orderItems 배열에 쓰고, 다음 id 나 끝에서 닫는다.
+ * - 날짜/상태/주소 값은 앱의 ObjectMapper 로 쓰므로 날짜 형식, 모듈 등 설정이 API 응답과 같다.
+ * - generator 는 스트림을 닫지 않고, 주문마다 flush 하지 않는다.
+ */
+public class OrderNdjsonWriter {
+    private final JsonGenerator gen;
+    private final ObjectWriter valueWriter;
+    private boolean open;
+    private long currentOrderId;
+    private long count;
+
+    public OrderNdjsonWriter(ObjectMapper objectMapper, OutputStream out) throws IOException {
+        this.gen = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        this.gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.gen.setRootValueSeparator(null); // 줄바꿈은 직접 쓴다.
+        this.valueWriter = objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE); // 값마다 flush 하지 않도록
+    }
+
+    public void write(OrderFlatDto row) throws IOException {
+        long orderId = row.getOrderId();
+        if (!open || orderId != currentOrderId) {
+            if (open) {
+                endOrder();
+            }
+            startOrder(row);
+        }
+
+        gen.writeStartObject();
+        gen.writeNumberField("orderId", orderId);
+        gen.writeStringField("itemName", row.getItemName());
+        gen.writeNumberField("orderPrice", row.getOrderPrice());
+        gen.writeNumberField("count", row.getCount());
+        gen.writeEndObject();
+    }
+
+    /**
+     * 마지막 주문을 닫고 버퍼를 내보낸다.
+     */
+    public void finish() throws IOException {
+        if (open) {
+            endOrder();
+        }
+        gen.flush();
+    }
+
+    public void flush() throws IOException {
+        gen.flush();
+    }
+
+    /**
+     * 완성해서 쓴 주문 수
+     */
+    public long getCount() {
+        return count;
+    }
+
+    private void startOrder(OrderFlatDto row) throws IOException {
+        open = true;
+        currentOrderId = row.getOrderId();
+
+        gen.writeStartObject();
+        gen.writeNumberField("orderId", currentOrderId);
+        gen.writeStringField("name", row.getName());
+        writeValueField("orderDate", row.getOrderDate());
+        writeValueField("orderStatus", row.getOrderStatus());
+        writeValueField("address", row.getAddress());
+        gen.writeArrayFieldStart("orderItems");
+    }
+
+    private void writeValueField(String name, Object value) throws IOException {
+        gen.writeFieldName(name);
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            valueWriter.writeValue(gen, value);
+        }
+    }
+
+    private void endOrder() throws IOException {
+        gen.writeEndArray();
+        gen.writeEndObject();
+        gen.writeRaw('\n');
+        open = false;
+        count++;
+    }
+}
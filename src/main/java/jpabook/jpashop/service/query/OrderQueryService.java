@@ -2,12 +2,18 @@ package jpabook.jpashop.service.query;
 
 import jpabook.jpashop.api.OrderApiController;
 import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
 import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.web.JsonArray;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 // Transactional 이 있기 때문에 OSIV (Open Session In VIEW)를 꺼도 영속성 컨텍스트가 유지가 되는거임.
@@ -16,7 +22,34 @@ import java.util.stream.Collectors;
 @Transactional(readOnly = true)
 @RequiredArgsConstructor
 public class OrderQueryService {
+    private static final int MAX_PAGE_SIZE = 1000; // default_batch_fetch_size 와 맞춤
+
     private final OrderRepository orderRepository;
+    private final OrderJsonCache orderJsonCache;
+
+    /**
+     * V1: 엔티티 그대로 반환 -> JSON 으로 나갈 연관 엔티티를 트랜잭션 안에서 모두 초기화해둔다.
+     */
+    public List<Order> ordersV1(OrderSearch orderSearch) {
+        List<Order> all = orderRepository.findAll(orderSearch);
+        for (Order order : all) {
+            order.getMember().getName(); //Lazy 강제 초기화
+            order.getDelivery().getAddress(); //Lazy 강제 초기화
+            List<OrderItem> orderItems = order.getOrderItems();
+            orderItems.stream().forEach(o -> o.getItem().getName()); //Lazy 강제 초기화
+        }
+        return all;
+    }
+
+    /**
+     * V2: DTO 변환 중 지연 로딩 (batch fetch size 로 IN 조회)
+     */
+    public List<OrderDto> ordersV2(OrderSearch orderSearch) {
+        List<Order> orders = orderRepository.findAll(orderSearch);
+        return orders.stream()
+                .map(o -> new OrderDto(o))
+                .collect(Collectors.toList());
+    }
 
     public List<OrderDto> ordersV3() {
         List<Order> orders = orderRepository.findAllWithItem();
@@ -26,6 +59,52 @@ public class OrderQueryService {
         return result;
     }
 
+    /**
+     * V3 응답을 주문별 JSON 조각 캐시로 조립 (주문마다 OrderDto 를 Jackson 으로 쓴 것과 같은 JSON)
+     * - 주문 id 페이지를 조인 없이 먼저 조회하고, 그 id 들만 컬렉션까지 페치 조인한다. (컬렉션 페치 조인 + 페이징은 메모리 페이징)
+     * - 주문 (id, version) 만 먼저 조회하고, 캐시에 있는 주문은 저장된 바이트를 그대로 쓴다.
+     * - 캐시에 없거나 바뀐 주문만 페치 조인으로 읽어서 직렬화한다. (IN 절은 MAX_PAGE_SIZE 개씩)
+     * - 모두 캐시에 있으면 가벼운 쿼리 1번 + 바이트 이어붙이기만 남는다.
+     * @param page null 이면 전체
+     */
+    public JsonArray ordersV3Json(Integer page, int size) {
+        long generation = orderJsonCache.generation(); // 주문을 읽기 전에 (이름 변경으로 지운 뒤 옛 조각을 넣지 않도록)
+        List<Object[]> idVersions;
+        if (page == null) {
+            idVersions = orderRepository.findIdAndVersion(0, 0);
+        } else {
+            int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+            idVersions = orderRepository.findIdAndVersion(Math.max(page, 0) * pageSize, pageSize);
+        }
+
+        byte[][] fragments = new byte[idVersions.size()][];
+        Map<Long, Integer> missing = new HashMap<>(); // 주문 id -> 응답 위치
+        for (int i = 0; i < idVersions.size(); i++) {
+            Long orderId = (Long) idVersions.get(i)[0];
+            Long version = (Long) idVersions.get(i)[1];
+            fragments[i] = orderJsonCache.get(orderId, version == null ? 0 : version);
+            if (fragments[i] == null) {
+                missing.put(orderId, i);
+            }
+        }
+
+        List<Long> missingIds = new ArrayList<>(missing.keySet());
+        for (int from = 0; from < missingIds.size(); from += MAX_PAGE_SIZE) {
+            List<Long> chunk = missingIds.subList(from, Math.min(from + MAX_PAGE_SIZE, missingIds.size()));
+            for (Order order : orderRepository.findAllWithItemByIds(chunk)) {
+                fragments[missing.get(order.getId())] = orderJsonCache.put(order, generation);
+            }
+        }
+
+        List<byte[]> result = new ArrayList<>(fragments.length);
+        for (byte[] fragment : fragments) {
+            if (fragment != null) { // 두 조회 사이에 없어진 주문은 뺀다.
+                result.add(fragment);
+            }
+        }
+        return new JsonArray(result);
+    }
+
     public List<OrderDto> ordersV3_page(int offset, int limit) {
         List<Order> orders = orderRepository.findAllWithMemberDelivery(offset, limit);
         List<OrderDto> result = orders.stream()
@@ -34,4 +113,26 @@ public class OrderQueryService {
         return result;
     }
 
+    /**
+     * V3.1 키셋 페이징
+     * - limit + 1 건을 조회해서 다음 페이지 존재 여부를 판단한다. (count 쿼리 불필요)
+     * - 컬렉션(orderItems)은 ordersV3_page 와 같이 batch fetch 로 조회
+     * - afterId 는 OrderCursor.decode 로 검증한 값 (null 이면 첫 페이지)
+     */
+    public OrderCursorPage ordersV3_cursor(Long afterId, int limit) {
+        int size = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+
+        List<Order> orders = orderRepository.findAllWithMemberDeliveryAfter(afterId, size + 1);
+        boolean hasNext = orders.size() > size;
+        if (hasNext) {
+            orders = orders.subList(0, size);
+        }
+
+        List<OrderDto> result = orders.stream()
+                .map(o -> new OrderDto(o))
+                .collect(Collectors.toList());
+        String next = hasNext ? OrderCursor.encode(orders.get(orders.size() - 1).getId()) : null;
+        return new OrderCursorPage(result, next);
+    }
+
 }
@@ -0,0 +1,38 @@
+package jpabook.jpashop.service.query;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * OrderSimpleApiController V1, V2 의 지연 로딩을 트랜잭션 안으로 (API 경로는 OSIV 를 끈다)
+ */
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class OrderSimpleQueryService {
+    private final OrderRepository orderRepository;
+
+    public List<Order> ordersV1(OrderSearch orderSearch) {
+        List<Order> all = orderRepository.findAll(orderSearch);
+        for (Order order : all) {
+            order.getMember().getName(); //Lazy 강제 초기화
+            order.getDelivery().getAddress(); //Lazy 강제 초기화
+        }
+        return all;
+    }
+
+    public List<OrderSimpleQueryDto> ordersV2(OrderSearch orderSearch) {
+        List<Order> orders = orderRepository.findAll(orderSearch);
+        return orders.stream()
+                .map(o -> new OrderSimpleQueryDto(o))
+                .collect(Collectors.toList());
+    }
+}
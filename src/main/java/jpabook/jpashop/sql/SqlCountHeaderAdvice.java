@@ -0,0 +1,47 @@
+package jpabook.jpashop.sql;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * 응답 헤더로 요청에서 실행된 SQL 수를 내려준다. (jpashop.sql.header.enabled=true 일때만, 개발/스테이징용)
+ *      X-Sql-Count: 12
+ *      X-Sql-Max-Repeat: 10  (같은 모양 SQL 의 최대 반복 수, N+1 이면 커진다)
+ * - 응답을 쓰기 직전의 값이므로, JSON 직렬화 중에 일어나는 지연 로딩(엔티티 직접 노출 V1)은 포함되지 않는다.
+ */
+@ControllerAdvice
+public class SqlCountHeaderAdvice implements ResponseBodyAdvice<Object> {
+    private final boolean enabled;
+
+    public SqlCountHeaderAdvice(@Value("${jpashop.sql.header.enabled:false}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return enabled;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        SqlStats stats = SqlStatsHolder.outermost();
+        if (stats == null && request instanceof ServletServerHttpRequest) {
+            // 비동기 API 는 응답을 다른 스레드에서 쓰므로 요청 속성에서 찾는다. (SqlStatsFilter)
+            stats = (SqlStats) ((ServletServerHttpRequest) request).getServletRequest().getAttribute(SqlStatsFilter.ATTRIBUTE);
+        }
+        if (stats != null) {
+            response.getHeaders().set("X-Sql-Count", String.valueOf(stats.getStatements()));
+            response.getHeaders().set("X-Sql-Max-Repeat", String.valueOf(stats.getMaxRepeat()));
+        }
+        return body;
+    }
+}
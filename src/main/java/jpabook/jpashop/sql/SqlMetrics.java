@@ -0,0 +1,55 @@
+package jpabook.jpashop.sql;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 구간별 SQL 통계를 메트릭으로 기록 (scope=request|service, name=URI 패턴|메서드)
+ *      jpashop.sql.statements : 구간당 SQL 실행 수 (분포)
+ *      jpashop.sql.time       : 구간당 JDBC 실행 시간
+ *      jpashop.sql.rows       : 구간당 읽은 row 수 (분포)
+ *      jpashop.sql.n_plus_one : 같은 모양의 SQL 이 threshold 번 이상 실행된 구간 수 (N+1 의심)
+ */
+@Slf4j
+@Component
+public class SqlMetrics {
+    private final MeterRegistry meterRegistry;
+    private final int nPlusOneThreshold;
+
+    public SqlMetrics(MeterRegistry meterRegistry,
+                      @Value("${jpashop.sql.n-plus-one-threshold:5}") int nPlusOneThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.nPlusOneThreshold = nPlusOneThreshold;
+    }
+
+    public void record(String scope, String name, SqlStats stats) {
+        DistributionSummary.builder("jpashop.sql.statements")
+                .tags("scope", scope, "name", name)
+                .register(meterRegistry)
+                .record(stats.getStatements());
+        Timer.builder("jpashop.sql.time")
+                .tags("scope", scope, "name", name)
+                .register(meterRegistry)
+                .record(stats.getElapsedNanos(), TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("jpashop.sql.rows")
+                .tags("scope", scope, "name", name)
+                .register(meterRegistry)
+                .record(stats.getRows());
+
+        if (isNPlusOne(stats)) {
+            meterRegistry.counter("jpashop.sql.n_plus_one", "scope", scope, "name", name).increment();
+            log.warn("N+1 suspected. {} {} repeated {} times: {}",
+                    scope, name, stats.getMaxRepeat(), stats.getMostRepeatedShape());
+        }
+    }
+
+    public boolean isNPlusOne(SqlStats stats) {
+        return stats.getMaxRepeat() >= nPlusOneThreshold;
+    }
+}
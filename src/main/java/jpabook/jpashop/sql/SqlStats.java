@@ -0,0 +1,98 @@
+package jpabook.jpashop.sql;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 한 구간(HTTP 요청, 서비스 메서드)에서 실행된 SQL 통계
+ * - 실행 수, JDBC 실행 시간, 읽은 row 수
+ * - SQL 모양(파라미터, IN 목록 크기를 무시한 SQL)별 실행 수 -> 같은 모양이 여러번이면 N+1 의심
+ * - 주문 조회 작업 스레드들이 요청의 통계에 동시에 기록할 수 있어서 동기화한다. ({@link SqlStatsHolder}, 경합은 요청 하나 안에서만)
+ */
+public class SqlStats {
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern NUMBER = Pattern.compile("\\b\\d+\\b");
+    private static final Pattern STRING = Pattern.compile("'(?:[^']|'')*'");
+
+    private final String name;
+    private int statements;
+    private long elapsedNanos;
+    private long rows;
+    private final Map<String, Integer> shapes = new HashMap<>();
+
+    public SqlStats(String name) {
+        this.name = name;
+    }
+
+    void record(String sql, long nanos) {
+        String shape = sql == null ? null : shapeOf(sql); // 정규식은 락 밖에서
+        synchronized (this) {
+            statements++;
+            elapsedNanos += nanos;
+            if (shape != null) {
+                shapes.merge(shape, 1, Integer::sum);
+            }
+        }
+    }
+
+    synchronized void addRow() {
+        rows++;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized int getStatements() {
+        return statements;
+    }
+
+    public synchronized long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public synchronized long getRows() {
+        return rows;
+    }
+
+    /**
+     * 같은 모양의 SQL 이 가장 많이 실행된 횟수
+     */
+    public synchronized int getMaxRepeat() {
+        int max = 0;
+        for (int count : shapes.values()) {
+            max = Math.max(max, count);
+        }
+        return max;
+    }
+
+    /**
+     * 가장 많이 반복된 SQL 모양 (없으면 null)
+     */
+    public synchronized String getMostRepeatedShape() {
+        String shape = null;
+        int max = 0;
+        for (Map.Entry<String, Integer> entry : shapes.entrySet()) {
+            if (entry.getValue() > max) {
+                max = entry.getValue();
+                shape = entry.getKey();
+            }
+        }
+        return shape;
+    }
+
+    static String shapeOf(String sql) {
+        String shape = STRING.matcher(sql).replaceAll("?");
+        shape = NUMBER.matcher(shape).replaceAll("?");
+        shape = IN_LIST.matcher(shape).replaceAll("(?)");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return name + " [statements=" + statements + ", elapsedMs=" + elapsedNanos / 1_000_000
+                + ", rows=" + rows + ", maxRepeat=" + getMaxRepeat() + "]";
+    }
+}
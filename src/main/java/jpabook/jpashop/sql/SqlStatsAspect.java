@@ -0,0 +1,36 @@
+package jpabook.jpashop.sql;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@code @Transactional} 서비스 메서드 단위 SQL 통계 (name 은 OrderQueryService.ordersV3() 같은 메서드)
+ * - 트랜잭션 AOP 보다 바깥에서 실행되어야 커밋시 flush 되는 INSERT/UPDATE 까지 포함된다.
+ *   (재시도 AOP 보다는 안쪽 -> 재시도는 시도마다 따로 기록)
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@RequiredArgsConstructor
+public class SqlStatsAspect {
+    private final SqlMetrics sqlMetrics;
+
+    @Around("within(jpabook.jpashop.service..*) && " +
+            "(@within(org.springframework.transaction.annotation.Transactional) || " +
+            "@annotation(org.springframework.transaction.annotation.Transactional))")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        String method = joinPoint.getSignature().toShortString();
+        SqlStats stats = SqlStatsHolder.start(method);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            SqlStatsHolder.stop(stats);
+            sqlMetrics.record("service", method, stats);
+        }
+    }
+}
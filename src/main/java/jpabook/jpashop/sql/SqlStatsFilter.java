@@ -0,0 +1,76 @@
+package jpabook.jpashop.sql;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * HTTP 요청 단위 SQL 통계 (name 은 /api/v2/orders 같은 URI 패턴)
+ * - 요청이 끝날 때까지 측정하므로 OSIV 로 뷰 렌더링/JSON 직렬화 중에 발생한 지연 로딩 SQL 도 포함된다.
+ * - 비동기 API (CompletableFuture 반환) 는 작업 스레드의 SQL 까지 모아서 응답이 끝날 때 기록한다. (ApiTaskDecorator)
+ */
+@Component
+@RequiredArgsConstructor
+public class SqlStatsFilter extends OncePerRequestFilter {
+    static final String ATTRIBUTE = SqlStats.class.getName();
+
+    private final SqlMetrics sqlMetrics;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlStats stats = SqlStatsHolder.start("request");
+        request.setAttribute(ATTRIBUTE, stats);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            SqlStatsHolder.stop(stats);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new RecordOnComplete(request, stats));
+            } else {
+                record(request, stats);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, SqlStats stats) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        sqlMetrics.record("request", pattern != null ? pattern.toString() : "UNKNOWN", stats);
+    }
+
+    private class RecordOnComplete implements AsyncListener {
+        private final HttpServletRequest request;
+        private final SqlStats stats;
+
+        private RecordOnComplete(HttpServletRequest request, SqlStats stats) {
+            this.request = request;
+            this.stats = stats;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            record(request, stats);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
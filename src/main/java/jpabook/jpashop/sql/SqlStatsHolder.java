@@ -0,0 +1,85 @@
+package jpabook.jpashop.sql;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * 현재 스레드에서 측정중인 구간들
+ * - 요청 안에서 서비스 메서드가 호출되면 구간이 겹친다. SQL 은 열려있는 모든 구간에 기록된다.
+ * - 측정중인 구간이 없으면 아무것도 기록하지 않는다. (배치, 스케줄러 등)
+ */
+public final class SqlStatsHolder {
+    private static final ThreadLocal<Deque<SqlStats>> SCOPES = new ThreadLocal<>();
+
+    private SqlStatsHolder() {
+    }
+
+    public static SqlStats start(String name) {
+        Deque<SqlStats> scopes = SCOPES.get();
+        if (scopes == null) {
+            scopes = new ArrayDeque<>();
+            SCOPES.set(scopes);
+        }
+        SqlStats stats = new SqlStats(name);
+        scopes.push(stats);
+        return stats;
+    }
+
+    /**
+     * 다른 스레드에서 시작한 구간을 현재 스레드에도 연결 (비동기 API 작업 스레드, ApiTaskDecorator)
+     * 주문 조회를 나눠서 실행하면 여러 스레드가 같은 구간에 동시에 기록한다. (SqlStats 가 동기화) 끝나면 stop 으로 떼어낸다.
+     */
+    public static void attach(SqlStats stats) {
+        Deque<SqlStats> scopes = SCOPES.get();
+        if (scopes == null) {
+            scopes = new ArrayDeque<>();
+            SCOPES.set(scopes);
+        }
+        scopes.addLast(stats);
+    }
+
+    public static void stop(SqlStats stats) {
+        Deque<SqlStats> scopes = SCOPES.get();
+        if (scopes == null) {
+            return;
+        }
+        scopes.remove(stats);
+        if (scopes.isEmpty()) {
+            SCOPES.remove();
+        }
+    }
+
+    /**
+     * 가장 바깥 구간 (보통 HTTP 요청). 없으면 null
+     */
+    public static SqlStats outermost() {
+        Deque<SqlStats> scopes = SCOPES.get();
+        return scopes == null ? null : scopes.peekLast();
+    }
+
+    /**
+     * 가장 안쪽 구간 (보통 서비스 메서드). 없으면 null
+     */
+    public static SqlStats innermost() {
+        Deque<SqlStats> scopes = SCOPES.get();
+        return scopes == null ? null : scopes.peekFirst();
+    }
+
+    static void record(String sql, long nanos) {
+        Deque<SqlStats> scopes = SCOPES.get();
+        if (scopes != null) {
+            for (SqlStats stats : scopes) {
+                stats.record(sql, nanos);
+            }
+        }
+    }
+
+    static void addRow() {
+        Deque<SqlStats> scopes = SCOPES.get();
+        if (scopes != null) {
+            for (SqlStats stats : scopes) {
+                stats.addRow();
+            }
+        }
+    }
+}
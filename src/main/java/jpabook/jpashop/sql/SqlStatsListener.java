@@ -0,0 +1,29 @@
+package jpabook.jpashop.sql;
+
+import com.p6spy.engine.common.ResultSetInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+
+/**
+ * p6spy 이벤트로 SQL 실행을 {@link SqlStatsHolder} 에 기록한다.
+ * - p6spy-spring-boot-starter 가 JdbcEventListener 빈을 자동으로 등록한다.
+ * - executeBatch 는 DB 왕복 1번이므로 1건으로 센다.
+ */
+@Component
+public class SqlStatsListener extends SimpleJdbcEventListener {
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        SqlStatsHolder.record(statementInformation.getSql(), timeElapsedNanos);
+    }
+
+    @Override
+    public void onAfterResultSetNext(ResultSetInformation resultSetInformation, long timeElapsedNanos, boolean hasNext, SQLException e) {
+        if (hasNext) {
+            SqlStatsHolder.addRow();
+        }
+    }
+}
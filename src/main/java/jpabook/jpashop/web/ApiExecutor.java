@@ -0,0 +1,51 @@
+package jpabook.jpashop.web;
+
+import jpabook.jpashop.datasource.DbConcurrencyLimiter;
+import jpabook.jpashop.exception.ServerBusyException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * API 핸들러 실행 방식 (jpashop.api.async.enabled)
+ * - async: 작업을 apiExecutor 스레드 풀에서 실행하고 CompletableFuture 를 바로 돌려준다.
+ *   Tomcat 요청 스레드는 곧바로 반환되므로, 느린 요청이 몰려도 요청 스레드 수가 동시 처리 수를 막지 않는다.
+ *   (Java 11 이라 가상 스레드 대신 작은 고정 스레드 풀 + 비동기 서블릿)
+ * - sync: 요청 스레드에서 그대로 실행하고 완료된 CompletableFuture 를 돌려준다.
+ * - 두 방식 모두 DB 동시 사용 수는 DbConcurrencyLimiter 로 커넥션 풀 크기보다 작게 제한한다.
+ * - 작업은 트랜잭션이 있는 서비스 호출이어야 한다. (API 경로는 OSIV 를 끄므로 작업이 끝나면 지연 로딩 불가)
+ */
+@Component
+public class ApiExecutor {
+    private final Executor executor;
+    private final DbConcurrencyLimiter dbConcurrencyLimiter;
+    private final boolean async;
+
+    public ApiExecutor(@Qualifier("apiTaskExecutor") Executor executor,
+                       DbConcurrencyLimiter dbConcurrencyLimiter,
+                       @Value("${jpashop.api.async.enabled:false}") boolean async) {
+        this.executor = executor;
+        this.dbConcurrencyLimiter = dbConcurrencyLimiter;
+        this.async = async;
+    }
+
+    public <T> CompletableFuture<T> supply(Supplier<T> work) {
+        if (!async) {
+            return CompletableFuture.completedFuture(dbConcurrencyLimiter.call(work));
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> dbConcurrencyLimiter.call(work), executor);
+        } catch (RejectedExecutionException e) {
+            throw new ServerBusyException("처리 대기중인 요청이 많습니다. 잠시 후 다시 시도해주세요.", e);
+        }
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+}
@@ -0,0 +1,42 @@
+package jpabook.jpashop.web;
+
+import jpabook.jpashop.datasource.PrimaryStickiness;
+import jpabook.jpashop.sql.SqlStats;
+import jpabook.jpashop.sql.SqlStatsHolder;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * 요청 스레드의 ThreadLocal 상태를 API 작업 스레드로 넘긴다.
+ * - RequestContextHolder: 응답 쿠키 (ReadYourWrites)
+ * - PrimaryStickiness: 쓰기 직후 읽기를 primary 로 (ReadYourWritesFilter 가 요청 스레드에 설정)
+ * - SqlStatsHolder: 요청 단위 SQL 통계 (SqlStatsFilter)
+ */
+public class ApiTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        Long pinnedUntil = PrimaryStickiness.pinnedUntil();
+        SqlStats sqlStats = SqlStatsHolder.outermost();
+        return () -> {
+            RequestContextHolder.setRequestAttributes(attributes);
+            if (pinnedUntil != null) {
+                PrimaryStickiness.pinUntil(pinnedUntil);
+            }
+            if (sqlStats != null) {
+                SqlStatsHolder.attach(sqlStats);
+            }
+            try {
+                runnable.run();
+            } finally {
+                if (sqlStats != null) {
+                    SqlStatsHolder.stop(sqlStats);
+                }
+                PrimaryStickiness.clear();
+                RequestContextHolder.resetRequestAttributes();
+            }
+        };
+    }
+}
@@ -0,0 +1,30 @@
+package jpabook.jpashop.web;
+
+import jpabook.jpashop.change.ChangeTable;
+import jpabook.jpashop.change.ChangeTracker;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * 조회 API 의 조건부 GET (ETag / Last-Modified)
+ * - 응답에 쓰는 데이터 묶음의 버전(ChangeTracker)으로 ETag 를 만든다. 본 쿼리/직렬화 전에 확인하므로,
+ *   바뀐 게 없으면 304 만 보내고 끝난다. (If-None-Match 가 있으면 ETag 로, 없으면 If-Modified-Since 로 비교)
+ * - 버전은 본 쿼리보다 먼저 읽으므로, 그 사이에 바뀌면 다음 요청에서 다시 전체 응답을 받는다. (오래된 304 는 없음)
+ * - 버전을 DB 에서 다시 읽을 때는 ChangeTracker 가 DbConcurrencyLimiter 안에서 읽는다. (요청 스레드에서 부르므로)
+ *
+ * 사용: if (conditionalGet.notModified(request, MEMBERS)) return null;
+ */
+@Component
+@RequiredArgsConstructor
+public class ConditionalGet {
+    private final ChangeTracker changeTracker;
+
+    /**
+     * true 면 304 가 설정된 상태이므로 핸들러는 null 을 반환한다. false 면 ETag/Last-Modified 헤더만 붙는다.
+     */
+    public boolean notModified(WebRequest request, ChangeTable... tables) {
+        ChangeTracker.Snapshot snapshot = changeTracker.snapshot(tables);
+        return request.checkNotModified(snapshot.getEtag(), snapshot.getLastModified());
+    }
+}
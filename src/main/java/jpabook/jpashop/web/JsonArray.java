@@ -0,0 +1,30 @@
+package jpabook.jpashop.web;
+
+import java.util.List;
+
+/**
+ * 이미 직렬화된 JSON 값(byte[]) 들을 이어 붙여서 JSON 배열로 응답한다. (JsonArrayHttpMessageConverter)
+ * - 요소마다 Jackson 직렬화를 다시 하지 않고 캐시해 둔 바이트를 그대로 출력 스트림에 쓴다.
+ */
+public final class JsonArray {
+    private final List<byte[]> elements;
+
+    public JsonArray(List<byte[]> elements) {
+        this.elements = elements;
+    }
+
+    public List<byte[]> getElements() {
+        return elements;
+    }
+
+    /**
+     * '[' + 요소들 + ',' + ']' 의 바이트 수
+     */
+    public long byteLength() {
+        long length = 2 + Math.max(0, elements.size() - 1);
+        for (byte[] element : elements) {
+            length += element.length;
+        }
+        return length;
+    }
+}
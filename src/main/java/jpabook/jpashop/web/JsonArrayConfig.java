@@ -0,0 +1,19 @@
+package jpabook.jpashop.web;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * JsonArray 컨버터를 Jackson 컨버터보다 앞에 등록 (Jackson 이 JsonArray 를 객체로 직렬화하지 않도록)
+ */
+@Configuration
+public class JsonArrayConfig implements WebMvcConfigurer {
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(0, new JsonArrayHttpMessageConverter());
+    }
+}
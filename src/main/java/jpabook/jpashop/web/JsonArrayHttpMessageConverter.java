@@ -0,0 +1,55 @@
+package jpabook.jpashop.web;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * JsonArray 응답 쓰기 전용 컨버터 (요청 본문으로는 받지 않는다)
+ */
+public class JsonArrayHttpMessageConverter extends AbstractHttpMessageConverter<JsonArray> {
+
+    public JsonArrayHttpMessageConverter() {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return JsonArray.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected JsonArray readInternal(Class<? extends JsonArray> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("JsonArray 는 응답 전용입니다.", inputMessage);
+    }
+
+    @Override
+    protected Long getContentLength(JsonArray jsonArray, MediaType contentType) {
+        return jsonArray.byteLength();
+    }
+
+    @Override
+    protected void writeInternal(JsonArray jsonArray, HttpOutputMessage outputMessage) throws IOException {
+        OutputStream out = outputMessage.getBody();
+        out.write('[');
+        boolean first = true;
+        for (byte[] element : jsonArray.getElements()) {
+            if (!first) {
+                out.write(',');
+            }
+            out.write(element);
+            first = false;
+        }
+        out.write(']');
+    }
+}
@@ -0,0 +1,70 @@
+package jpabook.jpashop.web;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jpabook.jpashop.exception.LazyLoadOutsideTransactionException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.LazyInitializationException;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * API 에서 트랜잭션 밖 지연 로딩이 일어나면 원인을 알 수 있는 500 응답으로
+ * - LazyLoadOutsideTransactionException: 영속성 컨텍스트는 열려 있지만 트랜잭션 밖 (LazyLoadGuard)
+ * - LazyInitializationException: 영속성 컨텍스트가 이미 닫힘 (OSIV off 에서 컨트롤러나 JSON 직렬화 중 접근)
+ *   JSON 직렬화 중이면 HttpMessageNotWritableException 으로 감싸져서 온다.
+ */
+@Slf4j
+@RestControllerAdvice(basePackages = "jpabook.jpashop.api")
+@RequiredArgsConstructor
+public class LazyLoadExceptionAdvice {
+    private final MeterRegistry meterRegistry;
+
+    @ExceptionHandler(LazyLoadOutsideTransactionException.class)
+    @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
+    public Map<String, String> lazyLoadOutsideTransaction(LazyLoadOutsideTransactionException e) {
+        log.error("lazy load outside transaction", e);
+        return body("LAZY_LOAD_OUTSIDE_TRANSACTION", e.getMessage());
+    }
+
+    @ExceptionHandler(LazyInitializationException.class)
+    @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
+    public Map<String, String> lazyInitialization(LazyInitializationException e) {
+        return closedSession(e);
+    }
+
+    @ExceptionHandler(HttpMessageNotWritableException.class)
+    @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
+    public Map<String, String> notWritable(HttpMessageNotWritableException e) {
+        Throwable cause = NestedExceptionUtils.getMostSpecificCause(e);
+        if (cause instanceof LazyInitializationException) {
+            return closedSession((LazyInitializationException) cause);
+        }
+        if (cause instanceof LazyLoadOutsideTransactionException) {
+            return lazyLoadOutsideTransaction((LazyLoadOutsideTransactionException) cause);
+        }
+        log.error("response write failed", e);
+        return body("RESPONSE_NOT_WRITABLE", e.getMessage());
+    }
+
+    private Map<String, String> closedSession(LazyInitializationException e) {
+        meterRegistry.counter("jpashop.jpa.lazy_load_outside_tx", "kind", "closed-session", "target", "unknown").increment();
+        log.error("lazy load after session closed", e);
+        return body("LAZY_LOAD_OUTSIDE_TRANSACTION",
+                e.getMessage() + " -> 서비스(@Transactional) 안에서 초기화하거나 fetch join 으로 함께 조회하세요.");
+    }
+
+    private static Map<String, String> body(String code, String message) {
+        Map<String, String> body = new LinkedHashMap<>();
+        body.put("code", code);
+        body.put("message", message);
+        return body;
+    }
+}
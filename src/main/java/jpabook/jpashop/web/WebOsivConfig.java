@@ -0,0 +1,32 @@
+package jpabook.jpashop.web;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * OSIV 를 화면(타임리프) 경로에만 적용
+ * - spring.jpa.open-in-view 는 false (전체 끔) 로 두고, /api/** 가 아닌 경로에만 OSIV 인터셉터를 직접 등록한다.
+ * - API 는 트랜잭션이 끝나면 커넥션을 바로 반환하므로, 요청이 길어지거나 비동기로 처리돼도 커넥션을 붙잡지 않는다.
+ *   대신 지연 로딩은 모두 서비스(트랜잭션) 안에서 끝내야 한다. (OrderQueryService, OrderSimpleQueryService)
+ */
+@Configuration
+@ConditionalOnProperty(name = "jpashop.web.osiv.enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+public class WebOsivConfig implements WebMvcConfigurer {
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        OpenEntityManagerInViewInterceptor interceptor = new OpenEntityManagerInViewInterceptor();
+        interceptor.setEntityManagerFactory(entityManagerFactory);
+        registry.addWebRequestInterceptor(interceptor)
+                .addPathPatterns("/**")
+                .excludePathPatterns("/api/**");
+    }
+}
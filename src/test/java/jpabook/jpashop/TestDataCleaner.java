@@ -0,0 +1,87 @@
+package jpabook.jpashop;
+
+import jpabook.jpashop.repository.CategoryTreeCache;
+import jpabook.jpashop.repository.MemberNameIndex;
+import jpabook.jpashop.search.ItemSearchIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+/**
+ * 트랜잭션 없이 커밋하는 테스트(동시성 테스트 등)가 만든 데이터를 지운다.
+ * - 테스트들이 같은 H2 메모리 DB 를 쓰므로 지우지 않으면 다른 테스트의 조회 결과에 섞인다.
+ * - SQL 로 지우므로 2차 캐시, 스프링 캐시, 메모리 색인도 다시 맞춘다.
+ */
+@Component
+public class TestDataCleaner {
+
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired EntityManagerFactory emf;
+    @Autowired CacheManager cacheManager;
+    @Autowired MemberNameIndex memberNameIndex;
+    @Autowired ItemSearchIndex itemSearchIndex;
+    @Autowired CategoryTreeCache categoryTreeCache;
+
+    /**
+     * 상품과 그 상품이 들어간 주문을 지운다.
+     */
+    public void deleteItem(Long itemId) {
+        deleteOrders(jdbcTemplate.queryForList(
+                "select distinct order_id from order_item where item_id = ?", Long.class, itemId));
+        jdbcTemplate.update("delete from outbox_event where aggregate_type = 'Item' and aggregate_id = ?", itemId);
+        jdbcTemplate.update("delete from category_item where item_id = ?", itemId);
+        jdbcTemplate.update("delete from item where item_id = ?", itemId);
+        resetCaches();
+    }
+
+    /**
+     * 이름이 prefix 로 시작하는 회원과 그 회원의 주문을 지운다.
+     */
+    public void deleteMembersByNamePrefix(String prefix) {
+        List<Long> memberIds = jdbcTemplate.queryForList(
+                "select member_id from member where name like ?", Long.class, prefix + "%");
+        for (Long memberId : memberIds) {
+            deleteOrders(jdbcTemplate.queryForList(
+                    "select order_id from orders where member_id = ?", Long.class, memberId));
+            jdbcTemplate.update("delete from member where member_id = ?", memberId);
+        }
+        resetCaches();
+    }
+
+    /**
+     * 카테고리를 지운다. (하위 카테고리도 함께 넘겨야 한다)
+     */
+    public void deleteCategories(List<Long> categoryIds) {
+        for (Long categoryId : categoryIds) {
+            jdbcTemplate.update("delete from category_item where category_id = ?", categoryId);
+            jdbcTemplate.update("update category set parent_id = null where category_id = ?", categoryId);
+        }
+        for (Long categoryId : categoryIds) {
+            jdbcTemplate.update("delete from category where category_id = ?", categoryId);
+        }
+        categoryTreeCache.rebuild();
+    }
+
+    private void deleteOrders(List<Long> orderIds) {
+        for (Long orderId : orderIds) {
+            Long deliveryId = jdbcTemplate.queryForObject(
+                    "select delivery_id from orders where order_id = ?", Long.class, orderId);
+            jdbcTemplate.update("delete from outbox_event where aggregate_type = 'Order' and aggregate_id = ?", orderId);
+            jdbcTemplate.update("delete from order_summary where order_id = ?", orderId);
+            jdbcTemplate.update("delete from order_item where order_id = ?", orderId);
+            jdbcTemplate.update("delete from orders where order_id = ?", orderId);
+            jdbcTemplate.update("delete from delivery where delivery_id = ?", deliveryId);
+        }
+    }
+
+    private void resetCaches() {
+        emf.getCache().evictAll();
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        memberNameIndex.rebuild();
+        itemSearchIndex.rebuild();
+    }
+}
@@ -0,0 +1,172 @@
+package jpabook.jpashop.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.TestDataCleaner;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.query.OrderDto;
+import jpabook.jpashop.service.query.OrderJsonCache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * /api/v3/orders 는 JsonArray 컨버터가 캐시된 JSON 조각을 이어 붙여서 쓴다. (Jackson 컨버터보다 먼저)
+ * API 는 작업 스레드에서 따로 트랜잭션을 열어 조회하므로 테스트 트랜잭션 없이 커밋하고, 끝나면 지운다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderApiControllerTest {
+
+    @Autowired WebApplicationContext context;
+    @Autowired MemberService memberService;
+    @Autowired ItemService itemService;
+    @Autowired OrderService orderService;
+    @Autowired OrderRepository orderRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired ObjectMapper objectMapper;
+    @Autowired CacheManager cacheManager;
+    @Autowired OrderJsonCache orderJsonCache;
+    @Autowired TestDataCleaner testDataCleaner;
+
+    private MockMvc mockMvc;
+    private Long memberId;
+    private Long orderId;
+    private Long otherOrderId;
+    private Long itemId;
+
+    @Before
+    public void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+
+        Book book = new Book();
+        book.setName("v3-mvc-book-" + UUID.randomUUID());
+        book.setPrice(1000);
+        book.setStockQuantity(10);
+        itemService.saveItem(book);
+        itemId = book.getId();
+
+        memberId = memberService.join(member("v3-mvc-a-" + UUID.randomUUID()));
+        Long otherMemberId = memberService.join(member("v3-mvc-b-" + UUID.randomUUID()));
+        orderId = orderService.order(memberId, itemId, 1);
+        otherOrderId = orderService.order(otherMemberId, itemId, 2);
+    }
+
+    @After
+    public void cleanUp() {
+        testDataCleaner.deleteMembersByNamePrefix("v3-mvc-");
+        testDataCleaner.deleteItem(itemId);
+    }
+
+    @Test
+    public void V3_응답은_Jackson_과_같은_JSON_과_정확한_Content_Length() throws Exception {
+        //given
+        String expected = jacksonJson();
+
+        //when: 처음은 조각을 만들고, 두 번째는 캐시된 조각을 그대로 쓴다.
+        MockHttpServletResponse first = ordersV3();
+        MockHttpServletResponse second = ordersV3();
+
+        //then
+        for (MockHttpServletResponse response : new MockHttpServletResponse[]{first, second}) {
+            assertTrue(MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(response.getContentType())));
+            assertEquals(expected, response.getContentAsString(StandardCharsets.UTF_8));
+            assertEquals(String.valueOf(expected.getBytes(StandardCharsets.UTF_8).length),
+                    response.getHeader(HttpHeaders.CONTENT_LENGTH));
+        }
+    }
+
+    @Test
+    public void 회원_이름을_바꾸면_그_회원의_주문_조각만_지운다() throws Exception {
+        //given
+        ordersV3();
+        Cache cache = cacheManager.getCache(OrderJsonCache.CACHE_NAME);
+        assertNotNull(cache.get(orderId));
+        assertNotNull(cache.get(otherOrderId));
+        long generationBeforeRename = orderJsonCache.generation();
+
+        //when
+        String newName = "v3-mvc-a-" + UUID.randomUUID();
+        memberService.update(memberId, newName);
+
+        //then: 다른 회원의 주문 조각은 그대로 쓰고, 응답에는 바뀐 이름이 나온다.
+        assertNull(cache.get(orderId));
+        assertNotNull(cache.get(otherOrderId));
+
+        //변경 전에 읽기 시작한 조회는 지운 뒤에 다시 넣지 못한다.
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                orderJsonCache.put(orderRepository.findAllWithItemByIds(List.of(orderId)).get(0), generationBeforeRename));
+        assertNull(cache.get(orderId));
+
+        String body = ordersV3().getContentAsString(StandardCharsets.UTF_8);
+        assertTrue(body.contains(newName));
+        assertEquals(jacksonJson(), body);
+    }
+
+    private MockHttpServletResponse ordersV3() throws Exception {
+        MvcResult started = mockMvc.perform(get("/api/v3/orders").param("page", "0").param("size", "1000"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+    }
+
+    // 같은 주문들을 엔티티로 읽어서 OrderDto 로 바꾸고 Jackson 으로 쓴 JSON
+    private String jacksonJson() {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            List<Long> orderIds = orderRepository.findIdAndVersion(0, 1000).stream()
+                    .map(row -> (Long) row[0])
+                    .collect(Collectors.toList());
+            List<OrderDto> orders = orderRepository.findAllWithItemByIds(orderIds).stream()
+                    .map(OrderDto::new)
+                    .collect(Collectors.toList());
+            try {
+                return objectMapper.writeValueAsString(orders);
+            } catch (JsonProcessingException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static Member member(String name) {
+        Member member = new Member();
+        member.setName(name);
+        member.setAddress(new Address("서울", "강가", "123"));
+        return member;
+    }
+}
@@ -0,0 +1,65 @@
+package jpabook.jpashop.change;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.service.MemberService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * 버전은 커밋된 데이터로 계산하므로 테스트 트랜잭션(@Transactional) 없이 실행한다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ChangeTrackerTest {
+
+    @Autowired ChangeTracker changeTracker;
+    @Autowired MemberService memberService;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @Test
+    public void 커밋하면_해당_묶음의_ETag만_바뀐다() throws Exception {
+        //given
+        String membersBefore = changeTracker.snapshot(ChangeTable.MEMBERS).getEtag();
+        String ordersBefore = changeTracker.snapshot(ChangeTable.ORDERS).getEtag();
+
+        //when
+        Member member = new Member();
+        member.setName("etag-" + UUID.randomUUID());
+        memberService.join(member);
+
+        //then
+        ChangeTracker.Snapshot after = changeTracker.snapshot(ChangeTable.MEMBERS);
+        assertNotEquals(membersBefore, after.getEtag());
+        assertTrue(after.getLastModified() > 0);
+        assertEquals(ordersBefore, changeTracker.snapshot(ChangeTable.ORDERS).getEtag());
+    }
+
+    @Test
+    public void 롤백하면_ETag가_그대로다() throws Exception {
+        //given
+        String before = changeTracker.snapshot(ChangeTable.ITEMS).getEtag();
+
+        //when
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            changeTracker.markChanged(ChangeTable.ITEMS);
+            status.setRollbackOnly();
+        });
+
+        //then
+        assertEquals(before, changeTracker.snapshot(ChangeTable.ITEMS).getEtag());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void 바뀐_묶음을_지정하지_않으면_예외() throws Exception {
+        changeTracker.markChanged();
+    }
+}
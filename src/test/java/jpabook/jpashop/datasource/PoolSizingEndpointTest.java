@@ -0,0 +1,48 @@
+package jpabook.jpashop.datasource;
+
+import jpabook.jpashop.service.MemberService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class PoolSizingEndpointTest {
+
+    @Autowired PoolSizingEndpoint poolSizingEndpoint;
+    @Autowired MemberService memberService;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void 서비스별_커넥션_점유와_풀크기_추천() throws Exception {
+        //given
+        poolSizingEndpoint.reset();
+
+        //when: 트랜잭션 하나 = 커넥션 점유 한 번
+        for (int i = 0; i < 10; i++) {
+            memberService.findMembers();
+        }
+        Map<String, Object> report = poolSizingEndpoint.report();
+
+        //then
+        int cores = (int) report.get("cores");
+        int recommended = (int) report.get("recommendedMaximumPoolSize");
+        assertTrue(recommended >= 2 && recommended <= cores * 2 + 1);
+        assertTrue((double) report.get("connectionHoldSeconds") > 0);
+
+        List<Map<String, Object>> holders = (List<Map<String, Object>>) report.get("topHolders");
+        Map<String, Object> findMembers = holders.stream()
+                .filter(h -> "MemberService.findMembers()".equals(h.get("service")))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("서비스 메서드별 점유가 기록되어야 한다. " + holders));
+        assertEquals(10L, findMembers.get("connections"));
+        assertEquals("none", findMembers.get("endpoint"));
+    }
+}
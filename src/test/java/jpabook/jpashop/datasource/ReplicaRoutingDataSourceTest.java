@@ -0,0 +1,103 @@
+package jpabook.jpashop.datasource;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * H2 메모리 DB 3개를 primary/replica 로 흉내내서 라우팅만 확인
+ */
+public class ReplicaRoutingDataSourceTest {
+
+    @After
+    public void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        PrimaryStickiness.clear();
+    }
+
+    @Test
+    public void 읽기전용_트랜잭션만_replica_라운드로빈() throws Exception {
+        ReplicaRoutingDataSource dataSource = routing(ReplicaRoutingDataSource.Strategy.ROUND_ROBIN, "select 0");
+
+        //쓰기(또는 트랜잭션 밖)는 primary
+        assertEquals("primary", dbOf(dataSource));
+
+        //읽기 전용은 replica 를 번갈아서
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        String first = dbOf(dataSource);
+        String second = dbOf(dataSource);
+        assertTrue(first.startsWith("replica"));
+        assertTrue(second.startsWith("replica"));
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    public void 쓰기직후에는_primary() throws Exception {
+        ReplicaRoutingDataSource dataSource = routing(ReplicaRoutingDataSource.Strategy.ROUND_ROBIN, "select 0");
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        PrimaryStickiness.pinUntil(System.currentTimeMillis() + 10_000);
+        assertEquals("primary", dbOf(dataSource));
+
+        PrimaryStickiness.clear();
+        assertTrue(dbOf(dataSource).startsWith("replica"));
+    }
+
+    @Test
+    public void 지연이_큰_replica_는_제외하고_primary() throws Exception {
+        //replica 지연 5초 > 허용 1초
+        ReplicaRoutingDataSource dataSource = routing(ReplicaRoutingDataSource.Strategy.ROUND_ROBIN, "select 5000");
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        dataSource.probeLag();
+
+        assertFalse(dataSource.getReplicas().get(0).isAvailable());
+        assertEquals("primary", dbOf(dataSource));
+    }
+
+    @Test
+    public void 커넥션이_적은_replica_선택() throws Exception {
+        ReplicaRoutingDataSource dataSource = routing(ReplicaRoutingDataSource.Strategy.LEAST_CONNECTIONS, "select 0");
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        //하나를 빌려둔 상태에서는 다른 replica 로
+        try (Connection held = dataSource.getConnection()) {
+            String heldDb = nameOf(held);
+            assertNotEquals(heldDb, dbOf(dataSource));
+        }
+        assertEquals(0, dataSource.getReplicas().get(0).getActiveConnections());
+        assertEquals(0, dataSource.getReplicas().get(1).getActiveConnections());
+    }
+
+    private ReplicaRoutingDataSource routing(ReplicaRoutingDataSource.Strategy strategy, String lagQuery) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-1", h2("replica1"));
+        replicas.put("replica-2", h2("replica2"));
+        return new ReplicaRoutingDataSource(h2("primary"), replicas, strategy, 1000, lagQuery);
+    }
+
+    private DataSource h2(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    private String dbOf(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            return nameOf(connection);
+        }
+    }
+
+    private String nameOf(Connection connection) throws SQLException {
+        String url = connection.getMetaData().getURL(); // jdbc:h2:mem:replica1
+        String name = url.substring("jdbc:h2:mem:".length());
+        return name.contains(";") ? name.substring(0, name.indexOf(';')) : name;
+    }
+}
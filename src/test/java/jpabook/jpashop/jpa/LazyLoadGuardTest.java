@@ -0,0 +1,63 @@
+package jpabook.jpashop.jpa;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.exception.LazyLoadOutsideTransactionException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class LazyLoadGuardTest {
+
+    @Autowired EntityManagerFactory emf;
+    @Autowired EntityManager em;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @Test
+    public void 트랜잭션_밖_지연로딩은_실패() throws Exception {
+        // OSIV 처럼 영속성 컨텍스트만 열려 있고 트랜잭션은 없는 상태 (InitDb 주문 사용)
+        EntityManager openEm = emf.createEntityManager();
+        try {
+            Order order = openEm.createQuery("select o from Order o order by o.id", Order.class)
+                    .setMaxResults(1)
+                    .getSingleResult();
+
+            try {
+                order.getMember().getName();
+                fail("트랜잭션 밖 지연 로딩은 예외가 발생해야 한다.");
+            } catch (LazyLoadOutsideTransactionException e) {
+                assertTrue(e.getMessage().contains("Member"));
+            }
+            try {
+                order.getOrderItems().size();
+                fail("트랜잭션 밖 컬렉션 초기화는 예외가 발생해야 한다.");
+            } catch (LazyLoadOutsideTransactionException e) {
+                assertTrue(e.getMessage().contains("orderItems"));
+            }
+        } finally {
+            openEm.close();
+        }
+    }
+
+    @Test
+    public void 트랜잭션_안_지연로딩은_허용() throws Exception {
+        String memberName = new TransactionTemplate(transactionManager).execute(status -> {
+            Order order = em.createQuery("select o from Order o order by o.id", Order.class)
+                    .setMaxResults(1)
+                    .getSingleResult();
+            order.getOrderItems().size();
+            return order.getMember().getName();
+        });
+        assertNotNull(memberName);
+    }
+}
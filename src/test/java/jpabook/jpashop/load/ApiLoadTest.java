@@ -0,0 +1,116 @@
+package jpabook.jpashop.load;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * API 부하 테스트 (기본으로는 건너뜀, -DloadTest=true 가 없으면 gradle test 가 이 패키지를 빼고 실행한다)
+ * - 서버를 따로 띄우므로 DB 도 따로 쓴다. (jdbc:h2:mem:loadtest, 다른 테스트가 쓰는 mem:test 를 다시 만들지 않음)
+ * - 요청 스레드를 일부러 적게(20개) 잡고 동시 요청 수를 그보다 많이 보내서, sync/async 모드의 처리량과 응답 시간을 비교한다.
+ *      ./gradlew test --tests '*ApiLoadTest' -DloadTest=true -Djpashop.api.async.enabled=false
+ *      ./gradlew test --tests '*ApiLoadTest' -DloadTest=true -Djpashop.api.async.enabled=true
+ * - 옵션: -DloadTest.path=/api/v4/simple-orders -DloadTest.concurrency=200 -DloadTest.seconds=20
+ * - 결과: 처리량(req/s), p50/p99 응답 시간, 상태 코드별 건수 (503 은 DB 동시 사용 한도/대기열 초과)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "server.tomcat.threads.max=20",
+                "spring.datasource.url=jdbc:h2:mem:loadtest;LOCK_TIMEOUT=10000"
+        })
+public class ApiLoadTest {
+    private static final Logger log = LoggerFactory.getLogger(ApiLoadTest.class);
+
+    @LocalServerPort int port;
+    @Value("${jpashop.api.async.enabled:false}") boolean async;
+
+    @Test
+    public void 동시요청_처리량() throws Exception {
+        assumeTrue("-DloadTest=true 일때만 실행", Boolean.getBoolean("loadTest"));
+        String path = System.getProperty("loadTest.path", "/api/v4/simple-orders");
+        int concurrency = Integer.getInteger("loadTest.concurrency", 200);
+        long seconds = Long.getLong("loadTest.seconds", 20L);
+
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .timeout(Duration.ofSeconds(60))
+                .GET()
+                .build();
+
+        // 워밍업
+        for (int i = 0; i < 50; i++) {
+            client.send(request, HttpResponse.BodyHandlers.discarding());
+        }
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        ConcurrentHashMap<Integer, AtomicInteger> statuses = new ConcurrentHashMap<>();
+        AtomicInteger errors = new AtomicInteger();
+
+        // 사용자 concurrency 명이 응답을 받으면 바로 다음 요청을 보낸다. (닫힌 루프)
+        List<CompletableFuture<Void>> users = new ArrayList<>();
+        long started = System.nanoTime();
+        for (int i = 0; i < concurrency; i++) {
+            users.add(loop(client, request, deadline, latencies, statuses, errors));
+        }
+        CompletableFuture.allOf(users.toArray(new CompletableFuture[0])).join();
+        double elapsedSeconds = (System.nanoTime() - started) / 1e9;
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        assertFalse("응답이 하나도 없습니다.", sorted.isEmpty());
+        log.info("mode={}, path={}, concurrency={}, requests={}, throughput={} req/s, p50={}ms, p99={}ms, statuses={}, errors={}",
+                async ? "async" : "sync", path, concurrency, sorted.size(),
+                String.format("%.1f", sorted.size() / elapsedSeconds),
+                percentile(sorted, 0.50), percentile(sorted, 0.99), statuses, errors.get());
+    }
+
+    private CompletableFuture<Void> loop(HttpClient client, HttpRequest request, long deadline,
+                                         ConcurrentLinkedQueue<Long> latencies,
+                                         ConcurrentHashMap<Integer, AtomicInteger> statuses,
+                                         AtomicInteger errors) {
+        if (System.nanoTime() >= deadline) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long start = System.nanoTime();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, e) -> {
+                    if (e != null) {
+                        errors.incrementAndGet();
+                    } else {
+                        latencies.add((System.nanoTime() - start) / 1_000_000);
+                        statuses.computeIfAbsent(response.statusCode(), k -> new AtomicInteger()).incrementAndGet();
+                    }
+                    return null;
+                })
+                .thenCompose(ignored -> loop(client, request, deadline, latencies, statuses, errors));
+    }
+
+    private static long percentile(List<Long> sorted, double p) {
+        return sorted.get(Math.min(sorted.size() - 1, (int) Math.ceil(p * sorted.size()) - 1));
+    }
+}
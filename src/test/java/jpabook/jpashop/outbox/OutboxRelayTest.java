@@ -0,0 +1,86 @@
+package jpabook.jpashop.outbox;
+
+import jpabook.jpashop.domain.event.StockChanged;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OutboxRelayTest {
+
+    @Autowired OutboxPublisher outboxPublisher;
+    @Autowired OutboxRelay outboxRelay;
+    @Autowired RecordingSubscriber subscriber;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @Value("${jpashop.outbox.relay.max-attempts:5}") int maxAttempts;
+
+    @Before
+    public void setUp() {
+        subscriber.received.clear(); // 구독자는 테스트끼리 같이 쓰는 빈
+    }
+
+    @Test
+    public void 실패한_aggregate_의_뒤_이벤트는_보류되고_다시_순서대로_전달() throws Exception {
+        //given: 테스트 전용 aggregate (음수 id), 첫 전달은 실패
+        subscriber.failNext(-1L);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            outboxPublisher.publish("Item", -1L, new StockChanged(-1L, -1));
+            outboxPublisher.publish("Item", -1L, new StockChanged(-1L, -2));
+            outboxPublisher.publish("Item", -2L, new StockChanged(-2L, -1));
+        });
+
+        //when
+        outboxRelay.relayPending();
+        List<String> afterFailure = Arrays.asList(subscriber.received.toArray(new String[0]));
+        outboxRelay.relayPending();
+
+        //then
+        assertEquals("다른 aggregate 는 먼저 전달된다.", Arrays.asList("-2:-1"), afterFailure);
+        assertEquals(Arrays.asList("-2:-1", "-1:-1", "-1:-2"), subscriber.received);
+    }
+
+    @Test
+    public void 끝내_실패한_aggregate_는_다시_시도할_때까지_막힌다() throws Exception {
+        //given: -4 의 첫 이벤트는 max-attempts 번 모두 실패
+        subscriber.fail(-4L, maxAttempts);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            outboxPublisher.publish("Item", -4L, new StockChanged(-4L, -1));
+            outboxPublisher.publish("Item", -4L, new StockChanged(-4L, -2));
+            outboxPublisher.publish("Item", -5L, new StockChanged(-5L, -1));
+        });
+
+        //when
+        for (int i = 0; i < maxAttempts + 1; i++) {
+            outboxRelay.relayPending();
+        }
+
+        //then: FAILED 를 건너뛰고 -4 의 뒤 이벤트를 전달하지 않는다. 다른 aggregate 는 전달된다.
+        assertEquals(Arrays.asList("-5:-1"), subscriber.received);
+
+        //when: 원인을 고치고 다시 시도하면 실패했던 이벤트부터 순서대로
+        assertEquals(1, outboxRelay.retryFailed("Item", -4L));
+        outboxRelay.relayPending();
+
+        //then
+        assertEquals(Arrays.asList("-5:-1", "-4:-1", "-4:-2"), subscriber.received);
+    }
+
+    @Test(expected = IllegalTransactionStateException.class)
+    public void 트랜잭션_밖에서는_저장할_수_없다() throws Exception {
+        outboxPublisher.publish("Item", -3L, new StockChanged(-3L, 1));
+    }
+}
@@ -0,0 +1,52 @@
+package jpabook.jpashop.outbox;
+
+import jpabook.jpashop.domain.event.StockChanged;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * OutboxRelayTest 용 구독자
+ * - 테스트 클래스 안의 @TestConfiguration 으로 등록하면 그 테스트만 스프링 컨텍스트를 따로 띄워서
+ *   ddl-auto: create 가 같은 H2 메모리 DB 를 다시 만든다. -> 일반 빈으로 두고 모든 테스트가 컨텍스트를 같이 쓴다.
+ * - 음수 상품 id 의 이벤트만 기록한다. (다른 테스트에서 쌓인 이벤트는 무시)
+ */
+@Component
+public class RecordingSubscriber implements OutboxSubscriber<StockChanged> {
+    final List<String> received = new CopyOnWriteArrayList<>();
+    private final Map<Long, Integer> failuresLeft = new ConcurrentHashMap<>();
+
+    void failNext(Long itemId) {
+        fail(itemId, 1);
+    }
+
+    // itemId 의 이벤트 전달을 times 번 실패시킨다.
+    void fail(Long itemId, int times) {
+        failuresLeft.put(itemId, times);
+    }
+
+    @Override
+    public Class<StockChanged> eventType() {
+        return StockChanged.class;
+    }
+
+    @Override
+    public void handle(StockChanged event) {
+        if (event.getItemId() >= 0) {
+            return; // 다른 테스트에서 쌓인 이벤트
+        }
+        Integer left = failuresLeft.get(event.getItemId());
+        if (left != null) {
+            if (left > 1) {
+                failuresLeft.put(event.getItemId(), left - 1);
+            } else {
+                failuresLeft.remove(event.getItemId());
+            }
+            throw new IllegalStateException("전달 실패");
+        }
+        received.add(event.getItemId() + ":" + event.getDelta());
+    }
+}
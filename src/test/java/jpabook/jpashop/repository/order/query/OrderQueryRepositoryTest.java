@@ -0,0 +1,62 @@
+package jpabook.jpashop.repository.order.query;
+
+import jpabook.jpashop.sql.SqlStats;
+import jpabook.jpashop.sql.SqlStatsAssert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderQueryRepositoryTest {
+
+    @Autowired OrderQueryRepository orderQueryRepository;
+
+    @Test
+    public void 컬렉션_나눠서_동시조회_결과가_같다() throws Exception {
+        //given: 주문마다 하나씩 조회한 결과 (V4)
+        // 나눠진 조회는 별도 커넥션으로 커밋된 데이터만 읽으므로 테스트 트랜잭션 없이 실행 (InitDb 주문 사용)
+        Map<Long, OrderQueryDto> expected = orderQueryRepository.findOrderQueryDtos().stream()
+                .collect(Collectors.toMap(OrderQueryDto::getOrderId, Function.identity()));
+        assertTrue(expected.size() >= 2);
+
+        //when: 주문 1개씩 나눠서 동시에 조회
+        List<OrderQueryDto> result = new ArrayList<>();
+        SqlStats stats = SqlStatsAssert.capture(() -> result.addAll(orderQueryRepository.findAllByDto_optimization(1)));
+
+        //then: 작업 스레드의 SQL 도 호출한 쪽 통계에 모인다. (루트 1번 + 주문마다 1번)
+        assertEquals(expected.size(), result.size());
+        assertEquals(1 + result.size(), stats.getStatements());
+        for (OrderQueryDto order : result) {
+            List<OrderItemQueryDto> expectedItems = expected.get(order.getOrderId()).getOrderItems();
+            assertEquals(expectedItems.size(), order.getOrderItems().size());
+            for (OrderItemQueryDto orderItem : order.getOrderItems()) {
+                assertEquals(order.getOrderId(), orderItem.getOrderId());
+            }
+        }
+    }
+
+    @Test
+    public void LongIndexMap() throws Exception {
+        LongIndexMap map = new LongIndexMap(1000);
+        for (int i = 0; i < 1000; i++) {
+            map.put(i * 31L + 7, i);
+        }
+
+        assertEquals(1000, map.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, map.get(i * 31L + 7));
+        }
+        assertEquals(-1, map.get(8L));
+    }
+}
@@ -0,0 +1,83 @@
+package jpabook.jpashop.search;
+
+import jpabook.jpashop.TestDataCleaner;
+import jpabook.jpashop.domain.item.Album;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.service.ItemService;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * item 테이블을 스트리밍으로 읽어서 색인을 다시 만드는지 (ItemRepository.streamSearchFields 의 컬럼 순서, dtype)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ItemSearchIndexRebuildTest {
+
+    @Autowired ItemSearchIndex itemSearchIndex;
+    @Autowired ItemService itemService;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired TestDataCleaner testDataCleaner;
+
+    private final List<Long> itemIds = new ArrayList<>();
+
+    // 커밋된 상품이므로 지우고 색인도 다시 만든다.
+    @After
+    public void cleanUp() {
+        itemIds.forEach(testDataCleaner::deleteItem);
+    }
+
+    @Test
+    public void DB_에서_다시_만들기() throws Exception {
+        //given
+        Book book = new Book();
+        book.setName("rebuildtest 자바");
+        book.setPrice(12000);
+        book.setStockQuantity(1);
+        book.setAuthor("rbauthor");
+        book.setIsbn("111-222");
+        save(book);
+        Album album = new Album();
+        album.setName("rebuildtest 음반");
+        album.setPrice(3000);
+        album.setStockQuantity(1);
+        album.setArtist("rbartist");
+        save(album);
+
+        //when: 색인을 거치지 않고 DB 에서 이름을 바꾼 뒤 다시 만든다.
+        jdbcTemplate.update("update item set name = ? where item_id = ?", "rebuildtest 코틀린", book.getId());
+        itemSearchIndex.rebuild();
+
+        //then
+        assertTrue(itemSearchIndex.isReady());
+        assertEquals(0, itemSearchIndex.search("rebuildtest 자바", 0, 10).getTotal());
+        ItemSearchIndex.ItemSearchResult result = itemSearchIndex.search("rbauthor 111222", 0, 10);
+        assertEquals(1, result.getTotal());
+        ItemSearchDocument document = result.getHits().get(0).getDocument();
+        assertEquals(book.getId(), document.getItemId());
+        assertEquals("B", document.getType());
+        assertEquals("rebuildtest 코틀린", document.getName());
+        assertEquals(12000, document.getPrice());
+
+        ItemSearchDocument albumDocument = itemSearchIndex.search("rbartist", 0, 10).getHits().get(0).getDocument();
+        assertEquals(album.getId(), albumDocument.getItemId());
+        assertEquals("A", albumDocument.getType());
+        assertEquals(2, itemSearchIndex.search("rebuildtest", 0, 10).getTotal());
+    }
+
+    private void save(Item item) {
+        itemService.saveItem(item);
+        itemIds.add(item.getId());
+    }
+}
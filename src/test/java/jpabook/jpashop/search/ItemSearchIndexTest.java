@@ -0,0 +1,92 @@
+package jpabook.jpashop.search;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+/**
+ * 색인/검색 로직만 확인 (DB 없이 문서를 직접 넣는다)
+ */
+public class ItemSearchIndexTest {
+
+    private final ItemSearchIndex index = new ItemSearchIndex(null);
+
+    @Test
+    public void 토큰_AND_검색과_점수순_정렬() throws Exception {
+        //given
+        index.index(book(1L, "JPA 프로그래밍", "김영한", "978-89-1234"));
+        index.index(book(2L, "Spring 입문", "김영한", null));
+        index.index(new ItemSearchDocument(3L, 0L, "M", "김영한 다큐", 5000, null, null, null, "홍길동", null));
+
+        //then: 이름(3) 이 사람(2) 보다 앞, 같으면 id 순
+        assertEquals(asList(3L, 1L, 2L), ids(index.search("김영한", 0, 10)));
+        assertEquals(asList(1L), ids(index.search("jpa 김영한", 0, 10)));
+        assertEquals(asList(2L), ids(index.search("spr", 0, 10))); // 앞부분 일치
+        assertEquals(asList(1L), ids(index.search("978891234", 0, 10))); // 하이픈 없는 isbn
+        assertTrue(ids(index.search("jpa 홍길동", 0, 10)).isEmpty());
+
+        //페이징
+        ItemSearchIndex.ItemSearchResult page = index.search("김영한", 1, 1);
+        assertEquals(3, page.getTotal());
+        assertEquals(asList(1L), ids(page));
+    }
+
+    @Test
+    public void 수정하면_이전_토큰에서_빠진다() throws Exception {
+        //given
+        index.index(book(1L, "JPA 프로그래밍", "김영한", null));
+
+        //when
+        index.index(book(1L, 1L, "Querydsl 실전", "김영한", null));
+
+        //then
+        assertTrue(ids(index.search("jpa", 0, 10)).isEmpty());
+        assertEquals(asList(1L), ids(index.search("querydsl", 0, 10)));
+        assertEquals("Querydsl 실전", index.search("김영한", 0, 10).getHits().get(0).getDocument().getName());
+    }
+
+    @Test
+    public void 오래된_version_은_반영하지_않는다() throws Exception {
+        //given
+        index.index(book(1L, 2L, "Querydsl 실전", "김영한", null));
+
+        //when: 먼저 커밋된 수정이 늦게 도착
+        index.index(book(1L, 1L, "JPA 프로그래밍", "김영한", null));
+
+        //then
+        assertTrue(ids(index.search("jpa", 0, 10)).isEmpty());
+        assertEquals(asList(1L), ids(index.search("querydsl", 0, 10)));
+    }
+
+    @Test
+    public void 앞부분이_같은_토큰이_너무_많으면_truncated() throws Exception {
+        //given: 'k' 로 시작하는 토큰 300개
+        for (long id = 1; id <= 300; id++) {
+            index.index(book(id, String.format("k%03d", id), null, null));
+        }
+
+        //then: 일부만 보고 알린다. 더 긴 검색어는 전부 본다.
+        ItemSearchIndex.ItemSearchResult shortQuery = index.search("k", 0, 10);
+        assertTrue(shortQuery.isTruncated());
+        assertTrue(shortQuery.getTotal() < 300);
+        ItemSearchIndex.ItemSearchResult longQuery = index.search("k2", 0, 10);
+        assertFalse(longQuery.isTruncated());
+        assertEquals(100, longQuery.getTotal());
+    }
+
+    private static ItemSearchDocument book(Long id, String name, String author, String isbn) {
+        return book(id, 0L, name, author, isbn);
+    }
+
+    private static ItemSearchDocument book(Long id, long version, String name, String author, String isbn) {
+        return new ItemSearchDocument(id, version, "B", name, 10000, author, isbn, null, null, null);
+    }
+
+    private static List<Long> ids(ItemSearchIndex.ItemSearchResult result) {
+        return result.getHits().stream().map(h -> h.getDocument().getItemId()).collect(Collectors.toList());
+    }
+}
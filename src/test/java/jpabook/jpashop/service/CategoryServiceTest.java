@@ -0,0 +1,106 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.CategoryRepository;
+import jpabook.jpashop.repository.CategoryTree;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class CategoryServiceTest {
+
+    @Autowired CategoryService categoryService;
+    @Autowired CategoryRepository categoryRepository;
+    @Autowired ItemService itemService;
+    @Autowired EntityManager em;
+
+    @Test
+    public void 하위트리_상품조회와_이동() throws Exception {
+        //given: 도서 > 국내 > 소설, 음반
+        Long books = categoryService.create("도서", null);
+        Long korean = categoryService.create("국내", books);
+        Long novel = categoryService.create("소설", korean);
+        Long album = categoryService.create("음반", null);
+        Long itemA = saveBook("A");
+        Long itemB = saveBook("B");
+        Long itemC = saveBook("C");
+        categoryService.addItem(books, itemA);
+        categoryService.addItem(novel, itemB);
+        categoryService.addItem(album, itemC);
+        em.flush();
+        em.clear();
+
+        //when, then: 스냅샷은 커밋 후에 바뀌므로 여기서는 path 쿼리로 찾는다.
+        assertEquals("/" + books + "/" + korean + "/", categoryRepository.findOne(novel).getPath());
+        assertEquals(Arrays.asList(itemA, itemB), itemIds(categoryService.findItemsInSubtree(books, 0, 10)));
+        assertEquals(Arrays.asList(itemB), itemIds(categoryService.findItemsInSubtree(korean, 0, 10)));
+        assertEquals(Arrays.asList(itemA), itemIds(categoryService.findItemsInSubtree(books, 0, 1)));
+
+        //when: 국내(와 하위 소설)를 음반 밑으로 옮긴다.
+        categoryService.move(korean, album);
+        em.clear();
+
+        //then
+        assertEquals("/" + album + "/" + korean + "/", categoryRepository.findOne(novel).getPath());
+        assertEquals(Arrays.asList(itemA), itemIds(categoryService.findItemsInSubtree(books, 0, 10)));
+        assertEquals(Arrays.asList(itemB, itemC), itemIds(categoryService.findItemsInSubtree(album, 0, 10)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void 하위카테고리_밑으로_이동_예외() throws Exception {
+        Long parent = categoryService.create("부모", null);
+        Long child = categoryService.create("자식", parent);
+
+        categoryService.move(parent, child);
+
+        fail("예외가 발생해야 한다.");
+    }
+
+    @Test
+    public void 트리_스냅샷_하위트리_구간() throws Exception {
+        //given: 1 > (2 > 4), 3
+        CategoryTree tree = CategoryTree.build(Arrays.asList(
+                new Object[]{1L, "a", null},
+                new Object[]{2L, "b", 1L},
+                new Object[]{3L, "c", 1L},
+                new Object[]{4L, "d", 2L},
+                new Object[]{5L, "e", null}));
+
+        //then
+        assertEquals(Arrays.asList(1L, 2L, 4L, 3L), tree.subtreeIds(1L));
+        assertEquals(Arrays.asList(2L, 4L), tree.subtreeIds(2L));
+        assertEquals(Arrays.asList(5L), tree.subtreeIds(5L));
+        assertTrue(tree.subtreeIds(99L).isEmpty());
+        assertTrue(tree.isInSubtree(1L, 4L));
+        assertFalse(tree.isInSubtree(2L, 3L));
+        assertEquals(2, tree.getNodes().get(2).getDepth());
+    }
+
+    private Long saveBook(String name) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(1000);
+        book.setStockQuantity(10);
+        itemService.saveItem(book);
+        return book.getId();
+    }
+
+    private static List<Long> itemIds(List<Item> items) {
+        return items.stream().map(Item::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,135 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.TestDataCleaner;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.CategoryTree;
+import jpabook.jpashop.sql.SqlStatsAssert;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * 커밋된 카테고리로 트리 스냅샷 경로(findItemsInCategories)를 확인한다. (CategoryServiceTest 는 롤백되므로 항상 path 쿼리)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class CategoryTreeSnapshotTest {
+
+    @Autowired CategoryService categoryService;
+    @Autowired ItemService itemService;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired TestDataCleaner testDataCleaner;
+
+    private final List<Long> categoryIds = new ArrayList<>();
+    private final List<Long> itemIds = new ArrayList<>();
+
+    @After
+    public void cleanUp() {
+        itemIds.forEach(testDataCleaner::deleteItem);
+        testDataCleaner.deleteCategories(categoryIds);
+    }
+
+    @Test
+    public void 다른_서버에서_옮긴_카테고리도_바로_반영() throws Exception {
+        //given: 도서 > 국내, 음반 (커밋 -> 스냅샷이 새로 만들어진다)
+        Long books = createCategory("도서", null);
+        Long korean = createCategory("국내", books);
+        Long album = createCategory("음반", null);
+        Long itemA = saveBook("snapshot-A");
+        Long itemB = saveBook("snapshot-B");
+        categoryService.addItem(books, itemA);
+        categoryService.addItem(korean, itemB);
+
+        //then: 스냅샷이 DB 와 같으므로 트리 버전 + category_item 조회 (쿼리 2번)
+        List<Item> found = new ArrayList<>();
+        SqlStatsAssert.assertSqlCount(2, () -> found.addAll(categoryService.findItemsInSubtree(books, 0, 10)));
+        assertEquals(Arrays.asList(itemA, itemB), itemIds(found));
+
+        //when: 다른 서버가 국내를 음반 밑으로 옮긴다. (이 서버의 스냅샷은 모른다)
+        jdbcTemplate.update("update category set parent_id = ?, path = ?, version = version + 1 where category_id = ?",
+                album, "/" + album + "/", korean);
+
+        //then: 낡은 스냅샷을 쓰지 않고 path 쿼리로 찾는다.
+        assertEquals(Arrays.asList(itemA), itemIds(categoryService.findItemsInSubtree(books, 0, 10)));
+        assertEquals(Arrays.asList(itemB), itemIds(categoryService.findItemsInSubtree(album, 0, 10)));
+
+        //then: 그 사이 스냅샷을 다시 만들었으므로 다시 스냅샷 경로
+        assertTrue(categoryService.getTree().isInSubtree(album, korean));
+        found.clear();
+        SqlStatsAssert.assertSqlCount(2, () -> found.addAll(categoryService.findItemsInSubtree(album, 0, 10)));
+        assertEquals(Arrays.asList(itemB), itemIds(found));
+    }
+
+    @Test
+    public void 서로의_밑으로_동시에_옮기면_하나만_성공() throws Exception {
+        //given: a, b 모두 최상위
+        Long a = createCategory("a", null);
+        Long b = createCategory("b", null);
+
+        //when: a -> b 밑, b -> a 밑을 동시에
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (Long[] move : new Long[][]{{a, b}, {b, a}}) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                categoryService.move(move[0], move[1]);
+                return null;
+            }));
+        }
+        start.countDown();
+        int rejected = 0;
+        for (Future<?> future : futures) {
+            try {
+                future.get(10, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalArgumentException);
+                rejected++;
+            }
+        }
+        executor.shutdown();
+
+        //then: 뒤의 것은 잠금을 기다렸다가 바뀐 경로를 보고 거절된다. (순환 없음)
+        assertEquals(1, rejected);
+        CategoryTree tree = categoryService.getTree();
+        assertTrue(tree.isInSubtree(a, b) ^ tree.isInSubtree(b, a));
+    }
+
+    private Long createCategory(String name, Long parentId) {
+        Long id = categoryService.create(name, parentId);
+        categoryIds.add(id);
+        return id;
+    }
+
+    private Long saveBook(String name) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(1000);
+        book.setStockQuantity(10);
+        itemService.saveItem(book);
+        itemIds.add(book.getId());
+        return book.getId();
+    }
+
+    private static List<Long> itemIds(List<Item> items) {
+        return items.stream().map(Item::getId).collect(Collectors.toList());
+    }
+}
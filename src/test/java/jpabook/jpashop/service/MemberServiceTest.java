@@ -1,6 +1,7 @@
 package jpabook.jpashop.service;
 
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.MemberNameIndex;
 import jpabook.jpashop.repository.MemberRepository;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -10,6 +11,9 @@ import org.springframework.test.annotation.Rollback;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+import java.util.Set;
+
 import static org.junit.Assert.*;
 
 @RunWith(SpringRunner.class) // 스프링과 테스트 통합
@@ -51,4 +55,41 @@ public class MemberServiceTest {
         fail("예외가 발생해야 한다.");
     }
 
-}
\ No newline at end of file
+    @Test
+    public void 이름_앞부분_검색() throws Exception {
+        //given
+        Member member1 = new Member();
+        member1.setName(" Park_Ji ");
+        Member member2 = new Member();
+        member2.setName("parkXji");
+        memberService.join(member1);
+        memberService.join(member2);
+
+        //when: 대소문자/공백 무시, '_' 는 와일드카드가 아닌 문자
+        List<Member> found = memberService.findMembersByNamePrefix("PARK_", 10);
+
+        //then
+        assertEquals(1, found.size());
+        assertEquals(member1, found.get(0));
+        assertTrue("검색어가 없으면 조건 없이 조회한다.", memberService.findMembersByNamePrefix(null, 1000).contains(member2));
+    }
+
+    @Test
+    public void 이름_포함_검색_색인() throws Exception {
+        //given: 색인은 커밋 후에 반영되므로 직접 넣는다. 스프링 빈(공유 색인)을 더럽히지 않도록 새로 만든 색인에.
+        MemberNameIndex memberNameIndex = new MemberNameIndex(memberRepository, true);
+        memberNameIndex.index(-1L, "Hong Gildong");
+        memberNameIndex.index(-2L, "gil");
+        memberNameIndex.index(-3L, "kim");
+
+        //then
+        Set<Long> gil = memberNameIndex.findMemberIdsContaining("GIL");
+        assertTrue(gil.contains(-1L) && gil.contains(-2L));
+        assertFalse(gil.contains(-3L));
+        assertTrue(memberNameIndex.findMemberIdsContaining("gildong").contains(-1L));
+
+        //when: 이름 변경시 이전 이름으로는 찾을 수 없다.
+        memberNameIndex.index(-1L, "Lee");
+        assertFalse(memberNameIndex.findMemberIdsContaining("gildong").contains(-1L));
+    }
+}
@@ -0,0 +1,152 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.TestDataCleaner;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.sql.SqlStats;
+import jpabook.jpashop.sql.SqlStatsAssert;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class MemberSignupConcurrencyTest {
+
+    private static final Logger log = LoggerFactory.getLogger(MemberSignupConcurrencyTest.class);
+
+    @Autowired MemberService memberService;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired TestDataCleaner testDataCleaner;
+
+    // 트랜잭션 없이 커밋하는 테스트이므로 넣은 회원은 모두 지운다. (캐시, 이름 색인도 다시 맞춘다)
+    @After
+    public void cleanUp() {
+        testDataCleaner.deleteMembersByNamePrefix("signup-");
+    }
+
+    @Test
+    public void 같은이름_동시가입_한명만_성공() throws Exception {
+        //given: 이름 50개를 각각 8개 스레드가 동시에 가입 시도
+        Result small = signupConcurrently("signup-a-", 50, 8);
+        SqlStats smallJoin = SqlStatsAssert.capture(() -> memberService.join(member("signup-one-a")));
+
+        //then: 이름마다 정확히 한명만 가입되고 나머지는 모두 중복 예외
+        assertEquals(50, small.success.get());
+        assertEquals(50 * 7, small.duplicated.get());
+        assertEquals(0, small.failed.get());
+        assertEquals(Integer.valueOf(50), jdbcTemplate.queryForObject(
+                "select count(*) from member where name like 'signup-a-%'", Integer.class));
+
+        //when: 회원 2만명을 더 넣고 같은 시험을 다시 한다. (빠르게 넣으려고 SQL 로 넣는다. 정리는 cleanUp 에서)
+        int seedCount = 20000;
+        jdbcTemplate.update("insert into member (member_id, name, search_name, version)" +
+                " select x + 100000000, concat('signup-seed-', x), concat('signup-seed-', x), 0 from system_range(1, ?)", seedCount);
+        Result large = signupConcurrently("signup-b-", 50, 8);
+        SqlStats largeJoin = SqlStatsAssert.capture(() -> memberService.join(member("signup-one-b")));
+
+        //then: 중복 확인은 유니크 인덱스로 하므로 회원 수가 늘어도 가입 한 번의 SQL 수는 같다.
+        assertEquals(50, large.success.get());
+        assertEquals(50 * 7, large.duplicated.get());
+        assertEquals(0, large.failed.get());
+        assertEquals("회원 수에 따라 가입 SQL 수가 달라지면 안 된다. small=" + smallJoin + ", large=" + largeJoin,
+                smallJoin.getStatements(), largeJoin.getStatements());
+        // 지연시간은 장비마다 달라서 검증하지 않고 기록만 한다.
+        log.info("signup p99: {} members={}ms, {} members={}ms",
+                small.memberCount, small.p99Millis(), large.memberCount, large.p99Millis());
+    }
+
+    @Test
+    public void 이름변경_중복이면_가입과_같은_예외() throws Exception {
+        //given
+        memberService.join(member("signup-rename-a"));
+        Long id = memberService.join(member("signup-rename-b"));
+
+        //when
+        try {
+            memberService.update(id, "signup-rename-a");
+            fail("이미 있는 이름으로는 바꿀 수 없다.");
+        } catch (IllegalStateException e) {
+            //then
+            assertEquals("이미 존재하는 회원입니다.", e.getMessage());
+        }
+        assertEquals("signup-rename-b", memberService.findOne(id).getName());
+    }
+
+    private static Member member(String name) {
+        Member member = new Member();
+        member.setName(name);
+        return member;
+    }
+
+    private Result signupConcurrently(String prefix, int nameCount, int threadsPerName) throws Exception {
+        Result result = new Result();
+        result.memberCount = jdbcTemplate.queryForObject("select count(*) from member", Integer.class);
+
+        int threadCount = nameCount * threadsPerName;
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            String name = prefix + (i % nameCount);
+            futures.add(executor.submit(() -> {
+                start.await();
+                long begin = System.nanoTime();
+                try {
+                    memberService.join(member(name));
+                    result.success.incrementAndGet();
+                } catch (IllegalStateException e) {
+                    result.duplicated.incrementAndGet();
+                } catch (RuntimeException e) {
+                    log.warn("signup failed", e);
+                    result.failed.incrementAndGet();
+                } finally {
+                    latencies.add(System.nanoTime() - begin);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        result.p99Nanos = sorted[(int) Math.ceil(sorted.length * 0.99) - 1];
+        return result;
+    }
+
+    private static class Result {
+        final AtomicInteger success = new AtomicInteger();
+        final AtomicInteger duplicated = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        int memberCount;
+        long p99Nanos;
+
+        long p99Millis() {
+            return TimeUnit.NANOSECONDS.toMillis(p99Nanos);
+        }
+    }
+}
@@ -4,9 +4,14 @@ import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.OrderSummary;
 import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.exception.InvalidCursorException;
 import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.repository.KeysetPage;
 import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.OrderSort;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,6 +20,10 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import static org.junit.Assert.*;
 
@@ -89,6 +98,109 @@ public class OrderServiceTest {
 
     }
 
+    @Test
+    public void 주문취소_재고는_서비스에서_한번만_원복() throws Exception {
+        //given
+        Member member = createMember("회원1", new Address("서울", "강가", "123-123"));
+        Book book = createBook(10000, "시골 JPA", 10);
+        Long orderId = orderService.order(member.getId(), book.getId(), 2);
+        Order order = orderRepository.findOne(orderId);
+
+        //when: 엔티티의 cancel() 은 상태만 바꾼다.
+        order.cancel();
+
+        //then
+        assertEquals(OrderStatus.CANCEL, order.getStatus());
+        assertEquals("Order.cancel() 은 재고를 원복하지 않는다.", 8, book.getStockQuantity());
+        try {
+            orderService.cancelOrder(orderId);
+            fail("이미 취소된 주문은 다시 취소할 수 없다.");
+        } catch (IllegalStateException e) {
+            assertEquals("재고가 두 번 원복되지 않아야 한다.", 8, book.getStockQuantity());
+        }
+    }
+
+    @Test
+    public void 주문요약_주문과취소에_따라_갱신() throws Exception {
+        //given
+        Member member = createMember("요약회원", new Address("서울", "강가", "123-123"));
+        Book book = createBook(10000, "요약 JPA", 10);
+        Long orderId = orderService.order(member.getId(), book.getId(), 3);
+
+        //when
+        em.flush();
+        em.clear();
+        OrderSearch search = new OrderSearch();
+        search.setItemId(book.getId());
+        List<OrderSummary> ordered = orderService.findOrderSummaries(search);
+
+        orderService.cancelOrder(orderId);
+        em.flush();
+        em.clear();
+        search.setOrderStatus(OrderStatus.CANCEL);
+        List<OrderSummary> cancelled = orderService.findOrderSummaries(search);
+
+        //then
+        assertEquals(1, ordered.size());
+        OrderSummary summary = ordered.get(0);
+        assertEquals(orderId, summary.getId());
+        assertEquals("요약회원", summary.getMemberName());
+        assertEquals(OrderStatus.ORDER, summary.getStatus());
+        assertEquals(1, summary.getLineCount());
+        assertEquals(30000, summary.getTotalPrice());
+        assertEquals("요약 JPA", summary.getFirstItemName());
+        assertEquals("서울", summary.getAddress().getCity());
+
+        assertEquals(1, cancelled.size());
+        assertEquals(OrderStatus.CANCEL, cancelled.get(0).getStatus());
+    }
+
+    @Test
+    public void 주문목록_키셋_페이징() throws Exception {
+        //given: 같은 상품 주문 3건 (주문일시가 같아도 id 로 순서가 정해진다)
+        Member member = createMember("페이징회원", new Address("서울", "강가", "123-123"));
+        Book book = createBook(1000, "페이징 JPA", 10);
+        Long first = orderService.order(member.getId(), book.getId(), 1);
+        Long second = orderService.order(member.getId(), book.getId(), 1);
+        Long third = orderService.order(member.getId(), book.getId(), 1);
+        em.flush();
+        em.clear();
+
+        OrderSearch search = new OrderSearch();
+        search.setItemId(book.getId());
+        search.setSort(OrderSort.ORDER_DATE_DESC);
+
+        //when
+        KeysetPage<OrderSummary> page1 = orderService.findOrderSummaryPage(search, 2);
+        search.setAfterId(page1.getNextAfterId());
+        KeysetPage<OrderSummary> page2 = orderService.findOrderSummaryPage(search, 2);
+
+        //then
+        assertEquals(2, page1.getContent().size());
+        assertTrue(page1.hasNext());
+        assertEquals(1, page2.getContent().size());
+        assertFalse(page2.hasNext());
+
+        Set<Long> ids = new HashSet<>();
+        page1.getContent().forEach(s -> ids.add(s.getId()));
+        page2.getContent().forEach(s -> ids.add(s.getId()));
+        assertEquals(new HashSet<>(Arrays.asList(first, second, third)), ids);
+    }
+
+    @Test(expected = InvalidCursorException.class)
+    public void 일시_정렬에_없는_주문의_afterId_면_예외() throws Exception {
+        //given: 일시 정렬은 afterId 주문의 일시를 기준으로 읽는다.
+        OrderSearch search = new OrderSearch();
+        search.setSort(OrderSort.ORDER_DATE_DESC);
+        search.setAfterId(-1L);
+
+        //when: 빈 페이지를 돌려주지 않고 잘못된 요청(400)으로
+        orderService.findOrderSummaryPage(search, 2);
+
+        //then
+        fail("예외가 발생해야 한다.");
+    }
+
 
     private Book createBook(int price, String name, int stockQuantity) {
         Book book = new Book();
@@ -0,0 +1,92 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.TestDataCleaner;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.DeliveryStatus;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.OrderSummary;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.OrderSearch;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderSummaryBackfillTest {
+
+    @Autowired OrderSummaryBackfill orderSummaryBackfill;
+    @Autowired OrderService orderService;
+    @Autowired MemberService memberService;
+    @Autowired ItemService itemService;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired TestDataCleaner testDataCleaner;
+
+    private Long itemId;
+
+    // 청크마다 커밋하므로 트랜잭션 롤백으로 지울 수 없다.
+    @After
+    public void cleanUp() {
+        if (itemId != null) {
+            testDataCleaner.deleteItem(itemId);
+        }
+        testDataCleaner.deleteMembersByNamePrefix("backfill-");
+    }
+
+    @Test
+    public void 목록_조회_테이블이_없는_주문_채우기() throws Exception {
+        //given: 주문 2건 중 1건은 order_summary 가 없다. (테이블을 만들기 전에 저장된 주문)
+        Member member = new Member();
+        member.setName("backfill-member");
+        member.setAddress(new Address("서울", "강가", "123"));
+        memberService.join(member);
+
+        Book book = new Book();
+        book.setName("backfill JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        itemService.saveItem(book);
+        itemId = book.getId();
+
+        Long kept = orderService.order(member.getId(), itemId, 1);
+        Long missing = orderService.order(member.getId(), itemId, 2);
+        jdbcTemplate.update("delete from order_summary where order_id = ?", missing);
+
+        OrderSearch search = new OrderSearch();
+        search.setItemId(itemId);
+        assertEquals(1, orderService.findOrderSummaries(search).size());
+
+        //when
+        long created = orderSummaryBackfill.backfill();
+
+        //then: 없던 주문만 만들고, 한 번 더 실행하면 할 일이 없다.
+        assertEquals(1, created);
+        assertEquals(0, orderSummaryBackfill.backfill());
+
+        List<OrderSummary> summaries = orderService.findOrderSummaries(search);
+        assertEquals(2, summaries.size());
+        OrderSummary summary = summaries.stream().filter(s -> s.getId().equals(missing)).findFirst().get();
+        assertEquals("backfill-member", summary.getMemberName());
+        assertEquals(OrderStatus.ORDER, summary.getStatus());
+        assertEquals(20000, summary.getTotalPrice());
+        assertEquals("backfill JPA", summary.getFirstItemName());
+        assertTrue(summaries.stream().anyMatch(s -> s.getId().equals(kept)));
+
+        //then: 배송 상태는 order_summary 에 복사하지 않으므로, 주문 뒤에 바뀐 배송 상태로도 바로 검색된다.
+        jdbcTemplate.update("update delivery set status = 'COMP'" +
+                " where delivery_id = (select delivery_id from orders where order_id = ?)", kept);
+        search.setDeliveryStatus(DeliveryStatus.COMP);
+        List<OrderSummary> delivered = orderService.findOrderSummaries(search);
+        assertEquals(1, delivered.size());
+        assertEquals(kept, delivered.get(0).getId());
+    }
+}
@@ -0,0 +1,126 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.TestDataCleaner;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class StockServiceConcurrencyTest {
+
+    @Autowired OrderService orderService;
+    @Autowired MemberService memberService;
+    @Autowired ItemService itemService;
+    @Autowired TestDataCleaner testDataCleaner;
+
+    @Autowired EntityManagerFactory emf;
+
+    private final List<Long> itemIds = new ArrayList<>();
+
+    // 트랜잭션 없이 커밋하는 테스트이므로 만든 상품/주문/회원을 직접 지운다.
+    @After
+    public void cleanUp() {
+        itemIds.forEach(testDataCleaner::deleteItem);
+        testDataCleaner.deleteMembersByNamePrefix("동시주문회원");
+    }
+
+    @Test
+    public void 인기상품_동시주문() throws Exception {
+        //given: 재고 100개인 상품 하나에 200개 스레드가 동시에 1개씩 주문
+        Member member = new Member();
+        member.setName("동시주문회원");
+        Long memberId = memberService.join(member);
+
+        Long itemId = createBook("인기 JPA", 100);
+
+        int threadCount = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch ready = new CountDownLatch(threadCount);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger success = new AtomicInteger();
+        AtomicInteger soldOut = new AtomicInteger();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        //when
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            futures.add(executor.submit(() -> {
+                ready.countDown();
+                start.await();
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    orderService.order(memberId, itemId, 1);
+                    success.incrementAndGet();
+                } catch (NotEnoughStockException e) {
+                    soldOut.incrementAndGet();
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+                return null;
+            }));
+        }
+        ready.await();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS); // 예상하지 못한 예외는 그대로 실패
+        }
+        executor.shutdown();
+
+        //then: 주문이 실제로 겹쳐서 실행되었어야 갱신 분실을 검증한 것이다.
+        assertTrue("동시에 실행된 주문이 없다. maxInFlight=" + maxInFlight.get(), maxInFlight.get() > 1);
+        assertEquals("재고 수량만큼만 주문이 성공해야 한다.", 100, success.get());
+        assertEquals("나머지는 재고 부족으로 실패해야 한다.", 100, soldOut.get());
+        assertEquals("재고는 정확히 0 이어야 한다. (갱신 분실 없음)", 0, itemService.findOne(itemId).getStockQuantity());
+    }
+
+    @Test
+    public void 재고_변경은_그_상품만_2차캐시에서_뺀다() throws Exception {
+        //given: 두 상품을 조회해서 2차 캐시에 올린다.
+        Member member = new Member();
+        member.setName("동시주문회원-캐시");
+        Long memberId = memberService.join(member);
+        Long ordered = createBook("캐시 JPA 1", 10);
+        Long other = createBook("캐시 JPA 2", 10);
+        itemService.findOne(ordered);
+        itemService.findOne(other);
+        assertTrue(emf.getCache().contains(Book.class, other));
+
+        //when
+        orderService.order(memberId, ordered, 1);
+
+        //then: 주문한 상품만 빠지고, 다른 상품은 캐시에 그대로 남는다.
+        assertFalse(emf.getCache().contains(Book.class, ordered));
+        assertTrue("재고 UPDATE 가 item region 전체를 비우면 안 된다.", emf.getCache().contains(Book.class, other));
+        assertEquals(9, itemService.findOne(ordered).getStockQuantity());
+    }
+
+    private Long createBook(String name, int stockQuantity) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(10000);
+        book.setStockQuantity(stockQuantity);
+        itemService.saveItem(book);
+        itemIds.add(book.getId());
+        return book.getId();
+    }
+}
@@ -0,0 +1,88 @@
+package jpabook.jpashop.service.query;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.order.query.OrderFlatAssembler;
+import jpabook.jpashop.repository.order.query.OrderFlatDto;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderNdjsonWriterTest {
+
+    // API 응답과 같은 설정인지 보려면 스프링이 만든 ObjectMapper 로 검증해야 한다.
+    @Autowired ObjectMapper objectMapper;
+
+    @Test
+    public void DTO_직렬화와_같은_JSON() throws Exception {
+        //given: order_id 순으로 정렬된 플랫 row (주문 3건, 라인 1~3개)
+        List<OrderFlatDto> rows = rows();
+
+        //when
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OrderNdjsonWriter writer = new OrderNdjsonWriter(objectMapper, out);
+        for (OrderFlatDto row : rows) {
+            writer.write(row);
+        }
+        writer.finish();
+
+        //then: 주문을 DTO 로 묶어서 ObjectMapper 로 직렬화한 결과와 글자까지 같다.
+        List<OrderQueryDto> expected = new ArrayList<>();
+        OrderFlatAssembler.forEachOrder(rows.iterator(), expected::add);
+
+        String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, writer.getCount());
+        assertEquals(expected.size(), lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals(objectMapper.writeValueAsString(expected.get(i)), lines[i]);
+        }
+    }
+
+    @Test
+    public void 정렬되지_않은_row_묶기() throws Exception {
+        //given: row 순서를 섞어도
+        List<OrderFlatDto> rows = rows();
+        List<OrderFlatDto> shuffled = Arrays.asList(rows.get(5), rows.get(0), rows.get(3), rows.get(1), rows.get(4), rows.get(2));
+
+        //when
+        List<OrderQueryDto> orders = OrderFlatAssembler.group(shuffled);
+
+        //then: 주문은 처음 나온 순서, 라인은 주문 안에서 나온 순서
+        assertEquals(3, orders.size());
+        assertEquals(Long.valueOf(3L), orders.get(0).getOrderId());
+        assertEquals(Long.valueOf(1L), orders.get(1).getOrderId());
+        assertEquals(Long.valueOf(2L), orders.get(2).getOrderId());
+        assertEquals(1, orders.get(0).getOrderItems().size());
+        assertEquals(2, orders.get(1).getOrderItems().size());
+        assertEquals("book-1b", orders.get(1).getOrderItems().get(1).getItemName());
+        assertEquals(3, orders.get(2).getOrderItems().size());
+        assertEquals("book-2b", orders.get(2).getOrderItems().get(0).getItemName());
+    }
+
+    private List<OrderFlatDto> rows() {
+        LocalDateTime date = LocalDateTime.of(2021, 1, 2, 3, 4, 0);
+        Address address = new Address("서울", "강가", "123");
+        return Arrays.asList(
+                new OrderFlatDto(1L, "userA", date, OrderStatus.ORDER, address, "book-1a", 10000, 1),
+                new OrderFlatDto(1L, "userA", date, OrderStatus.ORDER, address, "book-1b", 20000, 2),
+                new OrderFlatDto(2L, "userB", date.plusNanos(123_000_000), OrderStatus.CANCEL, address, "book-2a", 1000, 3),
+                new OrderFlatDto(2L, "userB", date.plusNanos(123_000_000), OrderStatus.CANCEL, address, "book-2b", 2000, 4),
+                new OrderFlatDto(2L, "userB", date.plusNanos(123_000_000), OrderStatus.CANCEL, address, "book-2c", 3000, 5),
+                new OrderFlatDto(3L, null, null, OrderStatus.ORDER, null, "book-3a", 500, 6));
+    }
+}
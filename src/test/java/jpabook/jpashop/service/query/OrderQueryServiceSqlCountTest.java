@@ -0,0 +1,118 @@
+package jpabook.jpashop.service.query;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.sql.SqlStats;
+import jpabook.jpashop.web.JsonArray;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static jpabook.jpashop.sql.SqlStatsAssert.*;
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class OrderQueryServiceSqlCountTest {
+
+    @Autowired OrderQueryService orderQueryService;
+    @Autowired OrderRepository orderRepository;
+    @Autowired EntityManager em;
+    @Autowired CacheManager cacheManager;
+
+    private final List<Long> orderIds = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        //주문 5건, 주문마다 상품 2개
+        for (int i = 0; i < 5; i++) {
+            Member member = new Member();
+            member.setName("sql-count-" + i);
+            member.setAddress(new Address("서울", "강가", "123-" + i));
+            em.persist(member);
+
+            Book book1 = createBook("sql-book-a" + i);
+            Book book2 = createBook("sql-book-b" + i);
+
+            Delivery delivery = new Delivery();
+            delivery.setAddress(member.getAddress());
+            Order order = Order.createOrder(member, delivery,
+                    OrderItem.createReservedOrderItem(book1, 1000, 1),
+                    OrderItem.createReservedOrderItem(book2, 2000, 2));
+            em.persist(order);
+            orderIds.add(order.getId());
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void V3_페치조인은_쿼리_1번() throws Exception {
+        assertSqlCount(1, () -> orderQueryService.ordersV3());
+    }
+
+    @Test
+    public void V3_페이징은_id조회_페치조인_쿼리_2번() throws Exception {
+        //given: 캐시된 조각이 없으면
+        cacheManager.getCache(OrderJsonCache.CACHE_NAME).clear();
+
+        //when
+        List<JsonArray> result = new ArrayList<>();
+        assertSqlCount(2, () -> result.add(orderQueryService.ordersV3Json(0, 3)));
+
+        //then: 주문이 상품 수만큼 중복되지 않고 한 페이지(3건)만 조회된다.
+        assertEquals(3, result.get(0).getElements().size());
+    }
+
+    @Test
+    public void V3_JSON조각은_두번째부터_id_version_조회만() throws Exception {
+        //given: 처음에는 캐시에 없으므로 페치 조인 후 직렬화
+        orderQueryService.ordersV3Json(0, 3);
+
+        //when: 같은 주문이면 (id, version) 조회 1번 (응답 내용은 OrderApiControllerTest 에서 확인)
+        List<JsonArray> result = new ArrayList<>();
+        assertSqlCount(1, () -> result.add(orderQueryService.ordersV3Json(0, 3)));
+
+        //then
+        assertEquals(3, result.get(0).getElements().size());
+    }
+
+    @Test
+    public void V3_1_페이징은_주문수와_상관없이_쿼리_3번_이하() throws Exception {
+        //order + member + delivery 1번, orderItems IN 1번, item IN 1번 (2차 캐시에 있으면 생략)
+        SqlStats stats = assertMaxSqlCount(3, () -> orderQueryService.ordersV3_page(0, 100));
+        assertEquals(1, stats.getMaxRepeat());
+    }
+
+    @Test
+    public void 반복되는_같은모양_SQL_감지() throws Exception {
+        //주문을 하나씩 조회하면 같은 모양의 SQL 이 주문 수만큼 반복된다. (N+1)
+        SqlStats stats = capture(() -> orderIds.forEach(id -> orderRepository.findOne(id)));
+        assertEquals(orderIds.size(), stats.getMaxRepeat());
+        assertTrue(stats.getMostRepeatedShape().contains("where"));
+    }
+
+    private Book createBook(String name) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(1000);
+        book.setStockQuantity(10);
+        em.persist(book);
+        return book;
+    }
+}
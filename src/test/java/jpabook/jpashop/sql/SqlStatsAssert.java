@@ -0,0 +1,49 @@
+package jpabook.jpashop.sql;
+
+import static org.junit.Assert.*;
+
+/**
+ * 테스트용 SQL 실행 수 검증
+ *
+ *      SqlStats stats = SqlStatsAssert.capture(() -> orderQueryService.ordersV3());
+ *      SqlStatsAssert.assertSqlCount(1, () -> orderQueryService.ordersV3());
+ *
+ * - 같은 스레드와, 여기서 넘긴 주문 조회 작업 스레드(orderQueryExecutor, ApiTaskDecorator)에서 실행된 SQL 을 센다.
+ * - 2차 캐시에 있는 엔티티는 SQL 없이 조회되므로, 캐시 상태에 따라 달라지는 경우는 assertMaxSqlCount 를 쓴다.
+ */
+public final class SqlStatsAssert {
+
+    private SqlStatsAssert() {
+    }
+
+    public static SqlStats capture(Runnable work) {
+        SqlStats stats = SqlStatsHolder.start("test");
+        try {
+            work.run();
+        } finally {
+            SqlStatsHolder.stop(stats);
+        }
+        return stats;
+    }
+
+    public static SqlStats assertSqlCount(int expected, Runnable work) {
+        SqlStats stats = capture(work);
+        assertEquals("SQL 실행 수 " + stats, expected, stats.getStatements());
+        return stats;
+    }
+
+    public static SqlStats assertMaxSqlCount(int max, Runnable work) {
+        SqlStats stats = capture(work);
+        assertTrue("SQL 실행 수가 " + max + " 이하여야 한다. " + stats, stats.getStatements() <= max);
+        return stats;
+    }
+
+    /**
+     * 같은 모양의 SQL 이 maxRepeat 번을 넘게 실행되면 실패 (N+1)
+     */
+    public static SqlStats assertNoRepeat(int maxRepeat, Runnable work) {
+        SqlStats stats = capture(work);
+        assertTrue("N+1 의심: " + stats.getMostRepeatedShape() + " " + stats, stats.getMaxRepeat() <= maxRepeat);
+        return stats;
+    }
+}